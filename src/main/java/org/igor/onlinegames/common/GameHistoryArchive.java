@@ -0,0 +1,160 @@
+package org.igor.onlinegames.common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A compacted segment of {@link SegmentedGameHistoryLog}. The file starts with MAGIC, VERSION, the number of records
+ * and the index: startedAt and the offset the record had in the segment, for every record. The rest is deflated and
+ * stored by columns: the dictionary of user ids, game ids, user ids of every record as numbers in the dictionary and
+ * data of every record written by a {@link GameHistoryArchiveCodec}.
+ */
+final class GameHistoryArchive {
+    private static final int MAGIC = 0x4F474841;
+    private static final int VERSION = 1;
+
+    final long[] startedAts;
+    final long[] offsets;
+    // null if only the index was read
+    final List<GameHistoryRecord> records;
+
+    private GameHistoryArchive(long[] startedAts, long[] offsets, List<GameHistoryRecord> records) {
+        this.startedAts = startedAts;
+        this.offsets = offsets;
+        this.records = records;
+    }
+
+    /**
+     * @return the number of the record which had the offset in the segment or a negative number if there is none
+     */
+    int indexOf(long offset) {
+        return Arrays.binarySearch(offsets, offset);
+    }
+
+    static void write(Path file, long[] offsets, List<GameHistoryRecord> records, GameHistoryArchiveCodec codec)
+            throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(records.size());
+            for (int i = 0; i < records.size(); i++) {
+                out.writeLong(records.get(i).getStartedAt().toEpochMilli());
+                out.writeLong(offsets[i]);
+            }
+            out.flush();
+            // the stream does not release a deflater it is given
+            final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try {
+                final DeflaterOutputStream deflated = new DeflaterOutputStream(out, deflater, 1 << 16);
+                final DataOutputStream columns = new DataOutputStream(new BufferedOutputStream(deflated, 1 << 16));
+                final Map<UUID, Integer> dictionary = new HashMap<>();
+                final List<UUID> userIds = new ArrayList<>();
+                for (GameHistoryRecord record : records) {
+                    for (UUID userId : record.getUserIds()) {
+                        if (dictionary.putIfAbsent(userId, userIds.size()) == null) {
+                            userIds.add(userId);
+                        }
+                    }
+                }
+                GameHistoryArchiveCodec.writeVarLong(columns, userIds.size());
+                for (UUID userId : userIds) {
+                    writeUuid(columns, userId);
+                }
+                for (GameHistoryRecord record : records) {
+                    writeUuid(columns, record.getGameId());
+                }
+                for (GameHistoryRecord record : records) {
+                    GameHistoryArchiveCodec.writeVarLong(columns, record.getUserIds().size());
+                    for (UUID userId : record.getUserIds()) {
+                        GameHistoryArchiveCodec.writeVarLong(columns, dictionary.get(userId));
+                    }
+                }
+                for (GameHistoryRecord record : records) {
+                    codec.writeData(record, columns);
+                }
+                columns.flush();
+                deflated.finish();
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+    static GameHistoryArchive readIndex(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return readIndex(file, in);
+        }
+    }
+
+    static GameHistoryArchive read(Path file, GameHistoryArchiveCodec codec) throws IOException {
+        final byte[] bytes = Files.readAllBytes(file);
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        final GameHistoryArchive index = readIndex(file, in);
+        final int numOfRecords = index.startedAts.length;
+        try (DataInputStream columns = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(in), 1 << 16
+        ))) {
+            final UUID[] userIds = new UUID[(int) GameHistoryArchiveCodec.readVarLong(columns)];
+            for (int i = 0; i < userIds.length; i++) {
+                userIds[i] = readUuid(columns);
+            }
+            final List<GameHistoryRecord> records = new ArrayList<>(numOfRecords);
+            for (int r = 0; r < numOfRecords; r++) {
+                records.add(new GameHistoryRecord(
+                        Instant.ofEpochMilli(index.startedAts[r]), readUuid(columns), null, null
+                ));
+            }
+            for (GameHistoryRecord record : records) {
+                final int numOfUsers = (int) GameHistoryArchiveCodec.readVarLong(columns);
+                final List<UUID> recordUserIds = new ArrayList<>(numOfUsers);
+                for (int i = 0; i < numOfUsers; i++) {
+                    recordUserIds.add(userIds[(int) GameHistoryArchiveCodec.readVarLong(columns)]);
+                }
+                record.setUserIds(recordUserIds);
+            }
+            for (GameHistoryRecord record : records) {
+                record.setData(codec.readData(record, columns));
+            }
+            return new GameHistoryArchive(index.startedAts, index.offsets, records);
+        }
+    }
+
+    private static GameHistoryArchive readIndex(Path file, DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Unsupported format of " + file);
+        }
+        final int numOfRecords = in.readInt();
+        final long[] startedAts = new long[numOfRecords];
+        final long[] offsets = new long[numOfRecords];
+        for (int r = 0; r < numOfRecords; r++) {
+            startedAts[r] = in.readLong();
+            offsets[r] = in.readLong();
+        }
+        return new GameHistoryArchive(startedAts, offsets, null);
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+}
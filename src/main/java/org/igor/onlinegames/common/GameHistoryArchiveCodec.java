@@ -0,0 +1,47 @@
+package org.igor.onlinegames.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Encodes data of records of one game type in a history archive. Fields of the record itself (startedAt, gameId and
+ * user ids) are stored by the archive, so a codec may refer to them instead of repeating them.
+ */
+public interface GameHistoryArchiveCodec {
+    void writeData(GameHistoryRecord record, DataOutput out) throws IOException;
+
+    /**
+     * @param record the record with startedAt, gameId and user ids restored
+     */
+    byte[] readData(GameHistoryRecord record, DataInput in) throws IOException;
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            final byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length number.");
+    }
+
+    static void writeSignedVarLong(DataOutput out, long value) throws IOException {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    static long readSignedVarLong(DataInput in) throws IOException {
+        final long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,21 @@
+package org.igor.onlinegames.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A finished game as it is kept by {@link GameHistoryRepository}: the fields needed to find the game plus the
+ * serialized game itself.
+ */
+@Data
+@AllArgsConstructor
+public class GameHistoryRecord {
+    private Instant startedAt;
+    private UUID gameId;
+    private List<UUID> userIds;
+    private byte[] data;
+}
@@ -0,0 +1,31 @@
+package org.igor.onlinegames.common;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Append-only storage of finished games. A record is addressed by the position returned when it was appended.
+ */
+public interface GameHistoryRepository extends Closeable {
+    /**
+     * @return the position of the record
+     */
+    long append(GameHistoryRecord record) throws IOException;
+
+    /**
+     * Makes appended records durable.
+     */
+    void sync() throws IOException;
+
+    GameHistoryRecord read(long position) throws IOException;
+
+    /**
+     * Passes records with startedAt in [from, to) to the consumer in the order they were appended.
+     */
+    void readRange(Instant from, Instant to, RecordConsumer consumer) throws IOException;
+
+    interface RecordConsumer {
+        void accept(long position, GameHistoryRecord record) throws IOException;
+    }
+}
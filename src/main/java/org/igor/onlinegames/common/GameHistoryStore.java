@@ -0,0 +1,153 @@
+package org.igor.onlinegames.common;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Stores finished games of one type in a history repository through a history writer and keeps an in-memory index:
+ * user id to positions of games the user played. The index covers the last indexDays days (by the UTC date of the
+ * game start); it is rebuilt from the repository on startup and maintained as games are written, so reading history
+ * of a user reads only that user's records.
+ */
+@Slf4j
+public abstract class GameHistoryStore<T> {
+    private static final Duration ONE_DAY = Duration.of(24, ChronoUnit.HOURS);
+
+    private final Class<T> gameClass;
+    protected final ObjectMapper mapper;
+    protected final GameHistoryRepository repository;
+    private final GameHistoryWriter historyWriter;
+    private final int indexDays;
+
+    private final Map<UUID, List<IndexEntry>> userIdToGames = new ConcurrentHashMap<>();
+    private volatile Instant indexedFrom = Instant.EPOCH;
+
+    protected GameHistoryStore(Class<T> gameClass, ObjectMapper mapper, GameHistoryRepository repository,
+                               GameHistoryWriter historyWriter, int indexDays) {
+        this.gameClass = gameClass;
+        this.mapper = mapper;
+        this.repository = repository;
+        this.historyWriter = historyWriter;
+        this.indexDays = indexDays;
+    }
+
+    /**
+     * Serializes the game on the calling thread, which owns it, and queues the record to be written by the history
+     * writer. The game appears in the history of its players when it is written.
+     */
+    public void save(T game) {
+        final GameHistoryRecord record;
+        try {
+            record = toHistoryRecord(game, mapper.writeValueAsBytes(game));
+        } catch (IOException ex) {
+            log.error("Cannot serialize the game, it is not saved.", ex);
+            return;
+        }
+        historyWriter.submit(
+                record,
+                (position, historyRecord) -> {
+                    index(position, historyRecord);
+                    removeOutdatedEntries(Instant.now());
+                }
+        );
+    }
+
+    /**
+     * @return games of the user started since the beginning of the day (UTC) which was indexDays-1 days ago, the
+     * most recent first
+     */
+    public List<T> getGamesOfUser(UUID userId) {
+        final List<IndexEntry> entries = userIdToGames.get(userId);
+        if (entries == null) {
+            return new ArrayList<>();
+        }
+        final Instant from = getIndexStart(Instant.now());
+        final List<Long> positions;
+        synchronized (entries) {
+            positions = entries.stream()
+                    .filter(entry -> !entry.startedAt.isBefore(from))
+                    .sorted(Comparator.comparing((IndexEntry entry) -> entry.startedAt).reversed())
+                    .map(entry -> entry.position)
+                    .collect(Collectors.toList());
+        }
+        final List<T> games = new ArrayList<>();
+        for (long position : positions) {
+            try {
+                games.add(mapper.readValue(repository.read(position).getData(), gameClass));
+            } catch (IOException ex) {
+                log.error("Cannot read the game at " + position, ex);
+            }
+        }
+        return games;
+    }
+
+    protected abstract GameHistoryRecord toHistoryRecord(T game, byte[] data);
+
+    protected void rebuildIndex() throws IOException {
+        final Instant now = Instant.now();
+        indexedFrom = getIndexStart(now);
+        repository.readRange(indexedFrom, Instant.MAX, this::index);
+    }
+
+    private void index(long position, GameHistoryRecord record) {
+        final IndexEntry entry = new IndexEntry(position, record.getStartedAt());
+        for (UUID userId : record.getUserIds()) {
+            userIdToGames.compute(userId, (id, entries) -> {
+                final List<IndexEntry> result = entries == null ? new ArrayList<>() : entries;
+                synchronized (result) {
+                    result.add(entry);
+                }
+                return result;
+            });
+        }
+    }
+
+    /**
+     * Once a day drops entries which went out of the indexed period.
+     */
+    private void removeOutdatedEntries(Instant now) {
+        final Instant from = getIndexStart(now);
+        if (!from.isAfter(indexedFrom)) {
+            return;
+        }
+        indexedFrom = from;
+        for (UUID userId : userIdToGames.keySet()) {
+            userIdToGames.computeIfPresent(userId, (id, entries) -> {
+                synchronized (entries) {
+                    entries.removeIf(entry -> entry.startedAt.isBefore(from));
+                    return entries.isEmpty() ? null : entries;
+                }
+            });
+        }
+    }
+
+    private Instant getIndexStart(Instant now) {
+        return now.minus(ONE_DAY.multipliedBy(indexDays - 1L))
+                .atZone(ZoneOffset.UTC)
+                .truncatedTo(ChronoUnit.DAYS)
+                .toInstant();
+    }
+
+    private static class IndexEntry {
+        private final long position;
+        private final Instant startedAt;
+
+        private IndexEntry(long position, Instant startedAt) {
+            this.position = position;
+            this.startedAt = startedAt;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.igor.onlinegames.common;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes finished games to a {@link GameHistoryRepository} on its own thread, so a game only queues its record. The
+ * thread takes all queued records (up to maxBatchSize), appends them and syncs the repository once per batch. The
+ * callback of a record is called after the batch is synced. Submit is called on state executor threads, so when the
+ * queue is full it waits for space at most SUBMIT_TIMEOUT_MILLIS, then the record is dropped and counted in the
+ * stats. On close all queued records are written.
+ */
+@Slf4j
+public class GameHistoryWriter {
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+    private static final long SUBMIT_TIMEOUT_MILLIS = 100;
+
+    private final GameHistoryRepository repository;
+    private final BlockingQueue<Task> queue;
+    private final int maxBatchSize;
+    private final Thread writerThread;
+    private volatile boolean closed;
+
+    private long written;
+    private long failed;
+    private long dropped;
+    private long batches;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+
+    /**
+     * @param name the game type, the writer thread is named after it
+     */
+    public GameHistoryWriter(String name, GameHistoryRepository repository, int queueCapacity, int maxBatchSize) {
+        this.repository = repository;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.writerThread = new Thread(this::runWriter, "history-writer-" + name);
+        this.writerThread.setDaemon(true);
+    }
+
+    public void start() {
+        writerThread.start();
+    }
+
+    /**
+     * @param callback is called on the writer thread with the position of the record
+     */
+    public void submit(GameHistoryRecord record, GameHistoryRepository.RecordConsumer callback) {
+        if (closed) {
+            throw new IllegalStateException("The history writer is closed.");
+        }
+        try {
+            final Task task = new Task(record, callback, System.nanoTime());
+            if (!queue.offer(task, SUBMIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                onDropped(record);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            onDropped(record);
+        }
+    }
+
+    public void close() throws InterruptedException {
+        closed = true;
+        writerThread.join();
+        // tasks submitted concurrently with close
+        final List<Task> batch = new ArrayList<>();
+        while (queue.drainTo(batch, maxBatchSize) > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    public synchronized GameHistoryWriterStatsDto getStats() {
+        return GameHistoryWriterStatsDto.builder()
+                .queueSize(queue.size())
+                .queueCapacity(queue.size() + queue.remainingCapacity())
+                .written(written)
+                .failed(failed)
+                .dropped(dropped)
+                .batches(batches)
+                .avgLatencyMillis(written == 0 ? 0 : totalLatencyNanos / written / 1_000_000.0)
+                .maxLatencyMillis(maxLatencyNanos / 1_000_000.0)
+                .build();
+    }
+
+    private void onDropped(GameHistoryRecord record) {
+        synchronized (this) {
+            dropped++;
+        }
+        log.error("The history queue is full, game {} is not saved.", record.getGameId());
+    }
+
+    private void runWriter() {
+        final List<Task> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            try {
+                final Task first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closed) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                writeBatch(batch);
+            } catch (InterruptedException ex) {
+                log.warn("The history writer is interrupted, {} queued games are written on close.", queue.size());
+                return;
+            } catch (Exception ex) {
+                log.error(ex.getMessage(), ex);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<Task> batch) {
+        final List<Task> appended = new ArrayList<>(batch.size());
+        for (Task task : batch) {
+            try {
+                task.position = repository.append(task.record);
+                appended.add(task);
+            } catch (Exception ex) {
+                log.error("Cannot save a game to the history.", ex);
+            }
+        }
+        try {
+            repository.sync();
+        } catch (IOException ex) {
+            // the records are readable even if they are not on the disk yet
+            log.error("Cannot sync the history.", ex);
+        }
+        final long now = System.nanoTime();
+        for (Task task : appended) {
+            try {
+                task.callback.accept(task.position, task.record);
+            } catch (Exception ex) {
+                log.error(ex.getMessage(), ex);
+            }
+        }
+        synchronized (this) {
+            batches++;
+            written += appended.size();
+            failed += batch.size() - appended.size();
+            for (Task task : appended) {
+                final long latency = now - task.submittedAt;
+                totalLatencyNanos += latency;
+                maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+            }
+        }
+    }
+
+    private static class Task {
+        private final GameHistoryRecord record;
+        private final GameHistoryRepository.RecordConsumer callback;
+        private final long submittedAt;
+        private long position;
+
+        private Task(GameHistoryRecord record, GameHistoryRepository.RecordConsumer callback, long submittedAt) {
+            this.record = record;
+            this.callback = callback;
+            this.submittedAt = submittedAt;
+        }
+    }
+}
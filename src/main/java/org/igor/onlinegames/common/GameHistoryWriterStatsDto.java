@@ -0,0 +1,21 @@
+package org.igor.onlinegames.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class GameHistoryWriterStatsDto {
+    private int queueSize;
+    private int queueCapacity;
+    private long written;
+    private long failed;
+    // not queued because the queue was full
+    private long dropped;
+    private long batches;
+    // from submit to sync
+    private double avgLatencyMillis;
+    private double maxLatencyMillis;
+}
@@ -1,79 +1,306 @@
 package org.igor.onlinegames.common;
 
-import lombok.extern.slf4j.Slf4j;
+import lombok.AllArgsConstructor;
+import lombok.Data;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 
-@Slf4j
+/**
+ * Counts how many times each player of a group had each position in the order of moves, so that positions are
+ * distributed equally between players who play together repeatedly. Groups are striped by the set of players:
+ * games of different groups rarely contend for the same lock. Each stripe keeps its groups in LRU order and drops
+ * groups which exceed its share of maxGroups or haven't played for ttl.
+ * <p>
+ * Every selected order gets a sequence number and is passed to the order listener, which allows to persist counts
+ * as a snapshot of groups plus a log of orders played after it (see {@link GamePlayersCountsStore}).
+ */
 public class GamePlayersCounts {
-    private final Random rnd = new Random();
-    private Map<Set<UUID>,Map<UUID,int[]>> counts = new HashMap<>();
-
-    public synchronized List<UUID> getAndUpdateOrderOfPlayers(Collection<UUID> userIds) {
-        final HashSet<UUID> uniqueUserIds = new HashSet<>(userIds);
-        final ArrayList<UUID> result = new ArrayList<>();
-        for (int orderNumber = 0; orderNumber < userIds.size(); orderNumber++) {
-            result.add(definePlayerForOrder(orderNumber, uniqueUserIds, result));
+    private static final int NUM_OF_STRIPES = 16;
+    private static final int DEFAULT_MAX_GROUPS = 100_000;
+    private static final Duration DEFAULT_TTL = Duration.ofDays(30);
+
+    private final Stripe[] stripes = new Stripe[NUM_OF_STRIPES];
+    private final int maxGroupsPerStripe;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final AtomicLong lastSeq = new AtomicLong();
+    private volatile Consumer<PlayedOrder> orderListener;
+
+    public GamePlayersCounts() {
+        this(DEFAULT_MAX_GROUPS, DEFAULT_TTL);
+    }
+
+    public GamePlayersCounts(int maxGroups, Duration ttl) {
+        this(maxGroups, ttl, System::currentTimeMillis);
+    }
+
+    GamePlayersCounts(int maxGroups, Duration ttl, LongSupplier clock) {
+        for (int i = 0; i < NUM_OF_STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.maxGroupsPerStripe = Math.max(1, maxGroups / NUM_OF_STRIPES);
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+    }
+
+    public List<UUID> getAndUpdateOrderOfPlayers(Collection<UUID> userIds) {
+        final Set<UUID> uniqueUserIds = new HashSet<>(userIds);
+        final Stripe stripe = getStripe(uniqueUserIds);
+        synchronized (stripe) {
+            final long now = clock.getAsLong();
+            Group group = stripe.groups.get(uniqueUserIds);
+            if (group == null) {
+                group = new Group(uniqueUserIds);
+                stripe.groups.put(uniqueUserIds, group);
+            }
+            group.lastPlayedAt = now;
+            group.lastSeq = lastSeq.incrementAndGet();
+            final List<UUID> result = group.getAndUpdateOrderOfPlayers();
+            stripe.evictStaleGroups(now);
+            final Consumer<PlayedOrder> listener = orderListener;
+            if (listener != null) {
+                listener.accept(new PlayedOrder(group.lastSeq, now, result.toArray(new UUID[0])));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * @param orderListener is called under a lock on the group, so it must not block
+     */
+    public void setOrderListener(Consumer<PlayedOrder> orderListener) {
+        this.orderListener = orderListener;
+    }
+
+    public List<GroupCounts> getGroupCounts() {
+        final List<GroupCounts> groupCounts = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (Group group : stripe.groups.values()) {
+                    final int[][] counts = new int[group.counts.length][];
+                    for (int i = 0; i < counts.length; i++) {
+                        counts[i] = group.counts[i].clone();
+                    }
+                    groupCounts.add(new GroupCounts(group.userIds.clone(), counts, group.lastPlayedAt, group.lastSeq));
+                }
+            }
+        }
+        return groupCounts;
+    }
+
+    public void restore(GroupCounts groupCounts) {
+        final Set<UUID> uniqueUserIds = new HashSet<>(Arrays.asList(groupCounts.getUserIds()));
+        final Stripe stripe = getStripe(uniqueUserIds);
+        synchronized (stripe) {
+            final Group group = new Group(groupCounts.getUserIds(), groupCounts.getCounts());
+            group.lastPlayedAt = groupCounts.getLastPlayedAt();
+            group.lastSeq = groupCounts.getLastSeq();
+            stripe.groups.put(uniqueUserIds, group);
+            lastSeq.accumulateAndGet(group.lastSeq, Math::max);
+            stripe.evictStaleGroups(clock.getAsLong());
+        }
+    }
+
+    /**
+     * Applies an order unless it is already included into counts of its group.
+     */
+    public void replay(PlayedOrder playedOrder) {
+        final Set<UUID> uniqueUserIds = new HashSet<>(Arrays.asList(playedOrder.getOrder()));
+        final Stripe stripe = getStripe(uniqueUserIds);
+        synchronized (stripe) {
+            Group group = stripe.groups.get(uniqueUserIds);
+            if (group == null) {
+                group = new Group(uniqueUserIds);
+                stripe.groups.put(uniqueUserIds, group);
+            } else if (group.lastSeq >= playedOrder.getSeq()) {
+                return;
+            }
+            group.apply(playedOrder.getOrder());
+            group.lastPlayedAt = Math.max(group.lastPlayedAt, playedOrder.getPlayedAt());
+            group.lastSeq = playedOrder.getSeq();
+            lastSeq.accumulateAndGet(group.lastSeq, Math::max);
+            stripe.evictStaleGroups(clock.getAsLong());
         }
-        updateCounts(result);
-        return result;
     }
 
     protected Map<Set<UUID>, Map<UUID, int[]>> getCounts() {
+        final Map<Set<UUID>, Map<UUID, int[]>> counts = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (Map.Entry<Set<UUID>, Group> entry : stripe.groups.entrySet()) {
+                    counts.put(entry.getKey(), entry.getValue().toMap());
+                }
+            }
+        }
         return counts;
     }
 
-    private void updateCounts(List<UUID> orderedUserIds) {
-        final Set<UUID> uniqueUserIds = new HashSet<>(orderedUserIds);
-        final Map<UUID, int[]> existingCounts = counts.get(uniqueUserIds);
-        if (existingCounts == null) {
-            Map<UUID,int[]> newCounts = new HashMap<>();
-            for (int orderNumber = 0; orderNumber < orderedUserIds.size(); orderNumber++) {
-                final UUID userId = orderedUserIds.get(orderNumber);
-                newCounts.put(userId, new int[orderedUserIds.size()]);
-                newCounts.get(userId)[orderNumber] = 1;
-            }
-            counts.put(uniqueUserIds, newCounts);
-        } else {
-            for (int orderNumber = 0; orderNumber < orderedUserIds.size(); orderNumber++) {
-                final UUID userId = orderedUserIds.get(orderNumber);
-                existingCounts.get(userId)[orderNumber] += 1;
+    private Stripe getStripe(Set<UUID> userIds) {
+        final int hash = userIds.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (NUM_OF_STRIPES - 1)];
+    }
+
+    private class Stripe {
+        private final LinkedHashMap<Set<UUID>, Group> groups = new LinkedHashMap<>(16, 0.75f, true);
+
+        private void evictStaleGroups(long now) {
+            final Iterator<Group> leastRecentlyPlayed = groups.values().iterator();
+            while (leastRecentlyPlayed.hasNext()) {
+                final Group group = leastRecentlyPlayed.next();
+                if (groups.size() > maxGroupsPerStripe || now - group.lastPlayedAt > ttlMillis) {
+                    leastRecentlyPlayed.remove();
+                } else {
+                    break;
+                }
             }
         }
     }
 
-    private UUID definePlayerForOrder(int orderNumber, HashSet<UUID> uniqueUserIds, List<UUID> alreadySelectedUsers) {
-        if (alreadySelectedUsers.size() != orderNumber) {
-            log.error("alreadySelectedUsers.size() != orderNumber");
+    private static class Group {
+        private final UUID[] userIds;
+        // counts[i][orderNumber] is how many times userIds[i] had orderNumber
+        private final int[][] counts;
+        private long lastPlayedAt;
+        private long lastSeq;
+
+        private Group(Set<UUID> userIds) {
+            this.userIds = userIds.toArray(new UUID[0]);
+            this.counts = new int[this.userIds.length][this.userIds.length];
+        }
+
+        private Group(UUID[] userIds, int[][] counts) {
+            this.userIds = userIds;
+            this.counts = counts;
+        }
+
+        private void apply(UUID[] order) {
+            for (int orderNumber = 0; orderNumber < order.length; orderNumber++) {
+                for (int i = 0; i < userIds.length; i++) {
+                    if (userIds[i].equals(order[orderNumber])) {
+                        counts[i][orderNumber]++;
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Selects the order with the least sum of counts of the positions taken by the players (the assignment
+         * problem, solved by the Hungarian algorithm in O(n^3)). If counts differ by at most one, there is always an
+         * order which uses only the least counts, so they keep differing by at most one. Players and positions are
+         * shuffled to break ties randomly.
+         */
+        private List<UUID> getAndUpdateOrderOfPlayers() {
+            final int n = userIds.length;
+            final int[] players = shuffledIndexes(n);
+            final int[] positions = shuffledIndexes(n);
+            // 1-based arrays of the algorithm: potentials of players and positions, the player assigned to a position
+            final int[] playerPotentials = new int[n + 1];
+            final int[] positionPotentials = new int[n + 1];
+            final int[] assignedPlayers = new int[n + 1];
+            final int[] way = new int[n + 1];
+            final int[] minReducedCosts = new int[n + 1];
+            final boolean[] used = new boolean[n + 1];
+            for (int player = 1; player <= n; player++) {
+                assignedPlayers[0] = player;
+                int position = 0;
+                Arrays.fill(minReducedCosts, Integer.MAX_VALUE);
+                Arrays.fill(used, false);
+                do {
+                    used[position] = true;
+                    final int currPlayer = assignedPlayers[position];
+                    int delta = Integer.MAX_VALUE;
+                    int nextPosition = 0;
+                    for (int j = 1; j <= n; j++) {
+                        if (!used[j]) {
+                            final int reducedCost = counts[players[currPlayer - 1]][positions[j - 1]]
+                                    - playerPotentials[currPlayer] - positionPotentials[j];
+                            if (reducedCost < minReducedCosts[j]) {
+                                minReducedCosts[j] = reducedCost;
+                                way[j] = position;
+                            }
+                            if (minReducedCosts[j] < delta) {
+                                delta = minReducedCosts[j];
+                                nextPosition = j;
+                            }
+                        }
+                    }
+                    for (int j = 0; j <= n; j++) {
+                        if (used[j]) {
+                            playerPotentials[assignedPlayers[j]] += delta;
+                            positionPotentials[j] -= delta;
+                        } else {
+                            minReducedCosts[j] -= delta;
+                        }
+                    }
+                    position = nextPosition;
+                } while (assignedPlayers[position] != 0);
+                do {
+                    final int prevPosition = way[position];
+                    assignedPlayers[position] = assignedPlayers[prevPosition];
+                    position = prevPosition;
+                } while (position != 0);
+            }
+            final UUID[] order = new UUID[n];
+            for (int j = 1; j <= n; j++) {
+                final int player = players[assignedPlayers[j] - 1];
+                final int orderNumber = positions[j - 1];
+                counts[player][orderNumber]++;
+                order[orderNumber] = userIds[player];
+            }
+            return Arrays.asList(order);
+        }
+
+        private static int[] shuffledIndexes(int n) {
+            final ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            final int[] indexes = new int[n];
+            for (int i = 0; i < n; i++) {
+                final int j = rnd.nextInt(i + 1);
+                indexes[i] = indexes[j];
+                indexes[j] = i;
+            }
+            return indexes;
         }
-        final Set<UUID> availableUserIds = uniqueUserIds.stream()
-                .filter(userId -> !alreadySelectedUsers.contains(userId))
-                .collect(Collectors.toSet());
-        final Map<UUID, int[]> existingCounts = counts.get(uniqueUserIds);
-        if (existingCounts == null) {
-            return new ArrayList<>(availableUserIds).get(rnd.nextInt(availableUserIds.size()));
-        } else {
-            final Map<UUID, Integer> countsForOrder = existingCounts.entrySet().stream()
-                    .filter(userIdToCounts -> availableUserIds.contains(userIdToCounts.getKey()))
-                    .collect(Collectors.toMap(
-                            userIdToCounts -> userIdToCounts.getKey(),
-                            userIdToCounts -> userIdToCounts.getValue()[orderNumber]
-                    ));
-            final Integer minCnt = countsForOrder.values().stream().min(Integer::compareTo).get();
-            final List<UUID> availableUserIdsWithMinCnt = countsForOrder.entrySet().stream()
-                    .filter(userIdAndCount -> minCnt.equals(userIdAndCount.getValue()))
-                    .map(userIdAndCount -> userIdAndCount.getKey())
-                    .collect(Collectors.toList());
-            return availableUserIdsWithMinCnt.get(rnd.nextInt(availableUserIdsWithMinCnt.size()));
+
+        private Map<UUID, int[]> toMap() {
+            final Map<UUID, int[]> map = new HashMap<>();
+            for (int i = 0; i < userIds.length; i++) {
+                map.put(userIds[i], counts[i].clone());
+            }
+            return map;
         }
     }
+
+    @Data
+    @AllArgsConstructor
+    public static class GroupCounts {
+        private UUID[] userIds;
+        // counts[i][orderNumber] is how many times userIds[i] had orderNumber
+        private int[][] counts;
+        private long lastPlayedAt;
+        private long lastSeq;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class PlayedOrder {
+        private long seq;
+        private long playedAt;
+        private UUID[] order;
+    }
 }
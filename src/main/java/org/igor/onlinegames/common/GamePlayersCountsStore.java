@@ -0,0 +1,222 @@
+package org.igor.onlinegames.common;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists GamePlayersCounts in a directory as a snapshot of all groups ({name}.snapshot) and a log of orders played
+ * after the snapshot was started ({name}.log). Played orders are only queued on the game's thread; the log is
+ * appended and the snapshot is rewritten on a scheduler. Orders which got into both the snapshot and the log are
+ * applied once because each group remembers the sequence number of its last order.
+ * <p>
+ * Both files are binary. The snapshot: MAGIC, VERSION, the number of groups and for each group the number of
+ * players n, lastPlayedAt, lastSeq, n user ids and n*n counts. A log record: seq, playedAt, n and n user ids in the
+ * played order. A record torn by a crash is ignored. The snapshot is synced before it replaces the previous one, so
+ * the log is never truncated ahead of a durable snapshot; a damaged snapshot is reported and skipped anyway.
+ */
+@Slf4j
+public class GamePlayersCountsStore {
+    private static final int MAGIC = 0x4F475043;
+    private static final int VERSION = 1;
+
+    private final GamePlayersCounts counts;
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final ConcurrentLinkedQueue<GamePlayersCounts.PlayedOrder> pendingOrders = new ConcurrentLinkedQueue<>();
+    private DataOutputStream logOut;
+
+    public GamePlayersCountsStore(GamePlayersCounts counts, Path dir, String name) {
+        this.counts = counts;
+        this.snapshotFile = dir.resolve(name + ".snapshot");
+        this.logFile = dir.resolve(name + ".log");
+    }
+
+    /**
+     * Loads the snapshot and the log into counts, writes a new snapshot and starts collecting played orders.
+     */
+    public synchronized void load() throws IOException {
+        Files.createDirectories(snapshotFile.getParent());
+        if (Files.exists(snapshotFile)) {
+            readSnapshot();
+        }
+        if (Files.exists(logFile)) {
+            readLog();
+        }
+        counts.setOrderListener(pendingOrders::add);
+        writeSnapshot();
+    }
+
+    public void start(ScheduledExecutorService scheduledExecutorService, Duration flushInterval,
+                      Duration snapshotInterval) {
+        scheduledExecutorService.scheduleWithFixedDelay(
+                () -> runSafely(this::flush),
+                flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS
+        );
+        scheduledExecutorService.scheduleWithFixedDelay(
+                () -> runSafely(this::writeSnapshot),
+                snapshotInterval.toMillis(), snapshotInterval.toMillis(), TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Appends queued orders to the log.
+     */
+    public synchronized void flush() throws IOException {
+        if (logOut == null) {
+            // the last snapshot failed, orders are kept in the queue until the next one
+            return;
+        }
+        GamePlayersCounts.PlayedOrder playedOrder;
+        boolean written = false;
+        while ((playedOrder = pendingOrders.poll()) != null) {
+            logOut.writeLong(playedOrder.getSeq());
+            logOut.writeLong(playedOrder.getPlayedAt());
+            logOut.writeByte(playedOrder.getOrder().length);
+            for (UUID userId : playedOrder.getOrder()) {
+                writeUuid(logOut, userId);
+            }
+            written = true;
+        }
+        if (written) {
+            logOut.flush();
+        }
+    }
+
+    /**
+     * Replaces the snapshot and starts a new log. Orders queued while the snapshot is being written go to the new
+     * log even if the snapshot already includes them.
+     */
+    public synchronized void writeSnapshot() throws IOException {
+        if (logOut != null) {
+            flush();
+            logOut.close();
+            logOut = null;
+        }
+        final List<GamePlayersCounts.GroupCounts> groups = counts.getGroupCounts();
+        final Path tmpFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(groups.size());
+            for (GamePlayersCounts.GroupCounts group : groups) {
+                out.writeByte(group.getUserIds().length);
+                out.writeLong(group.getLastPlayedAt());
+                out.writeLong(group.getLastSeq());
+                for (UUID userId : group.getUserIds()) {
+                    writeUuid(out, userId);
+                }
+                for (int[] playerCounts : group.getCounts()) {
+                    for (int count : playerCounts) {
+                        out.writeInt(count);
+                    }
+                }
+            }
+        }
+        try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tmpFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                logFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE
+        )));
+    }
+
+    public synchronized void close() throws IOException {
+        counts.setOrderListener(null);
+        try {
+            writeSnapshot();
+        } finally {
+            if (logOut != null) {
+                logOut.close();
+                logOut = null;
+            }
+        }
+    }
+
+    private void readSnapshot() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.error("Unsupported format of {}, it is ignored.", snapshotFile);
+                return;
+            }
+            final int numOfGroups = in.readInt();
+            for (int g = 0; g < numOfGroups; g++) {
+                final int numOfPlayers = in.readUnsignedByte();
+                final long lastPlayedAt = in.readLong();
+                final long lastSeq = in.readLong();
+                final UUID[] userIds = new UUID[numOfPlayers];
+                for (int i = 0; i < numOfPlayers; i++) {
+                    userIds[i] = readUuid(in);
+                }
+                final int[][] groupCounts = new int[numOfPlayers][numOfPlayers];
+                for (int i = 0; i < numOfPlayers; i++) {
+                    for (int j = 0; j < numOfPlayers; j++) {
+                        groupCounts[i][j] = in.readInt();
+                    }
+                }
+                counts.restore(new GamePlayersCounts.GroupCounts(userIds, groupCounts, lastPlayedAt, lastSeq));
+            }
+        } catch (EOFException ex) {
+            log.error("{} is incomplete, the rest of it is ignored.", snapshotFile);
+        }
+    }
+
+    private void readLog() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logFile)))) {
+            while (true) {
+                final long seq;
+                try {
+                    seq = in.readLong();
+                } catch (EOFException ex) {
+                    return;
+                }
+                final long playedAt = in.readLong();
+                final UUID[] order = new UUID[in.readUnsignedByte()];
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = readUuid(in);
+                }
+                counts.replay(new GamePlayersCounts.PlayedOrder(seq, playedAt, order));
+            }
+        } catch (EOFException ex) {
+            log.warn("The last record of {} is incomplete, it is ignored.", logFile);
+        }
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static void runSafely(IoAction action) {
+        try {
+            action.run();
+        } catch (Exception ex) {
+            log.error(ex.getMessage(), ex);
+        }
+    }
+
+    private interface IoAction {
+        void run() throws IOException;
+    }
+}
@@ -4,6 +4,9 @@ import org.igor.onlinegames.exceptions.OnlinegamesException;
 import org.igor.onlinegames.model.UserSessionData;
 import org.springframework.web.socket.WebSocketSession;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -13,18 +16,35 @@ import java.util.stream.Collectors;
 
 public class OnlinegamesUtils {
     private static final String STATE_ID = "STATE_ID";
+    private static final String MAILBOX_STATE_ID = "MAILBOX_STATE_ID";
     public static final String USER_DATA = "USER_DATA";
 
     public static Optional<UUID> extractDestinationStateId(WebSocketSession session) {
         return Optional.ofNullable((UUID) session.getAttributes().get(STATE_ID));
     }
 
+    public static Optional<UUID> extractMailboxStateId(WebSocketSession session) {
+        return Optional.ofNullable((UUID) session.getAttributes().get(MAILBOX_STATE_ID));
+    }
+
     public static Optional<UserSessionData> extractUserSessionData(WebSocketSession session) {
         return Optional.ofNullable((UserSessionData) session.getAttributes().get(USER_DATA));
     }
 
     public static void setDestinationStateId(WebSocketSession session, UUID destinationStateId) {
-        session.getAttributes().put(STATE_ID, destinationStateId);
+        if (destinationStateId == null) {
+            session.getAttributes().remove(STATE_ID);
+        } else {
+            session.getAttributes().put(STATE_ID, destinationStateId);
+        }
+    }
+
+    public static void setMailboxStateId(WebSocketSession session, UUID mailboxStateId) {
+        if (mailboxStateId == null) {
+            session.getAttributes().remove(MAILBOX_STATE_ID);
+        } else {
+            session.getAttributes().put(MAILBOX_STATE_ID, mailboxStateId);
+        }
     }
 
     public static void setUserSessionData(WebSocketSession session, UserSessionData userSessionData) {
@@ -292,4 +312,18 @@ public class OnlinegamesUtils {
         newContent.append(content, prevEnd, content.length());
         return newContent.toString();
     }
+
+    public static String sha256Hex(String str) {
+        final byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(str.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new OnlinegamesException(ex);
+        }
+        final StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
 }
@@ -0,0 +1,23 @@
+package org.igor.onlinegames.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Keeps data as is, the archive only compresses it.
+ */
+public class RawGameHistoryArchiveCodec implements GameHistoryArchiveCodec {
+    @Override
+    public void writeData(GameHistoryRecord record, DataOutput out) throws IOException {
+        GameHistoryArchiveCodec.writeVarLong(out, record.getData().length);
+        out.write(record.getData());
+    }
+
+    @Override
+    public byte[] readData(GameHistoryRecord record, DataInput in) throws IOException {
+        final byte[] data = new byte[(int) GameHistoryArchiveCodec.readVarLong(in)];
+        in.readFully(data);
+        return data;
+    }
+}
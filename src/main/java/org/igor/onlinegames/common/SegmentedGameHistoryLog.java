@@ -0,0 +1,557 @@
+package org.igor.onlinegames.common;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link GameHistoryRepository} which appends records to segments {name}-{yyyy_MM_dd}-{seq}.log in a directory.
+ * A new segment is started on the first append of a UTC day and when the current one would exceed maxSegmentBytes.
+ * <p>
+ * A record is the length of its body, CRC32 of the body and the body: startedAt (epoch millis), gameId, the number of
+ * users, user ids and the data. Next to each segment there is an index {name}-{yyyy_MM_dd}-{seq}.idx with startedAt
+ * and the offset of every record, so a time range is read without touching records out of it. On open the last
+ * segment is scanned: a record torn by a crash is cut off and the index is rewritten. A record which doesn't match
+ * its CRC is reported by an IOException when it is read.
+ * <p>
+ * Segments of past days may be archived: records of a segment are rewritten into {name}-{yyyy_MM_dd}-{seq}.arc (see
+ * {@link GameHistoryArchive}), data of records is encoded by the archiveCodec, and the .log and .idx files are
+ * deleted. Positions stay valid and archived records are read the same way, an archive is decoded as a whole and
+ * kept while there is enough memory.
+ * <p>
+ * A position is the sequence number of the segment shifted left by 40 bits plus the offset of the record.
+ */
+@Slf4j
+public class SegmentedGameHistoryLog implements GameHistoryRepository {
+    private static final int OFFSET_BITS = 40;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+    private static final int MAX_SEGMENT_SEQ = (1 << (Long.SIZE - OFFSET_BITS - 1)) - 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int MIN_BODY_BYTES = 8 + 16 + 1;
+    private static final int INDEX_ENTRY_BYTES = 16;
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("yyyy_MM_dd");
+
+    private final Path dir;
+    private final String name;
+    private final long maxSegmentBytes;
+    private final GameHistoryArchiveCodec archiveCodec;
+    private final LongSupplier clock;
+    private final Pattern segmentFileNamePattern;
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private Segment current;
+    private FileChannel logChannel;
+    private FileChannel indexChannel;
+
+    public SegmentedGameHistoryLog(Path dir, String name, long maxSegmentBytes) {
+        this(dir, name, maxSegmentBytes, new RawGameHistoryArchiveCodec());
+    }
+
+    public SegmentedGameHistoryLog(Path dir, String name, long maxSegmentBytes,
+                                   GameHistoryArchiveCodec archiveCodec) {
+        this(dir, name, maxSegmentBytes, archiveCodec, System::currentTimeMillis);
+    }
+
+    SegmentedGameHistoryLog(Path dir, String name, long maxSegmentBytes, GameHistoryArchiveCodec archiveCodec,
+                            LongSupplier clock) {
+        this.dir = dir;
+        this.name = name;
+        this.maxSegmentBytes = Math.min(maxSegmentBytes, OFFSET_MASK);
+        this.archiveCodec = archiveCodec;
+        this.clock = clock;
+        this.segmentFileNamePattern = Pattern.compile(
+                Pattern.quote(name) + "-(\\d{4}_\\d{2}_\\d{2})-(\\d{6,})\\.(log|arc)"
+        );
+    }
+
+    /**
+     * Loads indexes of existing segments and recovers the last one.
+     */
+    public synchronized void open() throws IOException {
+        Files.createDirectories(dir);
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                final Matcher matcher = segmentFileNamePattern.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    final Segment segment = segments.computeIfAbsent(
+                            Integer.parseInt(matcher.group(2)), seq -> new Segment(seq, matcher.group(1))
+                    );
+                    if (matcher.group(3).equals("arc")) {
+                        segment.archived = true;
+                    }
+                } else if (file.getFileName().toString().startsWith(name + "-")
+                        && file.getFileName().toString().endsWith(".arc.tmp")) {
+                    // archiving was interrupted, the segment is still in place
+                    Files.delete(file);
+                }
+            }
+        }
+        for (Segment segment : segments.values()) {
+            if (segment.archived) {
+                // archiving was interrupted after the archive had been written
+                Files.deleteIfExists(segment.logFile);
+                Files.deleteIfExists(segment.indexFile);
+                loadArchiveIndex(segment);
+            } else if (segment == segments.lastEntry().getValue() || !Files.exists(segment.indexFile)) {
+                recover(segment);
+            } else {
+                loadIndex(segment);
+            }
+        }
+        if (!segments.isEmpty() && !segments.lastEntry().getValue().archived) {
+            openForAppend(segments.lastEntry().getValue());
+        }
+    }
+
+    /**
+     * Archives every segment of a day before the day of the given time (UTC). The segment being appended to is
+     * archived too if it is of such a day, the next append starts a new segment then.
+     *
+     * @return the number of archived segments
+     */
+    public int archiveSegments(Instant before) throws IOException {
+        final String beforeDay = DAY_FORMATTER.format(before.atZone(ZoneOffset.UTC));
+        final List<Segment> segmentsToArchive = new ArrayList<>();
+        synchronized (this) {
+            if (current != null && current.day.compareTo(beforeDay) < 0) {
+                closeChannels();
+            }
+            for (Segment segment : segments.values()) {
+                if (!segment.archived && segment != current && segment.day.compareTo(beforeDay) < 0) {
+                    segmentsToArchive.add(segment);
+                }
+            }
+        }
+        for (Segment segment : segmentsToArchive) {
+            archive(segment);
+        }
+        return segmentsToArchive.size();
+    }
+
+    /**
+     * Archives segments older than archiveAfter every interval.
+     */
+    public void startArchiving(ScheduledExecutorService scheduledExecutorService, Duration archiveAfter,
+                               Duration interval) {
+        scheduledExecutorService.scheduleWithFixedDelay(
+                () -> {
+                    try {
+                        final int numOfArchived = archiveSegments(
+                                Instant.ofEpochMilli(clock.getAsLong()).minus(archiveAfter)
+                        );
+                        if (numOfArchived > 0) {
+                            log.info("Archived {} segments of {} in {}.", numOfArchived, name, dir);
+                        }
+                    } catch (Exception ex) {
+                        log.error(ex.getMessage(), ex);
+                    }
+                },
+                interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS
+        );
+    }
+
+    @Override
+    public synchronized long append(GameHistoryRecord record) throws IOException {
+        final ByteBuffer buffer = encode(record);
+        final String today = DAY_FORMATTER.format(Instant.ofEpochMilli(clock.getAsLong()).atZone(ZoneOffset.UTC));
+        if (current == null || !current.day.equals(today)
+                || current.size > 0 && current.size + buffer.remaining() > maxSegmentBytes) {
+            roll(today);
+        }
+        final long offset = current.size;
+        final long startedAt = record.getStartedAt().toEpochMilli();
+        final ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_BYTES).putLong(startedAt).putLong(offset);
+        indexEntry.flip();
+        try {
+            writeFully(logChannel, buffer, offset);
+            writeFully(indexChannel, indexEntry, (long) current.numOfRecords * INDEX_ENTRY_BYTES);
+        } catch (IOException ex) {
+            // don't leave a partial record in front of the next one
+            logChannel.truncate(offset);
+            indexChannel.truncate((long) current.numOfRecords * INDEX_ENTRY_BYTES);
+            throw ex;
+        }
+        current.add(startedAt, buffer.limit());
+        return ((long) current.seq << OFFSET_BITS) | offset;
+    }
+
+    @Override
+    public synchronized void sync() throws IOException {
+        if (current != null) {
+            logChannel.force(false);
+            indexChannel.force(false);
+        }
+    }
+
+    @Override
+    public GameHistoryRecord read(long position) throws IOException {
+        final Segment segment;
+        synchronized (this) {
+            segment = segments.get((int) (position >>> OFFSET_BITS));
+        }
+        if (segment == null) {
+            throw new IOException("There is no segment for position " + position + " in " + dir);
+        }
+        final long offset = position & OFFSET_MASK;
+        if (!segment.archived) {
+            try (FileChannel channel = FileChannel.open(segment.logFile, StandardOpenOption.READ)) {
+                return readRecord(channel, segment, offset);
+            } catch (NoSuchFileException ex) {
+                // the segment has just been archived
+            }
+        }
+        final GameHistoryArchive archive = getArchive(segment);
+        final int recordNumber = archive.indexOf(offset);
+        if (recordNumber < 0) {
+            throw new IOException("There is no record at offset " + offset + " of " + segment.archiveFile);
+        }
+        return copy(archive.records.get(recordNumber));
+    }
+
+    @Override
+    public void readRange(Instant from, Instant to, RecordConsumer consumer) throws IOException {
+        final long fromMillis = toEpochMilli(from);
+        final long toMillis = toEpochMilli(to);
+        final List<Segment> segmentsToRead = new ArrayList<>();
+        final List<Integer> numsOfRecords = new ArrayList<>();
+        synchronized (this) {
+            for (Segment segment : segments.values()) {
+                if (segment.numOfRecords > 0
+                        && segment.maxStartedAt >= fromMillis && segment.minStartedAt < toMillis) {
+                    segmentsToRead.add(segment);
+                    numsOfRecords.add(segment.numOfRecords);
+                }
+            }
+        }
+        for (int i = 0; i < segmentsToRead.size(); i++) {
+            final Segment segment = segmentsToRead.get(i);
+            if (segment.archived || !readSegmentRange(segment, numsOfRecords.get(i), fromMillis, toMillis, consumer)) {
+                final GameHistoryArchive archive = getArchive(segment);
+                for (int r = 0; r < archive.startedAts.length; r++) {
+                    if (fromMillis <= archive.startedAts[r] && archive.startedAts[r] < toMillis) {
+                        consumer.accept(
+                                ((long) segment.seq << OFFSET_BITS) | archive.offsets[r],
+                                copy(archive.records.get(r))
+                        );
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeChannels();
+    }
+
+    /**
+     * @return false if the segment has been archived and no records were read
+     */
+    private boolean readSegmentRange(Segment segment, int numOfRecords, long fromMillis, long toMillis,
+                                     RecordConsumer consumer) throws IOException {
+        try (
+                DataInputStream index = new DataInputStream(new BufferedInputStream(
+                        Files.newInputStream(segment.indexFile)
+                ));
+                FileChannel channel = FileChannel.open(segment.logFile, StandardOpenOption.READ)
+        ) {
+            for (int r = 0; r < numOfRecords; r++) {
+                final long startedAt = index.readLong();
+                final long offset = index.readLong();
+                if (fromMillis <= startedAt && startedAt < toMillis) {
+                    consumer.accept(
+                            ((long) segment.seq << OFFSET_BITS) | offset,
+                            readRecord(channel, segment, offset)
+                    );
+                }
+            }
+            return true;
+        } catch (NoSuchFileException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the archive next to the segment, then deletes the segment. The segment must not be appended to.
+     */
+    private void archive(Segment segment) throws IOException {
+        final long[] offsets = new long[segment.numOfRecords];
+        final List<GameHistoryRecord> records = new ArrayList<>(segment.numOfRecords);
+        try (
+                DataInputStream index = new DataInputStream(new BufferedInputStream(
+                        Files.newInputStream(segment.indexFile)
+                ));
+                FileChannel channel = FileChannel.open(segment.logFile, StandardOpenOption.READ)
+        ) {
+            for (int r = 0; r < offsets.length; r++) {
+                index.readLong();
+                offsets[r] = index.readLong();
+                records.add(readRecord(channel, segment, offsets[r]));
+            }
+        }
+        final Path tmpFile = segment.archiveFile.resolveSibling(segment.archiveFile.getFileName() + ".tmp");
+        GameHistoryArchive.write(tmpFile, offsets, records, archiveCodec);
+        try (FileChannel channel = FileChannel.open(tmpFile, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tmpFile, segment.archiveFile, StandardCopyOption.ATOMIC_MOVE);
+        segment.archived = true;
+        Files.delete(segment.logFile);
+        Files.delete(segment.indexFile);
+    }
+
+    private GameHistoryArchive getArchive(Segment segment) throws IOException {
+        GameHistoryArchive archive = segment.archive.get();
+        if (archive == null) {
+            archive = GameHistoryArchive.read(segment.archiveFile, archiveCodec);
+            segment.archive = new SoftReference<>(archive);
+        }
+        return archive;
+    }
+
+    private void roll(String day) throws IOException {
+        closeChannels();
+        final int seq = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        if (seq > MAX_SEGMENT_SEQ) {
+            throw new IOException("The number of segments in " + dir + " exceeded " + MAX_SEGMENT_SEQ);
+        }
+        final Segment segment = new Segment(seq, day);
+        segments.put(seq, segment);
+        openForAppend(segment);
+    }
+
+    private void openForAppend(Segment segment) throws IOException {
+        logChannel = FileChannel.open(segment.logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        indexChannel = FileChannel.open(segment.indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        current = segment;
+    }
+
+    private void closeChannels() throws IOException {
+        if (current != null) {
+            logChannel.force(false);
+            logChannel.close();
+            indexChannel.force(false);
+            indexChannel.close();
+            current = null;
+        }
+    }
+
+    private void loadIndex(Segment segment) throws IOException {
+        final long numOfRecords = Files.size(segment.indexFile) / INDEX_ENTRY_BYTES;
+        try (DataInputStream index = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(segment.indexFile)
+        ))) {
+            for (long r = 0; r < numOfRecords; r++) {
+                final long startedAt = index.readLong();
+                index.readLong();
+                segment.add(startedAt, 0);
+            }
+        }
+        segment.size = Files.size(segment.logFile);
+    }
+
+    private void loadArchiveIndex(Segment segment) throws IOException {
+        for (long startedAt : GameHistoryArchive.readIndex(segment.archiveFile).startedAts) {
+            segment.add(startedAt, 0);
+        }
+    }
+
+    /**
+     * Rebuilds the index of the segment from its records and cuts off the segment at the first damaged record.
+     */
+    private void recover(Segment segment) throws IOException {
+        try (
+                FileChannel channel = FileChannel.open(
+                        segment.logFile, StandardOpenOption.READ, StandardOpenOption.WRITE
+                );
+                DataOutputStream index = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(segment.indexFile)
+                ))
+        ) {
+            final long logSize = channel.size();
+            long offset = 0;
+            while (offset < logSize) {
+                final ByteBuffer body = readBody(channel, offset, logSize);
+                if (body == null) {
+                    log.warn("{} is damaged at offset {}, the rest of it ({} bytes) is dropped.",
+                            segment.logFile, offset, logSize - offset);
+                    channel.truncate(offset);
+                    break;
+                }
+                final long startedAt = body.getLong(0);
+                index.writeLong(startedAt);
+                index.writeLong(offset);
+                segment.add(startedAt, HEADER_BYTES + body.limit());
+                offset += HEADER_BYTES + body.limit();
+            }
+        }
+    }
+
+    private GameHistoryRecord readRecord(FileChannel channel, Segment segment, long offset) throws IOException {
+        final ByteBuffer body = readBody(channel, offset, channel.size());
+        if (body == null) {
+            throw new IOException("The record at offset " + offset + " of " + segment.logFile + " is damaged.");
+        }
+        return decode(body);
+    }
+
+    /**
+     * @return the body of the record or null if the record is incomplete or doesn't match its CRC
+     */
+    private static ByteBuffer readBody(FileChannel channel, long offset, long limit) throws IOException {
+        if (offset + HEADER_BYTES > limit) {
+            return null;
+        }
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, header, offset);
+        final int length = header.getInt(0);
+        final int crc = header.getInt(4);
+        if (length < MIN_BODY_BYTES || offset + HEADER_BYTES + length > limit) {
+            return null;
+        }
+        final ByteBuffer body = ByteBuffer.allocate(length);
+        readFully(channel, body, offset + HEADER_BYTES);
+        if (crc32(body.array(), 0, length) != crc) {
+            return null;
+        }
+        body.flip();
+        return body;
+    }
+
+    private static GameHistoryRecord copy(GameHistoryRecord record) {
+        return new GameHistoryRecord(
+                record.getStartedAt(), record.getGameId(), new ArrayList<>(record.getUserIds()), record.getData()
+        );
+    }
+
+    private static ByteBuffer encode(GameHistoryRecord record) {
+        final List<UUID> userIds = record.getUserIds();
+        if (userIds.size() > 255) {
+            throw new IllegalArgumentException("Too many users in game " + record.getGameId());
+        }
+        final int length = MIN_BODY_BYTES + 16 * userIds.size() + record.getData().length;
+        final ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + length);
+        buffer.putInt(length);
+        buffer.putInt(0);
+        buffer.putLong(record.getStartedAt().toEpochMilli());
+        putUuid(buffer, record.getGameId());
+        buffer.put((byte) userIds.size());
+        for (UUID userId : userIds) {
+            putUuid(buffer, userId);
+        }
+        buffer.put(record.getData());
+        buffer.putInt(4, crc32(buffer.array(), HEADER_BYTES, length));
+        buffer.flip();
+        return buffer;
+    }
+
+    private static GameHistoryRecord decode(ByteBuffer body) {
+        final Instant startedAt = Instant.ofEpochMilli(body.getLong());
+        final UUID gameId = getUuid(body);
+        final int numOfUsers = body.get() & 0xFF;
+        final List<UUID> userIds = new ArrayList<>(numOfUsers);
+        for (int i = 0; i < numOfUsers; i++) {
+            userIds.add(getUuid(body));
+        }
+        final byte[] data = new byte[body.remaining()];
+        body.get(data);
+        return new GameHistoryRecord(startedAt, gameId, userIds, data);
+    }
+
+    private static void putUuid(ByteBuffer buffer, UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static int crc32(byte[] bytes, int offset, int length) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static long toEpochMilli(Instant instant) {
+        if (instant.isBefore(Instant.ofEpochMilli(Long.MIN_VALUE))) {
+            return Long.MIN_VALUE;
+        } else if (instant.isAfter(Instant.ofEpochMilli(Long.MAX_VALUE))) {
+            return Long.MAX_VALUE;
+        } else {
+            return instant.toEpochMilli();
+        }
+    }
+
+    private class Segment {
+        private final int seq;
+        private final String day;
+        private final Path logFile;
+        private final Path indexFile;
+        private final Path archiveFile;
+        private volatile boolean archived;
+        private volatile SoftReference<GameHistoryArchive> archive = new SoftReference<>(null);
+        private long size;
+        private int numOfRecords;
+        private long minStartedAt = Long.MAX_VALUE;
+        private long maxStartedAt = Long.MIN_VALUE;
+
+        private Segment(int seq, String day) {
+            this.seq = seq;
+            this.day = day;
+            final String fileName = String.format("%s-%s-%06d", name, day, seq);
+            this.logFile = dir.resolve(fileName + ".log");
+            this.indexFile = dir.resolve(fileName + ".idx");
+            this.archiveFile = dir.resolve(fileName + ".arc");
+        }
+
+        private void add(long startedAt, int recordSize) {
+            size += recordSize;
+            numOfRecords++;
+            minStartedAt = Math.min(minStartedAt, startedAt);
+            maxStartedAt = Math.max(maxStartedAt, startedAt);
+        }
+    }
+}
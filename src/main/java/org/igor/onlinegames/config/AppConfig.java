@@ -1,19 +1,39 @@
 package org.igor.onlinegames.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.igor.onlinegames.common.GameHistoryArchiveCodec;
+import org.igor.onlinegames.common.GameHistoryRepository;
+import org.igor.onlinegames.common.GameHistoryWriter;
 import org.igor.onlinegames.common.GamePlayersCounts;
+import org.igor.onlinegames.common.GamePlayersCountsStore;
+import org.igor.onlinegames.common.HashedTimingWheel;
+import org.igor.onlinegames.common.RawGameHistoryArchiveCodec;
+import org.igor.onlinegames.common.SegmentedGameHistoryLog;
+import org.igor.onlinegames.exceptions.OnlinegamesException;
+import org.igor.onlinegames.wordsgame.manager.TokenizedTextCache;
+import org.igor.onlinegames.xogame.manager.XoGameArchiveCodec;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @EnableWebSocket
@@ -26,16 +46,67 @@ public class AppConfig implements WebMvcConfigurer {
     }
 
     @Bean
+    @Primary
     public ObjectMapper objectMapper() {
-        ObjectMapper mapper = new ObjectMapper();
+        return configureObjectMapper(new ObjectMapper());
+    }
+
+    @Bean
+    public ObjectMapper cborObjectMapper() {
+        return configureObjectMapper(new ObjectMapper(new CBORFactory()));
+    }
+
+    private static ObjectMapper configureObjectMapper(ObjectMapper mapper) {
         mapper.registerModule(new Jdk8Module());
         mapper.registerModule(new JavaTimeModule());
         return mapper;
     }
 
     @Bean
-    public ExecutorService executorService() {
-        return Executors.newFixedThreadPool(10);
+    public ExecutorService executorService(@Value("${app.executor.mode}") String mode,
+                                           @Value("${app.executor.pool-size}") int poolSize) {
+        return createExecutorService(mode, poolSize);
+    }
+
+    /**
+     * @param mode "fixed" - a pool of poolSize platform threads, "cached" - an unbounded pool of platform threads,
+     *             "virtual" - a new virtual thread per task (requires Java 21 or newer at runtime).
+     */
+    public static ExecutorService createExecutorService(String mode, int poolSize) {
+        switch (mode) {
+            case "fixed":
+                return Executors.newFixedThreadPool(poolSize);
+            case "cached":
+                return Executors.newCachedThreadPool();
+            case "virtual":
+                return newVirtualThreadPerTaskExecutor();
+            default:
+                throw new OnlinegamesException("Unknown executor mode '" + mode + "'.");
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        // looked up reflectively because the project is compiled for Java 8 (the Spring Boot 2.5 default)
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            throw new OnlinegamesException("Virtual threads are not supported by " + System.getProperty("java.version")
+                    + " Java runtime, use Java 21 or newer.");
+        }
+    }
+
+    /**
+     * Sends to at most maxThreads sessions at once, other sessions wait in the queue. A blocked send holds its thread
+     * until the session is closed for exceeding send-time-limit-millis, so the bound keeps many slow clients from
+     * creating a thread each.
+     */
+    @Bean
+    public ExecutorService webSocketSendExecutorService(@Value("${app.websocket.send-threads}") int maxThreads) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                maxThreads, maxThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>()
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     @Bean
@@ -43,13 +114,119 @@ public class AppConfig implements WebMvcConfigurer {
         return Executors.newScheduledThreadPool(4);
     }
 
+    @Bean(destroyMethod = "stop")
+    public HashedTimingWheel timingWheel(@Value("${app.timer.tick-duration-millis}") long tickDurationMillis,
+                                         @Value("${app.timer.wheel-size}") int wheelSize) {
+        return new HashedTimingWheel(tickDurationMillis, TimeUnit.MILLISECONDS, wheelSize);
+    }
+
     @Bean("xoGamePlayersCounts")
-    public GamePlayersCounts xoGamePlayersCounts() {
-        return new GamePlayersCounts();
+    public GamePlayersCounts xoGamePlayersCounts(@Value("${app.players-counts.max-groups}") int maxGroups,
+                                                 @Value("${app.players-counts.ttl-hours}") long ttlHours) {
+        return new GamePlayersCounts(maxGroups, Duration.ofHours(ttlHours));
     }
 
     @Bean("wordsGamePlayersCounts")
-    public GamePlayersCounts wordsGamePlayersCounts() {
-        return new GamePlayersCounts();
+    public GamePlayersCounts wordsGamePlayersCounts(@Value("${app.players-counts.max-groups}") int maxGroups,
+                                                    @Value("${app.players-counts.ttl-hours}") long ttlHours) {
+        return new GamePlayersCounts(maxGroups, Duration.ofHours(ttlHours));
+    }
+
+    @Bean(destroyMethod = "close")
+    public GamePlayersCountsStore xoGamePlayersCountsStore(
+            @Qualifier("xoGamePlayersCounts") GamePlayersCounts counts,
+            @Value("${app.players-counts.dir}") String dir,
+            @Value("${app.players-counts.flush-interval-seconds}") long flushIntervalSeconds,
+            @Value("${app.players-counts.snapshot-interval-minutes}") long snapshotIntervalMinutes) throws IOException {
+        return startGamePlayersCountsStore(counts, dir, "xo_game", flushIntervalSeconds, snapshotIntervalMinutes);
+    }
+
+    @Bean(destroyMethod = "close")
+    public GamePlayersCountsStore wordsGamePlayersCountsStore(
+            @Qualifier("wordsGamePlayersCounts") GamePlayersCounts counts,
+            @Value("${app.players-counts.dir}") String dir,
+            @Value("${app.players-counts.flush-interval-seconds}") long flushIntervalSeconds,
+            @Value("${app.players-counts.snapshot-interval-minutes}") long snapshotIntervalMinutes) throws IOException {
+        return startGamePlayersCountsStore(counts, dir, "words_game", flushIntervalSeconds, snapshotIntervalMinutes);
+    }
+
+    private GamePlayersCountsStore startGamePlayersCountsStore(GamePlayersCounts counts, String dir, String name,
+                                                               long flushIntervalSeconds, long snapshotIntervalMinutes)
+            throws IOException {
+        final GamePlayersCountsStore store = new GamePlayersCountsStore(counts, Paths.get(dir), name);
+        store.load();
+        store.start(
+                scheduledExecutorService(),
+                Duration.ofSeconds(flushIntervalSeconds),
+                Duration.ofMinutes(snapshotIntervalMinutes)
+        );
+        return store;
+    }
+
+    @Bean(destroyMethod = "close")
+    public GameHistoryRepository xoGameHistoryRepository(
+            @Value("${app.history-log.dir}") String dir,
+            @Value("${app.history-log.max-segment-bytes}") long maxSegmentBytes,
+            @Value("${app.history-log.archive-after-days}") long archiveAfterDays,
+            @Value("${app.history-log.archive-interval-minutes}") long archiveIntervalMinutes) throws IOException {
+        return openGameHistoryLog(
+                dir, "xo_game", maxSegmentBytes, new XoGameArchiveCodec(objectMapper()),
+                archiveAfterDays, archiveIntervalMinutes
+        );
+    }
+
+    @Bean(destroyMethod = "close")
+    public GameHistoryRepository wordsGameHistoryRepository(
+            @Value("${app.history-log.dir}") String dir,
+            @Value("${app.history-log.max-segment-bytes}") long maxSegmentBytes,
+            @Value("${app.history-log.archive-after-days}") long archiveAfterDays,
+            @Value("${app.history-log.archive-interval-minutes}") long archiveIntervalMinutes) throws IOException {
+        return openGameHistoryLog(
+                dir, "words_game", maxSegmentBytes, new RawGameHistoryArchiveCodec(),
+                archiveAfterDays, archiveIntervalMinutes
+        );
+    }
+
+    @Bean(destroyMethod = "close")
+    public GameHistoryWriter xoGameHistoryWriter(
+            @Qualifier("xoGameHistoryRepository") GameHistoryRepository repository,
+            @Value("${app.history-writer.queue-capacity}") int queueCapacity,
+            @Value("${app.history-writer.max-batch-size}") int maxBatchSize) {
+        return startGameHistoryWriter("xo_game", repository, queueCapacity, maxBatchSize);
+    }
+
+    @Bean(destroyMethod = "close")
+    public GameHistoryWriter wordsGameHistoryWriter(
+            @Qualifier("wordsGameHistoryRepository") GameHistoryRepository repository,
+            @Value("${app.history-writer.queue-capacity}") int queueCapacity,
+            @Value("${app.history-writer.max-batch-size}") int maxBatchSize) {
+        return startGameHistoryWriter("words_game", repository, queueCapacity, maxBatchSize);
+    }
+
+    private GameHistoryRepository openGameHistoryLog(String dir, String name, long maxSegmentBytes,
+                                                     GameHistoryArchiveCodec archiveCodec, long archiveAfterDays,
+                                                     long archiveIntervalMinutes) throws IOException {
+        final SegmentedGameHistoryLog historyLog = new SegmentedGameHistoryLog(
+                Paths.get(dir), name, maxSegmentBytes, archiveCodec
+        );
+        historyLog.open();
+        historyLog.startArchiving(
+                scheduledExecutorService(),
+                Duration.ofDays(archiveAfterDays),
+                Duration.ofMinutes(archiveIntervalMinutes)
+        );
+        return historyLog;
+    }
+
+    private GameHistoryWriter startGameHistoryWriter(String name, GameHistoryRepository repository,
+                                                     int queueCapacity, int maxBatchSize) {
+        final GameHistoryWriter writer = new GameHistoryWriter(name, repository, queueCapacity, maxBatchSize);
+        writer.start();
+        return writer;
+    }
+
+    @Bean
+    public TokenizedTextCache tokenizedTextCache(@Value("${app.wordsgame.text-cache.max-size-bytes}") long maxSize) {
+        return new TokenizedTextCache(maxSize);
     }
 }
@@ -0,0 +1,102 @@
+package org.igor.onlinegames.config;
+
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.server.HandshakeFailureException;
+import org.springframework.web.socket.server.standard.TomcatRequestUpgradeStrategy;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.websocket.Endpoint;
+import javax.websocket.Extension;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Controls negotiation of the permessage-deflate extension (RFC 7692). Tomcat negotiates extensions from the
+ * Sec-WebSocket-Extensions header of the handshake request, so the header is rewritten before the upgrade: the
+ * extension is removed from client offers when compression is disabled, and server_no_context_takeover is added
+ * to them when the server should not keep a compression window (32 KB) per session between messages.
+ */
+public class PerMessageDeflateUpgradeStrategy extends TomcatRequestUpgradeStrategy {
+    public static final String PER_MESSAGE_DEFLATE = "permessage-deflate";
+    private static final String EXTENSIONS_HEADER = "Sec-WebSocket-Extensions";
+    private static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+
+    private final boolean compressionEnabled;
+    private final boolean serverNoContextTakeover;
+
+    public PerMessageDeflateUpgradeStrategy(boolean compressionEnabled, boolean serverNoContextTakeover) {
+        this.compressionEnabled = compressionEnabled;
+        this.serverNoContextTakeover = serverNoContextTakeover;
+    }
+
+    @Override
+    public List<WebSocketExtension> getSupportedExtensions(ServerHttpRequest request) {
+        return super.getSupportedExtensions(request).stream()
+                .filter(extension -> compressionEnabled || !PER_MESSAGE_DEFLATE.equals(extension.getName()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void upgradeInternal(ServerHttpRequest request, ServerHttpResponse response, String selectedProtocol,
+                                List<Extension> selectedExtensions, Endpoint endpoint) throws HandshakeFailureException {
+        super.upgradeInternal(
+                new ServletServerHttpRequest(new ExtensionOffersRewritingRequest(getHttpServletRequest(request))),
+                response,
+                selectedProtocol,
+                selectedExtensions,
+                endpoint
+        );
+    }
+
+    private String rewriteOffer(String offer) {
+        final String name = offer.split(";", 2)[0].trim();
+        if (!PER_MESSAGE_DEFLATE.equalsIgnoreCase(name)) {
+            return offer;
+        } else if (!compressionEnabled) {
+            return null;
+        } else if (serverNoContextTakeover && !offer.contains(SERVER_NO_CONTEXT_TAKEOVER)) {
+            return offer + "; " + SERVER_NO_CONTEXT_TAKEOVER;
+        } else {
+            return offer;
+        }
+    }
+
+    private class ExtensionOffersRewritingRequest extends HttpServletRequestWrapper {
+        private ExtensionOffersRewritingRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (!EXTENSIONS_HEADER.equalsIgnoreCase(name)) {
+                return super.getHeader(name);
+            }
+            final List<String> headers = Collections.list(getHeaders(name));
+            return headers.isEmpty() ? null : String.join(", ", headers);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (!EXTENSIONS_HEADER.equalsIgnoreCase(name)) {
+                return super.getHeaders(name);
+            }
+            final List<String> offers = new ArrayList<>();
+            for (String header : Collections.list(super.getHeaders(name))) {
+                for (String offer : header.split(",")) {
+                    final String rewrittenOffer = rewriteOffer(offer.trim());
+                    if (rewrittenOffer != null && !rewrittenOffer.isEmpty()) {
+                        offers.add(rewrittenOffer);
+                    }
+                }
+            }
+            return Collections.enumeration(offers);
+        }
+    }
+}
@@ -3,7 +3,9 @@ package org.igor.onlinegames.config;
 import org.igor.onlinegames.common.OnlinegamesUtils;
 import org.igor.onlinegames.model.OnlineGamesUser;
 import org.igor.onlinegames.websocket.WebSocketHandler;
+import org.igor.onlinegames.websocket.WireFormat;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.server.ServerHttpRequest;
@@ -11,7 +13,9 @@ import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.HandshakeHandler;
 import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 
 import java.util.Map;
 
@@ -20,14 +24,28 @@ import java.util.Map;
 public class WebSocketConfig implements WebSocketConfigurer {
     @Autowired
     private OnlineGamesUser user;
+    @Value("${app.websocket.compression.enabled}")
+    private boolean compressionEnabled;
+    @Value("${app.websocket.compression.server-no-context-takeover}")
+    private boolean serverNoContextTakeover;
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry
                 .addHandler(webSocketHandler(), "/be/websocket/state")
+                .setHandshakeHandler(handshakeHandler())
                 .addInterceptors(httpSessionHandshakeInterceptor());
     }
 
+    @Bean
+    public HandshakeHandler handshakeHandler() {
+        final DefaultHandshakeHandler handshakeHandler = new DefaultHandshakeHandler(
+                new PerMessageDeflateUpgradeStrategy(compressionEnabled, serverNoContextTakeover)
+        );
+        handshakeHandler.setSupportedProtocols(WireFormat.CBOR_SUBPROTOCOL);
+        return handshakeHandler;
+    }
+
     @Bean
     public WebSocketHandler webSocketHandler() {
         return new WebSocketHandler();
@@ -1,9 +1,9 @@
 package org.igor.onlinegames.manager;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.igor.onlinegames.common.GameHistoryWriter;
+import org.igor.onlinegames.common.GameHistoryWriterStatsDto;
 import org.igor.onlinegames.model.GameInfoDto;
 import org.igor.onlinegames.model.GameState;
 import org.igor.onlinegames.model.OnlineGamesUser;
@@ -11,46 +11,46 @@ import org.igor.onlinegames.rpc.RpcMethod;
 import org.igor.onlinegames.rpc.RpcMethodsCollection;
 import org.igor.onlinegames.websocket.State;
 import org.igor.onlinegames.websocket.StateManager;
+import org.igor.onlinegames.wordsgame.dto.history.WordsGamePlayerInfoDto;
+import org.igor.onlinegames.wordsgame.dto.history.WordsGameRecordSummaryDto;
+import org.igor.onlinegames.wordsgame.manager.TokenizedTextCache;
+import org.igor.onlinegames.wordsgame.manager.TokenizedTextCacheStatsDto;
+import org.igor.onlinegames.wordsgame.manager.WordsGameHistoryStore;
 import org.igor.onlinegames.xogame.dto.history.XoGamePlayerInfoDto;
-import org.igor.onlinegames.xogame.dto.history.XoGameRecordDto;
 import org.igor.onlinegames.xogame.dto.history.XoGameRecordSummaryDto;
-import org.igor.onlinegames.xogame.manager.XoGameState;
+import org.igor.onlinegames.xogame.manager.XoGameHistoryStore;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import java.io.File;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.time.Duration;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @RpcMethodsCollection
 @Component
 @Slf4j
 public class GameManager {
-    private static final Duration ONE_DAY = Duration.of(24, ChronoUnit.HOURS);
-
-    @Value("${app.xogame.history-path}")
-    private String historyPath;
-
     @Autowired
     private StateManager stateManager;
     @Autowired
     private OnlineGamesUser user;
     @Autowired
-    private ObjectMapper mapper;
+    private XoGameHistoryStore xoGameHistoryStore;
+    @Autowired
+    private WordsGameHistoryStore wordsGameHistoryStore;
+    @Autowired
+    @Qualifier("xoGameHistoryWriter")
+    private GameHistoryWriter xoGameHistoryWriter;
+    @Autowired
+    @Qualifier("wordsGameHistoryWriter")
+    private GameHistoryWriter wordsGameHistoryWriter;
+    @Autowired
+    private TokenizedTextCache tokenizedTextCache;
 
     @Autowired
     @Qualifier("scheduledExecutorService")
@@ -67,8 +67,8 @@ public class GameManager {
                                     return state instanceof GameState && ((GameState) state).mayBeRemoved();
                                 })
                                 .forEach(entry -> {
-                                    final GameState state = (GameState) entry.getValue();
-                                    state.preDestroy();
+                                    final State state = entry.getValue();
+                                    state.execute(((GameState) state)::preDestroy);
                                     stateManager.removeBackendState(entry.getKey());
                                 });
                     } catch (Exception ex) {
@@ -84,20 +84,7 @@ public class GameManager {
     @RpcMethod
     public List<XoGameRecordSummaryDto> getHistory() {
         final UUID userId = user.getUserData().getUserId();
-        final Instant currTime = Instant.now();
-        return Stream.of(currTime, currTime.minus(ONE_DAY))
-                .map(inst -> XoGameState.getGameHistoryDirPath(historyPath, inst))
-                .map(Paths::get)
-                .filter(path -> path.toFile().exists())
-                .flatMap(this::listDirEntries)
-                .filter(path -> path.getFileName().toString().startsWith("xogame-"))
-                .map(path -> readValue(path.toFile(), XoGameRecordDto.class))
-                .filter(
-                        game -> game.getPlayers().stream()
-                                .filter(player -> userId.equals(player.getUserId()))
-                                .findAny()
-                                .isPresent()
-                ).sorted(Comparator.comparing(XoGameRecordDto::getStartedAt).reversed())
+        return xoGameHistoryStore.getGamesOfUser(userId).stream()
                 .map(
                         game -> {
                             final XoGamePlayerInfoDto winner =
@@ -126,6 +113,35 @@ public class GameManager {
                 ).collect(Collectors.toList());
     }
 
+    @RpcMethod
+    public List<WordsGameRecordSummaryDto> getWordsGameHistory() {
+        final UUID userId = user.getUserData().getUserId();
+        return wordsGameHistoryStore.getGamesOfUser(userId).stream()
+                .map(
+                        game -> {
+                            final WordsGamePlayerInfoDto currUser = game.getPlayers().stream()
+                                    .filter(player -> userId.equals(player.getUserId()))
+                                    .findAny()
+                                    .orElse(null);
+                            return WordsGameRecordSummaryDto.builder()
+                                    .gameId(game.getGameId())
+                                    .startedAt(game.getStartedAt().toEpochMilli())
+                                    .title(game.getTitle())
+                                    .playerNames(
+                                            game.getPlayers().stream()
+                                                    .map(WordsGamePlayerInfoDto::getPlayerName)
+                                                    .collect(Collectors.toList())
+                                    )
+                                    .numOfSelectedWords(game.getSelectedWords().size())
+                                    .currUserNumOfAllWords(currUser == null ? null : currUser.getNumOfAllWords())
+                                    .currUserNumOfCorrectWords(
+                                            currUser == null ? null : currUser.getNumOfCorrectWords()
+                                    )
+                                    .build();
+                        }
+                ).collect(Collectors.toList());
+    }
+
     @RpcMethod
     public List<GameInfoDto> listNewGames() {
         return listGames(true);
@@ -136,6 +152,21 @@ public class GameManager {
         return listGames(false);
     }
 
+    @RpcMethod
+    public TokenizedTextCacheStatsDto getTokenizedTextCacheStats() {
+        return tokenizedTextCache.getStats();
+    }
+
+    @RpcMethod
+    public GameHistoryWriterStatsDto getHistoryWriterStats() {
+        return xoGameHistoryWriter.getStats();
+    }
+
+    @RpcMethod
+    public GameHistoryWriterStatsDto getWordsGameHistoryWriterStats() {
+        return wordsGameHistoryWriter.getStats();
+    }
+
     private List<GameInfoDto> listGames(boolean waitingPlayersToJoin) {
         return stateManager.getStates().entrySet().stream()
                 .filter(entry -> isGameToList(entry.getValue(), waitingPlayersToJoin))
@@ -163,14 +194,4 @@ public class GameManager {
         return waitingPlayersToJoin && gameState.isWaitingForPlayersToJoin()
                 || !waitingPlayersToJoin && gameState.isInProgress();
     }
-
-    @SneakyThrows
-    private <T> T readValue(File src, Class<T> valueType) {
-        return mapper.readValue(src, valueType);
-    }
-
-    @SneakyThrows
-    private Stream<Path> listDirEntries(Path dir) {
-        return Files.list(dir);
-    }
 }
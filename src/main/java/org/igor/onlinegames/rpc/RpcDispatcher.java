@@ -4,9 +4,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
-import org.igor.onlinegames.common.OnlinegamesUtils;
 import org.igor.onlinegames.exceptions.OnlinegamesException;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,11 +16,12 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.lang.reflect.ParameterizedType;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class RpcDispatcher {
@@ -35,14 +34,17 @@ public class RpcDispatcher {
     @RpcMethodsCollection
     private List<Object> rpcMethodsCollections;
 
-    private Map<String, Pair<Object, Method>> methodMap = new HashMap<>();
+    private Map<String, Pair<Object, RpcMethodInvoker>> methodMap = new HashMap<>();
+    private final Map<Class<?>, Map<String, RpcMethodInvoker>> methodTables = new ConcurrentHashMap<>();
 
     @PostConstruct
     public void init() {
         listOfUuidsJavaType = objectMapper.getTypeFactory().constructType(new TypeReference<List<UUID>>() {});
         listOfObjectsJavaType = objectMapper.getTypeFactory().constructType(new TypeReference<List<Object>>() {});
         for (Object rpcMethodsCollection : rpcMethodsCollections) {
-            methodMap.putAll(createMethodMap(rpcMethodsCollection));
+            getMethodTable(rpcMethodsCollection).forEach(
+                    (methodName, invoker) -> methodMap.put(methodName, Pair.of(rpcMethodsCollection, invoker))
+            );
         }
     }
 
@@ -50,98 +52,68 @@ public class RpcDispatcher {
         return dispatchRpcCall(methodName, passedParams, methodMap, paramsLookup);
     }
 
-    public Object dispatchRpcCall(String methodName, JsonNode passedParams, Map<String, Pair<Object, Method>> methodMap,
+    public Object dispatchRpcCall(String methodName, JsonNode passedParams, Map<String, Pair<Object, RpcMethodInvoker>> methodMap,
                                   RpcAutowiredParamsLookup paramsLookup) throws IOException, InvocationTargetException, IllegalAccessException {
-        Pair<Object, Method> objectMethodPair = methodMap.get(methodName);
-        if (objectMethodPair == null) {
+        Pair<Object, RpcMethodInvoker> objectInvokerPair = methodMap.get(methodName);
+        if (objectInvokerPair == null) {
             throw new OnlinegamesException("Could not find RPC method with name " + methodName);
         }
-        Method method = objectMethodPair.getRight();
-        Parameter[] methodParameters = method.getParameters();
-        validatePassedParams(methodName, methodParameters, passedParams);
-        return method.invoke(
-                objectMethodPair.getLeft(),
-                prepareArguments(methodName, methodParameters, passedParams, paramsLookup)
-        );
+        return objectInvokerPair.getRight().invoke(objectInvokerPair.getLeft(), passedParams, paramsLookup);
     }
 
-    public Map<String, Pair<Object, Method>> createMethodMap(Object rpcMethodsCollection) {
-        Map<String, Pair<Object, Method>> methodMap = new HashMap<>();
-        for (Method method : AopUtils.getTargetClass(rpcMethodsCollection).getMethods()) {
-            if (method.getAnnotation(RpcMethod.class) != null) {
-                String methodName = method.getName();
-                if (methodMap.containsKey(methodName)) {
-                    throw new OnlinegamesException("methodMap.containsKey(\"" + methodName + "\")");
-                }
-                methodMap.put(methodName, Pair.of(rpcMethodsCollection, method));
-            }
+    public Object dispatchRpcCall(String methodName, JsonNode passedParams, Object target,
+                                  Map<String, RpcMethodInvoker> methodTable,
+                                  RpcAutowiredParamsLookup paramsLookup) throws IOException, InvocationTargetException {
+        RpcMethodInvoker invoker = methodTable.get(methodName);
+        if (invoker == null) {
+            throw new OnlinegamesException("Could not find RPC method with name " + methodName);
         }
-        return methodMap;
+        return invoker.invoke(target, passedParams, paramsLookup);
     }
 
-    private void validatePassedParams(String methodName, Parameter[] declaredParams, JsonNode passedParams) {
-        if (passedParams != null) {
-            Set<String> allParamNames = OnlinegamesUtils.mapToSet(declaredParams, Parameter::getName);
-            passedParams.fieldNames().forEachRemaining(passedParamName -> {
-                if (!allParamNames.contains(passedParamName)) {
-                    throw new OnlinegamesException(
-                            "Unknown parameter name '" + passedParamName + "' in " + methodName + ", expected are [" + StringUtils.join(allParamNames, ",") + "]"
-                    );
-                }
-            });
+    public Object dispatchParsedRpcCall(String methodName, Object[] parsedArguments, Object target,
+                                        Map<String, RpcMethodInvoker> methodTable,
+                                        RpcAutowiredParamsLookup paramsLookup) throws InvocationTargetException {
+        RpcMethodInvoker invoker = methodTable.get(methodName);
+        if (invoker == null) {
+            throw new OnlinegamesException("Could not find RPC method with name " + methodName);
         }
+        return invoker.invoke(target, parsedArguments, paramsLookup);
     }
 
-    private Object[] prepareArguments(String methodName,
-                                      Parameter[] declaredParams,
-                                      JsonNode passedParams,
-                                      RpcAutowiredParamsLookup paramsLookup) throws IOException {
-        Object[] arguments = new Object[declaredParams.length];
-        for (int i = 0; i < declaredParams.length; i++) {
-            Parameter declaredParam = declaredParams[i];
-            RpcIgnore ignoreParam = declaredParam.getAnnotation(RpcIgnore.class);
-            if (ignoreParam != null) {
-                continue;
-            }
-            Class<?> paramType = declaredParam.getType();
-            String paramName = declaredParam.getName();
-            JsonNode passedParam = passedParams != null ? passedParams.get(paramName) : null;
-            if (passedParam != null) {
-                arguments[i] = parseParam(methodName, declaredParam, passedParam);
-            } else {
-                Default defaultAnnotation = declaredParam.getAnnotation(Default.class);
-                if (defaultAnnotation != null) {
-                    arguments[i] = objectMapper.readValue(defaultAnnotation.value(), (Class) declaredParam.getType());
-                } else {
-                    if (paramsLookup != null) {
-                        Object lookedUpParam = paramsLookup.getByClass(paramType);
-                        if (lookedUpParam != null) {
-                            arguments[i] = lookedUpParam;
-                        } else {
-                            throw new OnlinegamesException("Rpc call error: required parameter '" + paramName
-                                    + "' is not specified for method " + methodName + ".");
-                        }
-                    }
+    /**
+     * @return RPC methods of the class of rpcMethodsCollection. The table is created once per class and shared by
+     * all instances, the instance to invoke a method on is passed at call time.
+     */
+    public Map<String, RpcMethodInvoker> getMethodTable(Object rpcMethodsCollection) {
+        return methodTables.computeIfAbsent(AopUtils.getTargetClass(rpcMethodsCollection), this::createMethodTable);
+    }
+
+    private Map<String, RpcMethodInvoker> createMethodTable(Class<?> rpcMethodsClass) {
+        Map<String, RpcMethodInvoker> methodTable = new HashMap<>();
+        for (Method method : rpcMethodsClass.getMethods()) {
+            if (method.getAnnotation(RpcMethod.class) != null) {
+                String methodName = method.getName();
+                if (methodTable.containsKey(methodName)) {
+                    throw new OnlinegamesException("methodTable.containsKey(\"" + methodName + "\")");
                 }
+                methodTable.put(methodName, new RpcMethodInvoker(method, objectMapper, this::getParamJavaType));
             }
         }
-        return arguments;
+        return Collections.unmodifiableMap(methodTable);
     }
 
-    private Object parseParam(String methodName, Parameter declaredParam, JsonNode passedParam) throws IOException {
-        if (passedParam.isNull()) {
-            return null;
-        }
+    private JavaType getParamJavaType(Parameter declaredParam) {
         Class<?> declaredParamType = declaredParam.getType();
         if (declaredParamType.equals(List.class)) {
             Class typeArgument = getTypeArgument(declaredParam);
             if (typeArgument.equals(UUID.class)) {
-                return readValue(passedParam, listOfUuidsJavaType);
+                return listOfUuidsJavaType;
             } else {
-                return readValue(passedParam, listOfObjectsJavaType);
+                return listOfObjectsJavaType;
             }
         } else {
-            return objectMapper.treeToValue(passedParam, declaredParamType);
+            return objectMapper.getTypeFactory().constructType(declaredParamType);
         }
     }
 
@@ -149,8 +121,4 @@ public class RpcDispatcher {
         ParameterizedType parameterizedType = (ParameterizedType) declaredParam.getParameterizedType();
         return (Class) parameterizedType.getActualTypeArguments()[0];
     }
-
-    private Object readValue(JsonNode passedParam, JavaType javaType) throws IOException {
-        return objectMapper.readValue(objectMapper.treeAsTokens(passedParam), javaType);
-    }
 }
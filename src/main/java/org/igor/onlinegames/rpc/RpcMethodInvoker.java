@@ -0,0 +1,200 @@
+package org.igor.onlinegames.rpc;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.apache.commons.lang3.StringUtils;
+import org.igor.onlinegames.exceptions.OnlinegamesException;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * An RPC method prepared for invocation: everything which can be derived from the method signature (parameter
+ * types, annotations, default values) is computed once, so a call only binds passed values and invokes a
+ * MethodHandle.
+ */
+public class RpcMethodInvoker {
+    private static final Object NOT_PASSED = new Object();
+
+    private final String methodName;
+    private final MethodHandle methodHandle;
+    private final ParamBinder[] paramBinders;
+    private final Map<String, Integer> paramIndexes;
+    private final String paramNamesStr;
+
+    RpcMethodInvoker(Method method, ObjectMapper objectMapper, Function<Parameter, JavaType> paramTypeResolver) {
+        methodName = method.getName();
+        final Parameter[] declaredParams = method.getParameters();
+        paramBinders = new ParamBinder[declaredParams.length];
+        paramIndexes = new HashMap<>();
+        for (int i = 0; i < declaredParams.length; i++) {
+            paramBinders[i] = new ParamBinder(declaredParams[i], objectMapper, paramTypeResolver);
+            paramIndexes.put(declaredParams[i].getName(), i);
+        }
+        paramNamesStr = StringUtils.join(paramIndexes.keySet(), ",");
+        try {
+            method.setAccessible(true);
+            methodHandle = MethodHandles.lookup().unreflect(method)
+                    .asSpreader(Object[].class, declaredParams.length)
+                    .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+        } catch (IllegalAccessException ex) {
+            throw new OnlinegamesException(ex);
+        }
+    }
+
+    public Object invoke(Object target, JsonNode passedParams, RpcAutowiredParamsLookup paramsLookup)
+            throws IOException, InvocationTargetException {
+        return invoke(target, parseArguments(passedParams), paramsLookup);
+    }
+
+    /**
+     * @param parsedArguments arguments returned by one of parseArguments methods, the array is reused for the call
+     */
+    public Object invoke(Object target, Object[] parsedArguments, RpcAutowiredParamsLookup paramsLookup)
+            throws InvocationTargetException {
+        for (int i = 0; i < paramBinders.length; i++) {
+            parsedArguments[i] = paramBinders[i].complete(parsedArguments[i], paramsLookup);
+        }
+        try {
+            return (Object) methodHandle.invokeExact(target, parsedArguments);
+        } catch (Throwable ex) {
+            throw new InvocationTargetException(ex);
+        }
+    }
+
+    public Object[] parseArguments(JsonNode passedParams) throws IOException {
+        validatePassedParams(passedParams);
+        final Object[] arguments = new Object[paramBinders.length];
+        for (int i = 0; i < paramBinders.length; i++) {
+            arguments[i] = paramBinders[i].parse(passedParams);
+        }
+        return arguments;
+    }
+
+    /**
+     * Binds parameters directly from the token stream without building a JsonNode tree.
+     *
+     * @param parser positioned at the value of parameters, i.e. at START_OBJECT or VALUE_NULL token
+     */
+    public Object[] parseArguments(JsonParser parser) throws IOException {
+        final Object[] arguments = new Object[paramBinders.length];
+        Arrays.fill(arguments, NOT_PASSED);
+        final JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return arguments;
+        } else if (token != JsonToken.START_OBJECT) {
+            throw new OnlinegamesException("Parameters of " + methodName + " must be passed as an object.");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String passedParamName = parser.getCurrentName();
+            final Integer idx = paramIndexes.get(passedParamName);
+            if (idx == null) {
+                throw unknownParameter(passedParamName);
+            }
+            parser.nextToken();
+            arguments[idx] = paramBinders[idx].parse(parser);
+        }
+        return arguments;
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    private void validatePassedParams(JsonNode passedParams) {
+        if (passedParams != null) {
+            passedParams.fieldNames().forEachRemaining(passedParamName -> {
+                if (!paramIndexes.containsKey(passedParamName)) {
+                    throw unknownParameter(passedParamName);
+                }
+            });
+        }
+    }
+
+    private OnlinegamesException unknownParameter(String passedParamName) {
+        return new OnlinegamesException(
+                "Unknown parameter name '" + passedParamName + "' in " + methodName + ", expected are [" + paramNamesStr + "]"
+        );
+    }
+
+    private class ParamBinder {
+        private final String name;
+        private final Class<?> type;
+        private final boolean ignored;
+        private final boolean hasDefaultValue;
+        private final Object defaultValue;
+        private final boolean isJsonNode;
+        private final ObjectReader reader;
+
+        private ParamBinder(Parameter declaredParam, ObjectMapper objectMapper,
+                            Function<Parameter, JavaType> paramTypeResolver) {
+            name = declaredParam.getName();
+            type = declaredParam.getType();
+            ignored = declaredParam.getAnnotation(RpcIgnore.class) != null;
+            isJsonNode = JsonNode.class.equals(type);
+            reader = objectMapper.readerFor(paramTypeResolver.apply(declaredParam));
+            final Default defaultAnnotation = declaredParam.getAnnotation(Default.class);
+            hasDefaultValue = defaultAnnotation != null;
+            try {
+                // default values are parsed once and shared between calls, so they must not be mutated
+                defaultValue = hasDefaultValue ? objectMapper.readValue(defaultAnnotation.value(), type) : null;
+            } catch (IOException ex) {
+                throw new OnlinegamesException(ex);
+            }
+        }
+
+        private Object parse(JsonNode passedParams) throws IOException {
+            final JsonNode passedParam = passedParams != null ? passedParams.get(name) : null;
+            if (passedParam == null) {
+                return NOT_PASSED;
+            } else if (passedParam.isNull()) {
+                return null;
+            } else if (isJsonNode) {
+                return passedParam;
+            } else {
+                return reader.readValue(passedParam);
+            }
+        }
+
+        private Object parse(JsonParser parser) throws IOException {
+            if (parser.currentToken() == JsonToken.VALUE_NULL) {
+                return null;
+            } else {
+                return reader.readValue(parser);
+            }
+        }
+
+        private Object complete(Object parsedArgument, RpcAutowiredParamsLookup paramsLookup) {
+            if (ignored) {
+                return null;
+            } else if (parsedArgument != NOT_PASSED) {
+                return parsedArgument;
+            } else if (hasDefaultValue) {
+                return defaultValue;
+            } else if (paramsLookup != null) {
+                final Object lookedUpParam = paramsLookup.getByClass(type);
+                if (lookedUpParam != null) {
+                    return lookedUpParam;
+                } else {
+                    throw new OnlinegamesException("Rpc call error: required parameter '" + name
+                            + "' is not specified for method " + methodName + ".");
+                }
+            } else {
+                return null;
+            }
+        }
+    }
+}
@@ -1,10 +1,18 @@
 package org.igor.onlinegames.websocket;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.JsonNode;
 import lombok.Getter;
+import lombok.Setter;
 
 @Getter
+@Setter
 public class AsyncWebSocketRpcCall {
     private String methodName;
     private JsonNode params;
+    /**
+     * Parameters bound directly from the frame by {@link RpcFrameReader}, in which case params is null.
+     */
+    @JsonIgnore
+    private Object[] arguments;
 }
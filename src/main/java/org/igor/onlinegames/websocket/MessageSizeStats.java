@@ -0,0 +1,76 @@
+package org.igor.onlinegames.websocket;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+/**
+ * Raw and wire bytes of sent messages of one type. Tomcat doesn't report sizes of compressed frames, so for sessions
+ * which negotiated permessage-deflate the wire size is estimated from the compression ratio of every
+ * SAMPLE_RATE-th message. Samples are compressed without context takeover, hence the estimate is an upper bound.
+ */
+public class MessageSizeStats {
+    private static final int SAMPLE_RATE = 16;
+    private static final int DEFLATE_TAIL_LENGTH = 4;
+
+    private final LongAdder sentMessages = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder wireBytes = new LongAdder();
+    private final AtomicLong compressedMessages = new AtomicLong();
+    private volatile double compressionRatio = 1.0;
+
+    public void record(WebSocketMessage<?> message, boolean compressed) {
+        final int rawSize = message.getPayloadLength();
+        sentMessages.increment();
+        rawBytes.add(rawSize);
+        if (!compressed) {
+            wireBytes.add(rawSize);
+            return;
+        }
+        if (compressedMessages.getAndIncrement() % SAMPLE_RATE == 0 && rawSize > 0) {
+            compressionRatio = getCompressedSize(getPayloadBytes(message)) / (double) rawSize;
+        }
+        wireBytes.add(Math.round(rawSize * compressionRatio));
+    }
+
+    public WebSocketMessageTypeStatsDto toDto() {
+        return WebSocketMessageTypeStatsDto.builder()
+                .sentMessages(sentMessages.sum())
+                .rawBytes(rawBytes.sum())
+                .wireBytes(wireBytes.sum())
+                .build();
+    }
+
+    public static int getCompressedSize(byte[] payload) {
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(payload);
+            final byte[] buffer = new byte[8192];
+            int compressedSize = 0;
+            int written;
+            do {
+                written = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                compressedSize += written;
+            } while (written == buffer.length);
+            // a message ends with the empty block of SYNC_FLUSH which is not sent (RFC 7692, 7.2.1)
+            return compressedSize - DEFLATE_TAIL_LENGTH;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] getPayloadBytes(WebSocketMessage<?> message) {
+        if (message instanceof TextMessage) {
+            return ((TextMessage) message).asBytes();
+        }
+        final ByteBuffer payload = ((BinaryMessage) message).getPayload().duplicate();
+        final byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,80 @@
+package org.igor.onlinegames.websocket;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.igor.onlinegames.exceptions.OnlinegamesException;
+import org.igor.onlinegames.rpc.RpcMethodInvoker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Reads an RPC frame sent over a WebSocket. When the method is known by the time its parameters are reached, the
+ * parameters are bound straight from the token stream into the method's argument types, otherwise they are read as
+ * a JsonNode.
+ */
+@Component
+public class RpcFrameReader {
+    @Autowired
+    private ObjectMapper mapper;
+    @Autowired
+    @Qualifier("cborObjectMapper")
+    private ObjectMapper cborMapper;
+
+    public AsyncWebSocketRpcCall read(String payload, Map<String, RpcMethodInvoker> methodTable) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(payload)) {
+            return read(parser, methodTable);
+        }
+    }
+
+    /**
+     * Reads a frame sent by a client which uses the CBOR subprotocol.
+     */
+    public AsyncWebSocketRpcCall read(ByteBuffer payload, Map<String, RpcMethodInvoker> methodTable) throws IOException {
+        final JsonParser cborParser;
+        if (payload.hasArray()) {
+            cborParser = cborMapper.getFactory().createParser(
+                    payload.array(), payload.arrayOffset() + payload.position(), payload.remaining()
+            );
+        } else {
+            final byte[] bytes = new byte[payload.remaining()];
+            payload.duplicate().get(bytes);
+            cborParser = cborMapper.getFactory().createParser(bytes);
+        }
+        try (JsonParser parser = cborParser) {
+            return read(parser, methodTable);
+        }
+    }
+
+    private AsyncWebSocketRpcCall read(JsonParser parser, Map<String, RpcMethodInvoker> methodTable)
+            throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new OnlinegamesException("An RPC frame must be an object.");
+        }
+        final AsyncWebSocketRpcCall call = new AsyncWebSocketRpcCall();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            if ("methodName".equals(fieldName)) {
+                call.setMethodName(parser.getValueAsString());
+            } else if ("params".equals(fieldName)) {
+                final RpcMethodInvoker invoker = methodTable == null || call.getMethodName() == null
+                        ? null
+                        : methodTable.get(call.getMethodName());
+                if (invoker != null) {
+                    call.setArguments(invoker.parseArguments(parser));
+                } else {
+                    call.setParams(parser.readValueAsTree());
+                }
+            } else {
+                throw new OnlinegamesException("Unknown field '" + fieldName + "' in an RPC frame.");
+            }
+        }
+        return call;
+    }
+}
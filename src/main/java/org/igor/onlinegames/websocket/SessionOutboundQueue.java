@@ -0,0 +1,146 @@
+package org.igor.onlinegames.websocket;
+
+import org.igor.onlinegames.config.PerMessageDeflateUpgradeStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+public class SessionOutboundQueue {
+    private static final Logger LOG = LoggerFactory.getLogger(SessionOutboundQueue.class);
+
+    private final WebSocketSession session;
+    private final Executor executor;
+    private final int bufferSizeLimit;
+    private final long sendTimeLimitMillis;
+    private final WebSocketMessageSender.Stats stats;
+    private final boolean compressed;
+
+    private final Deque<OutboundMessage> messages = new ArrayDeque<>();
+    private int bufferSize;
+    private boolean draining;
+    private long sendStartedAt;
+    private boolean closed;
+
+    public SessionOutboundQueue(WebSocketSession session, Executor executor, int bufferSizeLimit,
+                                long sendTimeLimitMillis, WebSocketMessageSender.Stats stats) {
+        this.session = session;
+        this.executor = executor;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        this.stats = stats;
+        this.compressed = session.getExtensions().stream()
+                .anyMatch(extension -> PerMessageDeflateUpgradeStrategy.PER_MESSAGE_DEFLATE.equals(extension.getName()));
+    }
+
+    public void enqueue(WebSocketMessage<?> message, Object coalesceKey, String messageType) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (coalesceKey != null) {
+                removeSupersededMessages(coalesceKey);
+            }
+            messages.add(new OutboundMessage(message, coalesceKey, messageType));
+            bufferSize += message.getPayloadLength();
+            if (isOverflowed()) {
+                LOG.warn("Closing slow websocket session {}: bufferSize = {}, sendStartedAt = {}",
+                        session.getId(), bufferSize, sendStartedAt);
+                stats.getOverflowedSessions().incrementAndGet();
+                close();
+                executor.execute(this::closeSession);
+                return;
+            }
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        executor.execute(this::drain);
+    }
+
+    public synchronized void close() {
+        closed = true;
+        messages.clear();
+        bufferSize = 0;
+    }
+
+    /**
+     * The new message goes to the tail, so it is never sent ahead of messages queued after the superseded one. Deltas
+     * queued after a removed snapshot make a gap in seq and the client requests a snapshot.
+     */
+    private void removeSupersededMessages(Object coalesceKey) {
+        final Iterator<OutboundMessage> iterator = messages.iterator();
+        while (iterator.hasNext()) {
+            final OutboundMessage queued = iterator.next();
+            if (Objects.equals(coalesceKey, queued.coalesceKey)) {
+                iterator.remove();
+                bufferSize -= queued.message.getPayloadLength();
+                stats.getCoalescedMessages().incrementAndGet();
+            }
+        }
+    }
+
+    private boolean isOverflowed() {
+        return bufferSize > bufferSizeLimit
+                || sendStartedAt > 0 && System.currentTimeMillis() - sendStartedAt > sendTimeLimitMillis;
+    }
+
+    private void drain() {
+        while (true) {
+            final OutboundMessage next;
+            final WebSocketMessage<?> message;
+            synchronized (this) {
+                next = messages.poll();
+                if (next == null) {
+                    draining = false;
+                    return;
+                }
+                message = next.message;
+                bufferSize -= message.getPayloadLength();
+                sendStartedAt = System.currentTimeMillis();
+            }
+            try {
+                session.sendMessage(message);
+                stats.getSentMessages().incrementAndGet();
+                stats.getSentBytes().addAndGet(message.getPayloadLength());
+                stats.recordSentMessage(next.messageType, message, compressed);
+            } catch (Exception ex) {
+                stats.getFailedMessages().incrementAndGet();
+                LOG.error(ex.getMessage(), ex);
+            } finally {
+                synchronized (this) {
+                    sendStartedAt = 0;
+                }
+            }
+        }
+    }
+
+    private void closeSession() {
+        try {
+            session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException ex) {
+            LOG.error(ex.getMessage(), ex);
+        }
+    }
+
+    private static class OutboundMessage {
+        private final WebSocketMessage<?> message;
+        private final Object coalesceKey;
+        private final String messageType;
+
+        private OutboundMessage(WebSocketMessage<?> message, Object coalesceKey, String messageType) {
+            this.message = message;
+            this.coalesceKey = coalesceKey;
+            this.messageType = messageType;
+        }
+    }
+}
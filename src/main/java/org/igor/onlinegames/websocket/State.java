@@ -1,46 +1,112 @@
 package org.igor.onlinegames.websocket;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.commons.lang3.tuple.Pair;
+import org.igor.onlinegames.rpc.RpcMethodInvoker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.web.socket.TextMessage;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.io.IOException;
-import java.lang.reflect.Method;
 import java.time.Clock;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 public abstract class State {
     private static final Logger LOG = LoggerFactory.getLogger(State.class);
-    private Map<String, Pair<Object, Method>> methodMap;
+    private static final int MAX_COMMANDS_PER_DRAIN = 64;
+    private Map<String, RpcMethodInvoker> methodTable;
     private Instant createdAt;
-    private Instant lastInMsgAt;
-    private Instant lastOutMsgAt;
+    private volatile Instant lastInMsgAt;
+    private volatile Instant lastOutMsgAt;
+    private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean mailboxDraining = new AtomicBoolean();
     protected List<WebSocketSession> sessions = new ArrayList<>();
     private Clock clock = Clock.systemUTC();
     protected UUID stateId;
 
     @Autowired
-    private ObjectMapper mapper;
+    private WebSocketMessageCodec messageCodec;
+    @Autowired
+    private WebSocketMessageSender messageSender;
+    @Autowired
+    @Qualifier("executorService")
+    private ExecutorService executorService;
+
+    /**
+     * Enqueues a command into the mailbox of this state. Commands of one state are executed one at a time in the
+     * order they were enqueued, so the state doesn't need any locking as long as it is accessed only from commands.
+     */
+    public void execute(Runnable command) {
+        mailbox.add(command);
+        scheduleMailboxDrain();
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> command) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                result.complete(command.call());
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+            }
+        });
+        return result;
+    }
+
+    private void scheduleMailboxDrain() {
+        if (mailboxDraining.compareAndSet(false, true)) {
+            executorService.execute(this::drainMailbox);
+        }
+    }
+
+    private void drainMailbox() {
+        try {
+            Runnable command;
+            // a busy state gives the thread back after a batch so that other states are not starved
+            for (int i = 0; i < MAX_COMMANDS_PER_DRAIN && (command = mailbox.poll()) != null; i++) {
+                try {
+                    command.run();
+                } catch (Throwable ex) {
+                    LOG.error(ex.getMessage(), ex);
+                }
+            }
+        } finally {
+            mailboxDraining.set(false);
+        }
+        if (!mailbox.isEmpty()) {
+            scheduleMailboxDrain();
+        }
+    }
 
-    public synchronized boolean bind(WebSocketSession session, JsonNode bindParams) {
+    public boolean bind(WebSocketSession session, JsonNode bindParams) {
         sessions.add(session);
         return true;
     }
 
-    public synchronized void unbind(WebSocketSession session) {
+    public void unbind(WebSocketSession session) {
         sessions.remove(session);
     }
 
-    public synchronized void unbindAndClose(WebSocketSession session) {
+    boolean isBound(WebSocketSession session) {
+        return sessions.contains(session);
+    }
+
+    public void unbindAndClose(WebSocketSession session) {
         unbind(session);
         if (session.isOpen()) {
             try {
@@ -51,29 +117,88 @@ public abstract class State {
         }
     }
 
-    public synchronized void unbindAndCloseAllWebSockets() {
+    public void unbindAndCloseAllWebSockets() {
         new ArrayList<>(sessions).forEach(this::unbindAndClose);
     }
 
-    protected synchronized void sendMessageToFe(WebSocketSession session, Object msg) {
-        try {
-            session.sendMessage(new TextMessage(mapper.writeValueAsString(msg)));
-            setLastOutMsgAt(clock.instant());
-        } catch (IOException ex) {
-            LOG.error(ex.getMessage(), ex);
+    protected void sendMessageToFe(WebSocketSession session, Object msg) {
+        final WebSocketMessage<?> message = messageCodec.encode(msg, WireFormat.of(session));
+        if (message != null) {
+            sendMessage(session, message, null, getMessageType(msg));
         }
     }
 
-    protected synchronized void sendMessageToFe(Object msg) {
-        sessions.forEach(session -> sendMessageToFe(session, msg));
+    protected void sendStateSnapshotToFe(WebSocketSession session, Object msg) {
+        final WebSocketMessage<?> message = messageCodec.encode(msg, WireFormat.of(session));
+        if (message != null) {
+            sendMessage(session, message, getSnapshotCoalesceKey(), getMessageType(msg));
+        }
+    }
+
+    protected void sendMessageToFe(Object msg) {
+        sendMessageToFe(session -> true, msg);
     }
 
-    public void setMethodMap(Map<String, Pair<Object, Method>> methodMap) {
-        this.methodMap = methodMap;
+    protected void sendMessageToFe(Predicate<WebSocketSession> recipientFilter, Object msg) {
+        final EncodedMessage encodedMessage = new EncodedMessage(msg);
+        for (WebSocketSession session : sessions) {
+            if (recipientFilter.test(session)) {
+                final WebSocketMessage<?> message = encodedMessage.get(WireFormat.of(session));
+                if (message != null) {
+                    sendMessage(session, message, null, encodedMessage.getType());
+                }
+            }
+        }
     }
 
-    public Map<String, Pair<Object, Method>> getMethodMap() {
-        return methodMap;
+    protected void sendViewsToFe(Function<WebSocketSession, Object> viewKeyExtractor,
+                                 Function<WebSocketSession, Object> viewCreator) {
+        sendViewsToFe(viewKeyExtractor, viewCreator, null);
+    }
+
+    protected void sendStateSnapshotsToFe(Function<WebSocketSession, Object> viewKeyExtractor,
+                                          Function<WebSocketSession, Object> viewCreator) {
+        sendViewsToFe(viewKeyExtractor, viewCreator, getSnapshotCoalesceKey());
+    }
+
+    private void sendViewsToFe(Function<WebSocketSession, Object> viewKeyExtractor,
+                               Function<WebSocketSession, Object> viewCreator,
+                               Object coalesceKey) {
+        final Map<Object, List<WebSocketSession>> sessionsByViewKey = new LinkedHashMap<>();
+        for (WebSocketSession session : sessions) {
+            sessionsByViewKey.computeIfAbsent(viewKeyExtractor.apply(session), key -> new ArrayList<>()).add(session);
+        }
+        for (List<WebSocketSession> sessionsWithSameView : sessionsByViewKey.values()) {
+            final EncodedMessage encodedMessage = new EncodedMessage(viewCreator.apply(sessionsWithSameView.get(0)));
+            for (WebSocketSession session : sessionsWithSameView) {
+                final WebSocketMessage<?> message = encodedMessage.get(WireFormat.of(session));
+                if (message != null) {
+                    sendMessage(session, message, coalesceKey, encodedMessage.getType());
+                }
+            }
+        }
+    }
+
+    private void sendMessage(WebSocketSession session, WebSocketMessage<?> message, Object coalesceKey,
+                             String messageType) {
+        messageSender.send(session, message, coalesceKey, messageType);
+        setLastOutMsgAt(clock.instant());
+    }
+
+    private static String getMessageType(Object msg) {
+        return msg.getClass().getSimpleName();
+    }
+
+    private String getSnapshotCoalesceKey() {
+        return "snapshot:" + stateId;
+    }
+
+    public void setMethodTable(Map<String, RpcMethodInvoker> methodTable) {
+        this.methodTable = methodTable;
+    }
+
+    public Map<String, RpcMethodInvoker> getMethodTable() {
+        return methodTable;
     }
 
     public void setCreatedAt(Instant createdAt) {
@@ -84,19 +209,19 @@ public abstract class State {
         return createdAt;
     }
 
-    public synchronized Instant getLastInMsgAt() {
+    public Instant getLastInMsgAt() {
         return lastInMsgAt;
     }
 
-    public synchronized void setLastInMsgAt(Instant lastInMsgAt) {
+    public void setLastInMsgAt(Instant lastInMsgAt) {
         this.lastInMsgAt = lastInMsgAt;
     }
 
-    public synchronized Instant getLastOutMsgAt() {
+    public Instant getLastOutMsgAt() {
         return lastOutMsgAt;
     }
 
-    public synchronized void setLastOutMsgAt(Instant lastOutMsgAt) {
+    public void setLastOutMsgAt(Instant lastOutMsgAt) {
         this.lastOutMsgAt = lastOutMsgAt;
     }
 
@@ -108,9 +233,32 @@ public abstract class State {
         this.stateId = stateId;
     }
 
-    protected synchronized Object getViewRepresentation() {
+    protected Object getViewRepresentation() {
         return this.toString();
     }
 
     protected void init(JsonNode args) {}
+
+    /**
+     * A message which is serialized at most once per wire format no matter how many sessions it is sent to.
+     */
+    private class EncodedMessage {
+        private final Object msg;
+        private final WebSocketMessage<?>[] encoded = new WebSocketMessage<?>[WireFormat.values().length];
+
+        private EncodedMessage(Object msg) {
+            this.msg = msg;
+        }
+
+        private String getType() {
+            return getMessageType(msg);
+        }
+
+        private WebSocketMessage<?> get(WireFormat format) {
+            if (encoded[format.ordinal()] == null) {
+                encoded[format.ordinal()] = messageCodec.encode(msg, format);
+            }
+            return encoded[format.ordinal()];
+        }
+    }
 }
@@ -1,8 +1,10 @@
 package org.igor.onlinegames.websocket;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import org.igor.onlinegames.common.OnlinegamesUtils;
 import org.igor.onlinegames.exceptions.OnlinegamesException;
 import org.igor.onlinegames.rpc.Default;
+import org.igor.onlinegames.rpc.RpcAutowiredParamsLookup;
 import org.igor.onlinegames.rpc.RpcDispatcher;
 import org.igor.onlinegames.rpc.RpcMethod;
 import org.igor.onlinegames.rpc.RpcMethodsCollection;
@@ -33,13 +35,16 @@ public class StateManager {
     @Autowired
     private RpcDispatcher rpcDispatcher;
 
+    @Autowired
+    private WebSocketMessageSender messageSender;
+
     private Clock clock = Clock.systemUTC();
 
     @RpcMethod
     public UUID createNewBackendState(String stateType, @Default("null") JsonNode initParams) {
         UUID newId = UUID.randomUUID();
         State stateObj = (State) applicationContext.getBean(stateType);
-        stateObj.setMethodMap(rpcDispatcher.createMethodMap(stateObj));
+        stateObj.setMethodTable(rpcDispatcher.getMethodTable(stateObj));
         stateObj.setCreatedAt(clock.instant());
         stateObj.setStateId(newId);
         if (initParams != null) {
@@ -66,16 +71,87 @@ public class StateManager {
                 }).collect(Collectors.toList());
     }
 
+    @RpcMethod
+    public WebSocketSendStatsDto getWebSocketSendStats() {
+        return messageSender.getStats();
+    }
+
     @RpcMethod
     public Object invokeMethodOnBackendState(UUID stateId, String methodName, JsonNode params,
                                              WebSocketSession session) {
-        final State stateObject = getBackendState(stateId);
+        final State stateObject = getExistingBackendState(stateId);
+        return stateObject.submit(() -> dispatchRpcCall(stateObject, session, paramsLookup ->
+                rpcDispatcher.dispatchRpcCall(methodName, params, stateObject, stateObject.getMethodTable(), paramsLookup)
+        )).join();
+    }
+
+    public void invokeMethodOnBackendStateAsync(UUID stateId, AsyncWebSocketRpcCall request, WebSocketSession session) {
+        final State stateObject = getExistingBackendState(stateId);
+        final String methodName = request.getMethodName();
+        stateObject.execute(() -> {
+            if (!stateObject.isBound(session)) {
+                LOG.warn("Ignoring call of {} on state {} from a session which is not bound to it.", methodName, stateId);
+                return;
+            }
+            final Object resp = dispatchRpcCall(stateObject, session, paramsLookup -> request.getArguments() != null
+                    ? rpcDispatcher.dispatchParsedRpcCall(
+                            methodName, request.getArguments(), stateObject, stateObject.getMethodTable(), paramsLookup
+                    )
+                    : rpcDispatcher.dispatchRpcCall(
+                            methodName, request.getParams(), stateObject, stateObject.getMethodTable(), paramsLookup
+                    )
+            );
+            if (resp != null) {
+                stateObject.sendMessageToFe(resp);
+            }
+        });
+    }
+
+    public void bindToBackendStateAsync(UUID newStateId, JsonNode bindParams, WebSocketSession session) {
+        final State newState = getExistingBackendState(newStateId);
+        // all subsequent messages of this session go through the mailbox of the new state, so they are processed
+        // after the bind command
+        OnlinegamesUtils.setMailboxStateId(session, newStateId);
+        newState.execute(() -> {
+            final UUID oldStateId = OnlinegamesUtils.extractDestinationStateId(session).orElse(null);
+            if (!newStateId.equals(oldStateId)) {
+                if (oldStateId != null) {
+                    final State oldState = getBackendState(oldStateId);
+                    if (oldState != null) {
+                        oldState.execute(() -> oldState.unbind(session));
+                    }
+                    OnlinegamesUtils.setDestinationStateId(session, null);
+                }
+                if (newState.bind(session, bindParams)) {
+                    OnlinegamesUtils.setDestinationStateId(session, newStateId);
+                }
+            }
+        });
+    }
+
+    /**
+     * The outbound queue of the session is released after the state drops the session, so commands queued before the
+     * unbind cannot recreate it.
+     */
+    public void unbindAndCloseAsync(WebSocketSession session) {
+        final State stateObject = OnlinegamesUtils.extractMailboxStateId(session).map(this::getBackendState).orElse(null);
+        if (stateObject != null) {
+            stateObject.execute(() -> {
+                try {
+                    stateObject.unbindAndClose(session);
+                } finally {
+                    messageSender.release(session);
+                }
+            });
+        } else {
+            messageSender.release(session);
+        }
+    }
+
+    private Object dispatchRpcCall(State stateObject, WebSocketSession session, RpcCall rpcCall) {
         stateObject.setLastInMsgAt(clock.instant());
         try {
-            return rpcDispatcher.dispatchRpcCall(
-                    methodName,
-                    params,
-                    stateObject.getMethodMap(),
+            return rpcCall.call(
                     RpcAutowiredParamsLookupImpl.builder()
                             .session(session)
                             .build()
@@ -88,9 +164,18 @@ public class StateManager {
 
     @RpcMethod
     public void removeBackendState(UUID stateId) {
-        State stateObj = getBackendState(stateId);
-        stateObj.unbindAndCloseAllWebSockets();
-        states.remove(stateId);
+        State stateObj = states.remove(stateId);
+        if (stateObj != null) {
+            stateObj.execute(stateObj::unbindAndCloseAllWebSockets);
+        }
+    }
+
+    private State getExistingBackendState(UUID stateId) {
+        final State stateObject = getBackendState(stateId);
+        if (stateObject == null) {
+            throw new OnlinegamesException("State " + stateId + " doesn't exist.");
+        }
+        return stateObject;
     }
 
     public State getBackendState(UUID id) {
@@ -100,4 +185,8 @@ public class StateManager {
     public Map<UUID, State> getStates() {
         return states;
     }
+
+    private interface RpcCall {
+        Object call(RpcAutowiredParamsLookup paramsLookup) throws Exception;
+    }
 }
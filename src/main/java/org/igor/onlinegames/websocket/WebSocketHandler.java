@@ -2,61 +2,73 @@ package org.igor.onlinegames.websocket;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.igor.onlinegames.common.OnlinegamesUtils;
+import org.igor.onlinegames.exceptions.OnlinegamesException;
+import org.igor.onlinegames.rpc.RpcMethodInvoker;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
-import java.util.Optional;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
 
-public class WebSocketHandler extends TextWebSocketHandler {
+public class WebSocketHandler extends AbstractWebSocketHandler {
     @Autowired
     private StateManager stateManager;
     @Autowired
     private ObjectMapper mapper;
     @Autowired
-    @Qualifier("executorService")
-    private ExecutorService executorService;
+    private RpcFrameReader rpcFrameReader;
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
         final String payload = message.getPayload();
-        AsyncWebSocketRpcCall request = mapper.readValue(payload, AsyncWebSocketRpcCall.class);
-        Optional<UUID> stateIdOpt = OnlinegamesUtils.extractDestinationStateId(session);
+        final UUID mailboxStateId = OnlinegamesUtils.extractMailboxStateId(session).orElse(null);
+        AsyncWebSocketRpcCall request;
+        try {
+            request = rpcFrameReader.read(payload, getMethodTable(mailboxStateId));
+        } catch (OnlinegamesException | IOException ex) {
+            // parameters which cannot be bound are reported to the caller by the JsonNode based dispatch
+            request = mapper.readValue(payload, AsyncWebSocketRpcCall.class);
+        }
+        handleRpcCall(session, mailboxStateId, request);
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        final ByteBuffer payload = message.getPayload();
+        final UUID mailboxStateId = OnlinegamesUtils.extractMailboxStateId(session).orElse(null);
+        AsyncWebSocketRpcCall request;
+        try {
+            request = rpcFrameReader.read(payload, getMethodTable(mailboxStateId));
+        } catch (OnlinegamesException | IOException ex) {
+            request = rpcFrameReader.read(payload, null);
+        }
+        handleRpcCall(session, mailboxStateId, request);
+    }
+
+    private Map<String, RpcMethodInvoker> getMethodTable(UUID mailboxStateId) {
+        final State mailboxState = mailboxStateId == null ? null : stateManager.getBackendState(mailboxStateId);
+        return mailboxState == null ? null : mailboxState.getMethodTable();
+    }
+
+    private void handleRpcCall(WebSocketSession session, UUID mailboxStateId, AsyncWebSocketRpcCall request) {
         if ("-bindToState".equals(request.getMethodName())) {
             UUID newStateId = UUID.fromString(request.getParams().get("stateId").asText());
-            UUID oldStateId = stateIdOpt.orElse(null);
-            if (!newStateId.equals(oldStateId)) {
-                if (oldStateId != null) {
-                    stateManager.getBackendState(oldStateId).unbind(session);
-                    OnlinegamesUtils.setDestinationStateId(session, null);
-                }
-                if (stateManager.getBackendState(newStateId).bind(session, request.getParams().get("bindParams"))) {
-                    OnlinegamesUtils.setDestinationStateId(session, newStateId);
-                }
-            }
+            stateManager.bindToBackendStateAsync(newStateId, request.getParams().get("bindParams"), session);
+        } else if (mailboxStateId == null) {
+            throw new OnlinegamesException("The session is not bound to any state.");
         } else {
-            final UUID stateId = stateIdOpt.get();
-            executorService.submit(() -> {
-                Object resp = stateManager.invokeMethodOnBackendState(
-                        stateId, request.getMethodName(), request.getParams(), session
-                );
-                if (resp != null) {
-                    stateManager.getBackendState(stateId).sendMessageToFe(resp);
-                }
-            });
+            stateManager.invokeMethodOnBackendStateAsync(mailboxStateId, request, session);
         }
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
-        UUID stateId = OnlinegamesUtils.extractDestinationStateId(session).orElse(null);
-        if (stateId != null) {
-            stateManager.getBackendState(stateId).unbindAndClose(session);
-        }
+        stateManager.unbindAndCloseAsync(session);
     }
 }
@@ -0,0 +1,43 @@
+package org.igor.onlinegames.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+@Component
+public class WebSocketMessageCodec {
+    private static final Logger LOG = LoggerFactory.getLogger(WebSocketMessageCodec.class);
+
+    @Autowired
+    private ObjectMapper mapper;
+    @Autowired
+    @Qualifier("cborObjectMapper")
+    private ObjectMapper cborMapper;
+
+    /**
+     * @return the encoded message or null if msg could not be serialized
+     */
+    public WebSocketMessage<?> encode(Object msg, WireFormat format) {
+        try {
+            if (format == WireFormat.CBOR) {
+                return new BinaryMessage(cborMapper.writeValueAsBytes(msg));
+            } else {
+                return new TextMessage(mapper.writeValueAsString(msg));
+            }
+        } catch (JsonProcessingException ex) {
+            LOG.error(ex.getMessage(), ex);
+            return null;
+        }
+    }
+
+    public ObjectMapper getMapper(WireFormat format) {
+        return format == WireFormat.CBOR ? cborMapper : mapper;
+    }
+}
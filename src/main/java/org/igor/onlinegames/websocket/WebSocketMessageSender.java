@@ -0,0 +1,80 @@
+package org.igor.onlinegames.websocket;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+@Component
+public class WebSocketMessageSender {
+    private static final String OUTBOUND_QUEUE = "OUTBOUND_QUEUE";
+
+    @Value("${app.websocket.send-buffer-size-limit}")
+    private int bufferSizeLimit;
+    @Value("${app.websocket.send-time-limit-millis}")
+    private long sendTimeLimitMillis;
+    @Autowired
+    @Qualifier("webSocketSendExecutorService")
+    private ExecutorService executorService;
+
+    private final Stats stats = new Stats();
+
+    public void send(WebSocketSession session, WebSocketMessage<?> message, Object coalesceKey, String messageType) {
+        getOutboundQueue(session).enqueue(message, coalesceKey, messageType);
+    }
+
+    public void release(WebSocketSession session) {
+        final SessionOutboundQueue queue = (SessionOutboundQueue) session.getAttributes().remove(OUTBOUND_QUEUE);
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    public WebSocketSendStatsDto getStats() {
+        return WebSocketSendStatsDto.builder()
+                .sentMessages(stats.getSentMessages().get())
+                .sentBytes(stats.getSentBytes().get())
+                .coalescedMessages(stats.getCoalescedMessages().get())
+                .failedMessages(stats.getFailedMessages().get())
+                .overflowedSessions(stats.getOverflowedSessions().get())
+                .messageTypes(stats.getMessageTypes().entrySet().stream().collect(Collectors.toMap(
+                        Map.Entry::getKey,
+                        messageTypeStats -> messageTypeStats.getValue().toDto(),
+                        (a, b) -> a,
+                        TreeMap::new
+                )))
+                .build();
+    }
+
+    private SessionOutboundQueue getOutboundQueue(WebSocketSession session) {
+        return (SessionOutboundQueue) session.getAttributes().computeIfAbsent(
+                OUTBOUND_QUEUE,
+                key -> new SessionOutboundQueue(session, executorService, bufferSizeLimit, sendTimeLimitMillis, stats)
+        );
+    }
+
+    @Getter
+    public static class Stats {
+        private final AtomicLong sentMessages = new AtomicLong();
+        private final AtomicLong sentBytes = new AtomicLong();
+        private final AtomicLong coalescedMessages = new AtomicLong();
+        private final AtomicLong failedMessages = new AtomicLong();
+        private final AtomicLong overflowedSessions = new AtomicLong();
+        private final ConcurrentMap<String, MessageSizeStats> messageTypes = new ConcurrentHashMap<>();
+
+        public void recordSentMessage(String messageType, WebSocketMessage<?> message, boolean compressed) {
+            messageTypes.computeIfAbsent(messageType, type -> new MessageSizeStats()).record(message, compressed);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.igor.onlinegames.websocket;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class WebSocketMessageTypeStatsDto {
+    private long sentMessages;
+    private long rawBytes;
+    private long wireBytes;
+}
@@ -0,0 +1,19 @@
+package org.igor.onlinegames.websocket;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class WebSocketSendStatsDto {
+    private long sentMessages;
+    private long sentBytes;
+    private long coalescedMessages;
+    private long failedMessages;
+    private long overflowedSessions;
+    private Map<String, WebSocketMessageTypeStatsDto> messageTypes;
+}
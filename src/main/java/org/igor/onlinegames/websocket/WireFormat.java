@@ -0,0 +1,17 @@
+package org.igor.onlinegames.websocket;
+
+import org.springframework.web.socket.WebSocketSession;
+
+/**
+ * Format of messages sent to a WebSocket session. JSON text is used unless the client asked for the CBOR
+ * subprotocol at handshake.
+ */
+public enum WireFormat {
+    JSON, CBOR;
+
+    public static final String CBOR_SUBPROTOCOL = "cbor.onlinegames";
+
+    public static WireFormat of(WebSocketSession session) {
+        return CBOR_SUBPROTOCOL.equals(session.getAcceptedProtocol()) ? CBOR : JSON;
+    }
+}
@@ -6,6 +6,7 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
 @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
 @JsonSubTypes({
         @JsonSubTypes.Type(value = WordsGameStateDto.class, name = "state"),
+        @JsonSubTypes.Type(value = WordsGameTextDto.class, name = "text"),
         @JsonSubTypes.Type(value = WordsGameMsgDto.class, name = "msg"),
         @JsonSubTypes.Type(value = WordsGamePlayerNameWasSetMsgDto.class, name = "msg:PlayerNameWasSet"),
         @JsonSubTypes.Type(value = WordsGameNewTextWasSavedMsgDto.class, name = "msg:NewTextWasSaved"),
@@ -3,8 +3,6 @@ package org.igor.onlinegames.wordsgame.dto;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Data;
-import lombok.With;
-import org.igor.onlinegames.wordsgame.manager.TextToken;
 
 import java.util.List;
 
@@ -23,10 +21,7 @@ public class WordsGameStateDto implements WordsGameDto {
     private List<WordsPlayerDto> players;
     private Integer currentPlayerId;
     private Integer playerIdToMove;
-    @With
-    private String textToLearn;
-    @With
-    private List<List<TextToken>> words;
+    private String textVersion;
     private SelectedWordDto selectedWord;
     private List<WordsPlayerDto> finalScores;
 }
@@ -0,0 +1,20 @@
+package org.igor.onlinegames.wordsgame.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.igor.onlinegames.wordsgame.manager.TextToken;
+
+import java.util.List;
+
+/**
+ * The text to learn, sent to a session once per textVersion. State snapshots refer to it by textVersion.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+@AllArgsConstructor
+public class WordsGameTextDto implements WordsGameDto {
+    private String textVersion;
+    private String textToLearn;
+    private List<List<TextToken>> words;
+}
@@ -0,0 +1,20 @@
+package org.igor.onlinegames.wordsgame.dto.history;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WordsGamePlayerInfoDto {
+    private UUID userId;
+    private int playerId;
+    private String playerName;
+    private int numOfAllWords;
+    private int numOfCorrectWords;
+}
@@ -0,0 +1,33 @@
+package org.igor.onlinegames.wordsgame.dto.history;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.igor.onlinegames.common.InstantDeserializer;
+import org.igor.onlinegames.common.InstantSerializer;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WordsGameRecordDto {
+    private UUID gameId;
+    @JsonSerialize(using = InstantSerializer.class)
+    @JsonDeserialize(using = InstantDeserializer.class)
+    private Instant startedAt;
+    @JsonSerialize(using = InstantSerializer.class)
+    @JsonDeserialize(using = InstantDeserializer.class)
+    private Instant finishedAt;
+    private String title;
+    // SHA-256 of the text the game finished with, the owner may change the text between words
+    private String textHash;
+    private List<WordsGamePlayerInfoDto> players;
+    private List<WordsGameSelectedWordDto> selectedWords;
+}
@@ -0,0 +1,23 @@
+package org.igor.onlinegames.wordsgame.dto.history;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WordsGameRecordSummaryDto {
+    private UUID gameId;
+    private Long startedAt;
+    private String title;
+    private List<String> playerNames;
+    private int numOfSelectedWords;
+    private Integer currUserNumOfAllWords;
+    private Integer currUserNumOfCorrectWords;
+}
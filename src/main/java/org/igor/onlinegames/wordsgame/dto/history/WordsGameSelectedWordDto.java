@@ -0,0 +1,28 @@
+package org.igor.onlinegames.wordsgame.dto.history;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.igor.onlinegames.common.InstantDeserializer;
+import org.igor.onlinegames.common.InstantSerializer;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WordsGameSelectedWordDto {
+    private int playerId;
+    @JsonSerialize(using = InstantSerializer.class)
+    @JsonDeserialize(using = InstantDeserializer.class)
+    private Instant time;
+    private int paragraphIndex;
+    private int wordIndex;
+    private String text;
+    private List<WordsGameUserInputDto> userInputs;
+}
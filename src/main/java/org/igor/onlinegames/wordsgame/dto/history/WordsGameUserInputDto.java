@@ -0,0 +1,20 @@
+package org.igor.onlinegames.wordsgame.dto.history;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WordsGameUserInputDto {
+    private int playerId;
+    private String text;
+    private Boolean correct;
+    private boolean confirmed;
+    // since the word was selected
+    private Long enteredAfterMillis;
+    private Long confirmedAfterMillis;
+}
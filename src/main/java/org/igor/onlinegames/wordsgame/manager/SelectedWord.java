@@ -3,11 +3,14 @@ package org.igor.onlinegames.wordsgame.manager;
 import lombok.Builder;
 import lombok.Data;
 
+import java.time.Instant;
 import java.util.Map;
 
 @Builder
 @Data
 public class SelectedWord {
+    private int playerId;
+    private Instant selectedAt;
     private int paragraphIndex;
     private int wordIndex;
     private String text;
@@ -4,223 +4,295 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.function.Function;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
-import static org.igor.onlinegames.common.OnlinegamesUtils.listOf;
 
+/**
+ * Splits a text on tokens in a single pass over its characters, without regular expressions and intermediate
+ * lists. Equal plain tokens of a text are represented by one TextToken instance. The rules are:
+ * <ul>
+ *     <li>[...] is an unsplittable token, {...} is an ignored token, the brackets themselves are meta tokens.</li>
+ *     <li>Lines of the ignore list are extracted as separate tokens which are never active.</li>
+ *     <li>The rest is split on maximal runs of word characters, line breaks, sentence ends and other borders.</li>
+ *     <li>A token containing a line break is a meta token and ends a paragraph.</li>
+ * </ul>
+ */
 public class TextProcessing {
-    /*
-       '—' - 2014
-       '…' - 2026
-       '„' - 201E
-       '”' - 201D
-      */
-    private static final String BORDER_SYMBOL = "[\\.?!\\u2026\\s\\r\\n,:;\"\\(\\)\\[\\]\\\\/\\*\\u201E\\u201D]";
-    private static final String SENTENCE_PARTS_DELIMITER = "((?<=" + BORDER_SYMBOL + ")(?!" + BORDER_SYMBOL + "))|((?<!" + BORDER_SYMBOL + ")(?=" + BORDER_SYMBOL + "))";
-    private static final Pattern NOT_ACTIVE_PATTERN = Pattern.compile("^[\\(\\)-.,\\s–\":\\[\\]\\\\/;!?\\u2014\\u2026\\u201E\\u201D]+$");
-    private static final List<String> SENTENCE_ENDS = listOf(".", "!", "?", "…");
-    private static final List<String> R_N = listOf("\r", "\n");
+    private static final int WORD = 0;
+    private static final int LINE_BREAK = 1;
+    private static final int SENTENCE_END = 2;
+    private static final int BORDER = 3;
+    private static final TextToken SQUARE_OPEN = new TextToken("[", TextToken.META);
+    private static final TextToken SQUARE_CLOSE = new TextToken("]", TextToken.META);
+    private static final TextToken CURLY_OPEN = new TextToken("{", TextToken.META);
+    private static final TextToken CURLY_CLOSE = new TextToken("}", TextToken.META);
 
     public static List<List<TextToken>> splitOnParagraphs(String text) {
         return splitOnParagraphs(text, null);
     }
 
     public static List<List<TextToken>> splitOnParagraphs(String text, String ignoreList) {
-        final List<TextToken> tokens = splitOnTokens(text, ignoreList);
-        List<List<TextToken>> paragraphs = new ArrayList<>();
-        List<TextToken> paragraph = new ArrayList<>();
-        for (TextToken token : tokens) {
-            paragraph.add(token);
-            if (isEndOfParagraph(token)) {
-                paragraphs.add(paragraph);
-                paragraph = new ArrayList<>();
-            }
-        }
-        if (!paragraph.isEmpty()) {
-            paragraphs.add(paragraph);
-        }
-        return paragraphs;
+        final Tokenizer tokenizer = new Tokenizer(text, parseIgnoreList(ignoreList));
+        tokenizer.tokenize();
+        return tokenizer.paragraphs;
     }
 
     public static List<TextToken> splitOnTokens(String text, String ignoreList) {
-        Set<String> substringsToIgnore = StringUtils.isNoneBlank(ignoreList)
-                ? Stream.of(ignoreList.split("[\r\n]+"))
-                    .filter(StringUtils::isNoneBlank)
-                    .collect(Collectors.toSet())
-                : Collections.emptySet();
-
-        return splitOnTokens(text, substringsToIgnore);
+        final List<TextToken> tokens = new ArrayList<>();
+        for (List<TextToken> paragraph : splitOnParagraphs(text, ignoreList)) {
+            tokens.addAll(paragraph);
+        }
+        return tokens;
     }
 
-    private static List<TextToken> splitOnTokens(String text, Set<String> substringsToIgnore) {
-        List<Object> tokensRaw = extractUnsplittable(Collections.singletonList(text), "[", "]", token -> {
-            if (token.getMeta() == null) {
-                token.setUnsplittable(true);
-            }
-            return token;
-        });
-        tokensRaw = extractUnsplittable(tokensRaw, "{", "}", token -> {
-            if (token.getMeta() == null) {
-                token.setIgnored(true);
+    private static Set<String> parseIgnoreList(String ignoreList) {
+        if (StringUtils.isBlank(ignoreList)) {
+            return Collections.emptySet();
+        }
+        // parts are extracted one after another in iteration order of this set, so it is filled the same way as before
+        final Set<String> parts = new HashSet<>();
+        int lineStart = 0;
+        for (int i = 0; i <= ignoreList.length(); i++) {
+            if (i == ignoreList.length() || getCharClass(ignoreList.charAt(i)) == LINE_BREAK) {
+                final String line = ignoreList.substring(lineStart, i);
+                if (StringUtils.isNotBlank(line)) {
+                    parts.add(line);
+                }
+                lineStart = i + 1;
             }
-            return token;
-        });
-        tokensRaw = extractPredefinedParts(tokensRaw, substringsToIgnore);
-        List<TextToken> tokens = tokenize(tokensRaw);
-        tokens = splitByLongestSequence(tokens, R_N);
-        tokens = splitByLongestSequence(tokens, SENTENCE_ENDS);
+        }
+        return parts;
+    }
 
-        for (TextToken token : tokens) {
-            enhanceWithAttributes(token, substringsToIgnore);
+    /*
+       '…' - 2026
+       '„' - 201E
+       '”' - 201D
+      */
+    private static int getCharClass(char c) {
+        switch (c) {
+            case '\r': case '\n':
+                return LINE_BREAK;
+            case '.': case '!': case '?': case '…':
+                return SENTENCE_END;
+            case ' ': case '\t': case '\u000B': case '\f': case ',': case ':': case ';': case '"': case '(': case ')':
+            case '[': case ']': case '\\': case '/': case '*': case '„': case '”':
+                return BORDER;
+            default:
+                return WORD;
         }
-        return tokens;
     }
 
-    private static List<TextToken> splitByLongestSequence(List<TextToken> tokens, List<String> substrings) {
-        List<TextToken> res = new LinkedList<>();
-        for (TextToken token : tokens) {
-            if (token.isIgnored() || token.isUnsplittable()) {
-                res.add(token);
-                continue;
-            }
-            String val = token.getValue();
-            if (isSplittableBy(token, substrings)) {
-                int s = 0;
-                while (s < val.length() && !substrings.contains(val.substring(s,s+1))) {
-                    s++;
-                }
-                int e = s+1;
-                while (e < val.length() && substrings.contains(val.substring(e,e+1))) {
-                    e++;
-                }
-                if (s > 0) {
-                    res.add(TextToken.builder().value(val.substring(0,s)).build());
-                }
-                res.add(TextToken.builder().value(val.substring(s,e)).build());
-                if (e < val.length()) {
-                    res.addAll(splitByLongestSequence(listOf(TextToken.builder().value(val.substring(e)).build()), substrings));
-                }
-            } else {
-                res.add(token);
+    /*
+       '–' - 2013
+       '—' - 2014
+      */
+    private static boolean isNotActiveChar(char c) {
+        switch (c) {
+            case '(': case ')': case '*': case '+': case ',': case '-': case '.': case '–': case '"': case ':':
+            case '[': case ']': case '\\': case '/': case ';': case '!': case '?': case '—': case '…':
+            case '„': case '”': case ' ': case '\t': case '\u000B': case '\f': case '\r': case '\n':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isNotActive(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!isNotActiveChar(value.charAt(i))) {
+                return false;
             }
         }
-        return res;
+        return true;
     }
 
-    private static boolean containsOneOf(String str, List<String> substrings) {
-        for (String substring : substrings) {
-            if (str.contains(substring)) {
+    private static boolean containsLineBreak(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (getCharClass(value.charAt(i)) == LINE_BREAK) {
                 return true;
             }
         }
         return false;
     }
 
-    private static boolean isSplittableBy(TextToken token, List<String> substrings) {
-        return !isUnsplittable(token) && containsOneOf(token.getValue(), substrings);
-    }
+    private static class Tokenizer {
+        private final String text;
+        private final Set<String> ignoreList;
+        private final List<List<TextToken>> paragraphs = new ArrayList<>();
+        private final Map<String, TextToken> plainTokens = new HashMap<>();
+        private ArrayList<TextToken> paragraph = new ArrayList<>();
 
-    private static boolean isUnsplittable(TextToken token) {
-        return token.getUnsplittable() != null && token.getUnsplittable();
-    }
+        private Tokenizer(String text, Set<String> ignoreList) {
+            this.text = text;
+            this.ignoreList = ignoreList;
+        }
 
-    private static void enhanceWithAttributes(TextToken token, Set<String> ignoreList) {
-        String val = token.getValue();
-        if (containsOneOf(val, R_N)) {
-            token.setMeta(true);
-        } else if (!(ignoreList.contains(val) || token.isIgnored() || token.isMeta()
-                || NOT_ACTIVE_PATTERN.matcher(val).matches())) {
-            token.setActive(true);
+        private void tokenize() {
+            int pos = 0;
+            while (pos < text.length()) {
+                final int open = text.indexOf('[', pos);
+                final int close = open < 0 ? -1 : text.indexOf(']', open + 1);
+                if (close < 0) {
+                    splitOnIgnoredGroups(pos, text.length());
+                    break;
+                }
+                splitOnIgnoredGroups(pos, open);
+                addGroup(open, close, true);
+                pos = close + 1;
+            }
+            if (!paragraph.isEmpty()) {
+                paragraph.trimToSize();
+                paragraphs.add(paragraph);
+            }
+        }
+
+        private void splitOnIgnoredGroups(int start, int end) {
+            int pos = start;
+            while (pos < end) {
+                final int open = indexOf('{', pos, end);
+                final int close = open < 0 ? -1 : indexOf('}', open + 1, end);
+                if (close < 0) {
+                    splitOnIgnoreListParts(pos, end);
+                    return;
+                }
+                if (open > pos) {
+                    splitOnIgnoreListParts(pos, open);
+                }
+                addGroup(open, close, false);
+                pos = close + 1;
+            }
         }
-    }
 
-    private static List<Object> extractPredefinedParts(List<Object> res, Set<String> predefinedParts) {
-        for (String predefinedPart : predefinedParts) {
-            res = extractPredefinedPart(res, predefinedPart);
+        /**
+         * Each part of the ignore list is searched for in what is left by previous parts, and the text before each
+         * found occurrence is kept even when empty (only the last part's empty leftovers end up as empty tokens).
+         */
+        private void splitOnIgnoreListParts(int start, int end) {
+            if (ignoreList.isEmpty()) {
+                splitOnRuns(start, end, false);
+                return;
+            }
+            // each piece is {start, end, isPart}
+            List<int[]> pieces = Collections.singletonList(new int[]{start, end, 0});
+            for (String part : ignoreList) {
+                final List<int[]> nextPieces = new ArrayList<>();
+                for (int[] piece : pieces) {
+                    if (piece[2] == 1) {
+                        nextPieces.add(piece);
+                        continue;
+                    }
+                    int pos = piece[0];
+                    int idx = indexOf(part, pos, piece[1]);
+                    while (idx >= 0) {
+                        nextPieces.add(new int[]{pos, idx, 0});
+                        nextPieces.add(new int[]{idx, idx + part.length(), 1});
+                        pos = idx + part.length();
+                        idx = indexOf(part, pos, piece[1]);
+                    }
+                    if (pos < piece[1]) {
+                        nextPieces.add(new int[]{pos, piece[1], 0});
+                    }
+                }
+                pieces = nextPieces;
+            }
+            for (int[] piece : pieces) {
+                if (piece[0] == piece[1]) {
+                    addPlainToken("", false);
+                } else {
+                    splitOnRuns(piece[0], piece[1], piece[2] == 1);
+                }
+            }
         }
-        return res;
-    }
 
-    private static List<Object> extractUnsplittable(String text, String prefix, String suffix,
-                                                    Function<TextToken, TextToken> mapper) {
-        List<Object> res = new LinkedList<>();
-        String tail = text;
-        int idxS = tail.indexOf(prefix);
-        int idxE = idxS < 0 ? -1 : tail.indexOf(suffix, idxS+prefix.length());
-        while (idxE >= prefix.length()) {
-            if (idxS > 0) {
-                res.add(tail.substring(0, idxS));
+        /**
+         * @param isPart parts of the ignore list are split only on sentence ends
+         */
+        private void splitOnRuns(int start, int end, boolean isPart) {
+            int runStart = start;
+            int runClass = getRunClass(text.charAt(start), isPart);
+            for (int i = start + 1; i < end; i++) {
+                final int charClass = getRunClass(text.charAt(i), isPart);
+                if (charClass != runClass) {
+                    addPlainToken(text.substring(runStart, i), runClass == LINE_BREAK);
+                    runStart = i;
+                    runClass = charClass;
+                }
             }
-            res.add(mapper.apply(TextToken.builder().value(prefix).meta(true).build()));
-            res.add(mapper.apply(TextToken.builder().value(tail.substring(idxS+prefix.length(), idxE)).build()));
-            res.add(mapper.apply(TextToken.builder().value(suffix).meta(true).build()));
-            tail = tail.substring(idxE + suffix.length());
-            idxS = tail.indexOf(prefix);
-            idxE = idxS < 0 ? -1 : tail.indexOf(suffix, idxS+prefix.length());
+            addPlainToken(text.substring(runStart, end), runClass == LINE_BREAK);
         }
-        if (!tail.isEmpty()) {
-            res.add(tail);
+
+        private int getRunClass(char c, boolean isPart) {
+            final int charClass = getCharClass(c);
+            return isPart && charClass == BORDER ? WORD : charClass;
         }
-        return res;
-    }
 
-    private static List<Object> extractUnsplittable(List<Object> text, String prefix, String suffix,
-                                                    Function<TextToken, TextToken> mapper) {
-        List<Object> res = new LinkedList<>();
-        for (Object obj : text) {
-            if (obj instanceof TextToken) {
-                res.add(obj);
-            } else {
-                res.addAll(extractUnsplittable((String) obj, prefix, suffix, mapper));
+        /**
+         * Flags of a plain token depend only on its value, so equal tokens share one instance and one String.
+         */
+        private void addPlainToken(String value, boolean isLineBreak) {
+            TextToken token = plainTokens.get(value);
+            if (token == null) {
+                final byte flags;
+                if (isLineBreak) {
+                    flags = TextToken.META;
+                } else if (ignoreList.contains(value) || isNotActive(value)) {
+                    flags = 0;
+                } else {
+                    flags = TextToken.ACTIVE;
+                }
+                token = new TextToken(value, flags);
+                plainTokens.put(value, token);
             }
+            addToken(token, isLineBreak);
         }
-        return res;
-    }
 
-    private static List<Object> extractPredefinedPart(List<Object> text, String predefinedPart) {
-        List<Object> res = new LinkedList<>();
-        for (Object obj : text) {
-            if (obj instanceof TextToken) {
-                res.add(obj);
+        private void addGroup(int open, int close, boolean unsplittable) {
+            addToken(unsplittable ? SQUARE_OPEN : CURLY_OPEN, false);
+            final String value = text.substring(open + 1, close);
+            final byte groupFlag = unsplittable ? TextToken.UNSPLITTABLE : TextToken.IGNORED;
+            if (containsLineBreak(value)) {
+                // a line break ends a paragraph unless it is inside of an unsplittable token
+                addToken(new TextToken(value, (byte) (groupFlag | TextToken.META)), !unsplittable);
+            } else if (!unsplittable || ignoreList.contains(value) || isNotActive(value)) {
+                addToken(new TextToken(value, groupFlag), false);
             } else {
-                String tail = (String) obj;
-                int idx = tail.indexOf(predefinedPart);
-                while (idx >= 0) {
-                    res.add(tail.substring(0, idx));
-                    res.add(TextToken.builder().value(predefinedPart).build());
-                    tail = tail.substring(idx + predefinedPart.length());
-                    idx = tail.indexOf(predefinedPart);
-                }
-                if (!tail.isEmpty()) {
-                    res.add(tail);
-                }
+                addToken(new TextToken(value, (byte) (groupFlag | TextToken.ACTIVE)), false);
             }
+            addToken(unsplittable ? SQUARE_CLOSE : CURLY_CLOSE, false);
         }
-        return res;
-    }
 
-    private static boolean isEndOfParagraph(TextToken token) {
-        return isSplittableBy(token, R_N);
-    }
+        private void addToken(TextToken token, boolean endsParagraph) {
+            paragraph.add(token);
+            if (endsParagraph) {
+                paragraph.trimToSize();
+                paragraphs.add(paragraph);
+                paragraph = new ArrayList<>();
+            }
+        }
 
-    private static List<TextToken> tokenize(List<Object> text) {
-        List<TextToken> res = new LinkedList<>();
-        for (Object obj : text) {
-            if (obj instanceof TextToken) {
-                res.add((TextToken) obj);
-            } else {
-                String str = (String) obj;
-                for (String part : str.split(SENTENCE_PARTS_DELIMITER)) {
-                    res.add(TextToken.builder().value(part).build());
+        private int indexOf(char c, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (text.charAt(i) == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int indexOf(String str, int from, int to) {
+            for (int i = from; i <= to - str.length(); i++) {
+                if (text.startsWith(str, i)) {
+                    return i;
                 }
             }
+            return -1;
         }
-        return res;
     }
 }
@@ -1,45 +1,100 @@
 package org.igor.onlinegames.wordsgame.manager;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonInclude;
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Builder;
-import lombok.Data;
 import lombok.EqualsAndHashCode;
-import lombok.NoArgsConstructor;
-import lombok.ToString;
 
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
-@Builder
+/**
+ * An immutable token with flags packed into a byte. Tokens are immutable, so equal tokens of a text are shared.
+ * Flags are serialized as true or omitted.
+ */
 @EqualsAndHashCode
-@ToString
 @JsonInclude(JsonInclude.Include.NON_NULL)
-public class TextToken {
-    private String value;
+public final class TextToken {
+    static final byte UNSPLITTABLE = 1;
+    static final byte IGNORED = 2;
+    static final byte META = 4;
+    static final byte ACTIVE = 8;
 
-    private Boolean unsplittable;
-    private Boolean ignored;
-    private Boolean meta;
-    private Boolean active;
+    private final String value;
+    private final byte flags;
+
+    @Builder
+    @JsonCreator
+    public TextToken(@JsonProperty("value") String value,
+                     @JsonProperty("unsplittable") Boolean unsplittable,
+                     @JsonProperty("ignored") Boolean ignored,
+                     @JsonProperty("meta") Boolean meta,
+                     @JsonProperty("active") Boolean active) {
+        this(
+                value,
+                (byte) (flag(unsplittable, UNSPLITTABLE) | flag(ignored, IGNORED) | flag(meta, META) | flag(active, ACTIVE))
+        );
+    }
+
+    TextToken(String value, byte flags) {
+        this.value = value;
+        this.flags = flags;
+    }
+
+    @JsonProperty("value")
+    public String getValue() {
+        return value;
+    }
+
+    @JsonProperty("unsplittable")
+    public Boolean getUnsplittable() {
+        return toBoolean(UNSPLITTABLE);
+    }
+
+    @JsonProperty("ignored")
+    public Boolean getIgnored() {
+        return toBoolean(IGNORED);
+    }
+
+    @JsonProperty("meta")
+    public Boolean getMeta() {
+        return toBoolean(META);
+    }
+
+    @JsonProperty("active")
+    public Boolean getActive() {
+        return toBoolean(ACTIVE);
+    }
 
     public boolean isIgnored() {
-        return isTrue(ignored);
+        return hasFlag(IGNORED);
     }
 
     public boolean isUnsplittable() {
-        return isTrue(unsplittable);
+        return hasFlag(UNSPLITTABLE);
     }
 
     public boolean isMeta() {
-        return isTrue(meta);
+        return hasFlag(META);
     }
 
     public boolean isActive() {
-        return isTrue(active);
+        return hasFlag(ACTIVE);
+    }
+
+    @Override
+    public String toString() {
+        return "TextToken(value=" + value + ", unsplittable=" + getUnsplittable() + ", ignored=" + getIgnored()
+                + ", meta=" + getMeta() + ", active=" + getActive() + ")";
+    }
+
+    private boolean hasFlag(byte flag) {
+        return (flags & flag) != 0;
+    }
+
+    private Boolean toBoolean(byte flag) {
+        return hasFlag(flag) ? Boolean.TRUE : null;
     }
 
-    private boolean isTrue(Boolean flag) {
-        return flag != null && flag;
+    private static int flag(Boolean value, byte flag) {
+        return value != null && value ? flag : 0;
     }
 }
@@ -0,0 +1,131 @@
+package org.igor.onlinegames.wordsgame.manager;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.igor.onlinegames.common.OnlinegamesUtils.sha256Hex;
+
+/**
+ * Tokenized texts shared between games, addressed by hashes of a text and an ignore list. The cache is bounded by
+ * the estimated size of cached tokens and evicts least recently used texts. Texts are tokenized outside of the lock,
+ * so two games may tokenize the same text concurrently, but only the first result is cached and shared.
+ */
+public class TokenizedTextCache {
+    // a token object, its String and the String's array without chars
+    static final int TOKEN_OVERHEAD_BYTES = 64;
+    static final int REFERENCE_BYTES = 4;
+
+    private final long maxWeight;
+    private final LinkedHashMap<String, TokenizedText> texts = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public TokenizedTextCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    public TokenizedText get(String text) {
+        return get(text, null);
+    }
+
+    public TokenizedText get(String text, String ignoreList) {
+        final String textHash = sha256Hex(text);
+        final String key = StringUtils.isBlank(ignoreList) ? textHash : textHash + "/" + sha256Hex(ignoreList);
+        synchronized (this) {
+            final TokenizedText cached = texts.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+        final TokenizedText tokenized = tokenize(textHash, text, ignoreList);
+        synchronized (this) {
+            final TokenizedText cached = texts.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            if (tokenized.getWeight() <= maxWeight) {
+                texts.put(key, tokenized);
+                weight += tokenized.getWeight();
+                evictLeastRecentlyUsed();
+            }
+            return tokenized;
+        }
+    }
+
+    public synchronized TokenizedTextCacheStatsDto getStats() {
+        return TokenizedTextCacheStatsDto.builder()
+                .texts(texts.size())
+                .weight(weight)
+                .maxWeight(maxWeight)
+                .hits(hits)
+                .misses(misses)
+                .evictions(evictions)
+                .build();
+    }
+
+    private void evictLeastRecentlyUsed() {
+        final Iterator<TokenizedText> iterator = texts.values().iterator();
+        while (weight > maxWeight) {
+            weight -= iterator.next().getWeight();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    private static TokenizedText tokenize(String textHash, String text, String ignoreList) {
+        final List<List<TextToken>> paragraphs = new ArrayList<>();
+        final Set<TextToken> distinctTokens = Collections.newSetFromMap(new IdentityHashMap<>());
+        long weight = 0;
+        for (List<TextToken> paragraph : TextProcessing.splitOnParagraphs(text, ignoreList)) {
+            paragraphs.add(Collections.unmodifiableList(paragraph));
+            weight += (long) REFERENCE_BYTES * paragraph.size();
+            for (TextToken token : paragraph) {
+                if (distinctTokens.add(token)) {
+                    weight += TOKEN_OVERHEAD_BYTES + 2L * token.getValue().length();
+                }
+            }
+        }
+        return new TokenizedText(textHash, Collections.unmodifiableList(paragraphs), weight);
+    }
+
+    public static class TokenizedText {
+        private final String textHash;
+        private final List<List<TextToken>> paragraphs;
+        private final long weight;
+
+        private TokenizedText(String textHash, List<List<TextToken>> paragraphs, long weight) {
+            this.textHash = textHash;
+            this.paragraphs = paragraphs;
+            this.weight = weight;
+        }
+
+        /**
+         * @return SHA-256 of the text, doesn't depend on the ignore list
+         */
+        public String getTextHash() {
+            return textHash;
+        }
+
+        public List<List<TextToken>> getParagraphs() {
+            return paragraphs;
+        }
+
+        /**
+         * @return estimated size of the tokens in bytes
+         */
+        public long getWeight() {
+            return weight;
+        }
+    }
+}
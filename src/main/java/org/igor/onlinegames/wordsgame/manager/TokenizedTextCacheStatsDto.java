@@ -0,0 +1,17 @@
+package org.igor.onlinegames.wordsgame.manager;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class TokenizedTextCacheStatsDto {
+    private int texts;
+    private long weight;
+    private long maxWeight;
+    private long hits;
+    private long misses;
+    private long evictions;
+}
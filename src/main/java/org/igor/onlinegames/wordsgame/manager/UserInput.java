@@ -3,6 +3,7 @@ package org.igor.onlinegames.wordsgame.manager;
 import lombok.Builder;
 import lombok.Data;
 
+import java.time.Instant;
 import java.util.Optional;
 
 @Builder
@@ -11,4 +12,6 @@ public class UserInput {
     private String text;
     private Optional<Boolean> correct;
     private boolean confirmed;
+    private Instant enteredAt;
+    private Instant confirmedAt;
 }
@@ -0,0 +1,50 @@
+package org.igor.onlinegames.wordsgame.manager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.igor.onlinegames.common.GameHistoryRecord;
+import org.igor.onlinegames.common.GameHistoryRepository;
+import org.igor.onlinegames.common.GameHistoryStore;
+import org.igor.onlinegames.common.GameHistoryWriter;
+import org.igor.onlinegames.wordsgame.dto.history.WordsGamePlayerInfoDto;
+import org.igor.onlinegames.wordsgame.dto.history.WordsGameRecordDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * History of words games.
+ */
+@Component
+public class WordsGameHistoryStore extends GameHistoryStore<WordsGameRecordDto> {
+    @Autowired
+    public WordsGameHistoryStore(@Value("${app.wordsgame.history-index-days}") int indexDays,
+                                 ObjectMapper mapper,
+                                 @Qualifier("wordsGameHistoryRepository") GameHistoryRepository repository,
+                                 @Qualifier("wordsGameHistoryWriter") GameHistoryWriter historyWriter) {
+        super(WordsGameRecordDto.class, mapper, repository, historyWriter, indexDays);
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        rebuildIndex();
+    }
+
+    @Override
+    protected GameHistoryRecord toHistoryRecord(WordsGameRecordDto game, byte[] data) {
+        return new GameHistoryRecord(
+                game.getStartedAt(),
+                game.getGameId(),
+                game.getPlayers().stream()
+                        .map(WordsGamePlayerInfoDto::getUserId)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()),
+                data
+        );
+    }
+}
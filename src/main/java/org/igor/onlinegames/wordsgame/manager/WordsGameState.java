@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.igor.onlinegames.common.GamePlayersCounts;
+import org.igor.onlinegames.common.HashedTimingWheel;
 import org.igor.onlinegames.common.OnlinegamesUtils;
 import org.igor.onlinegames.exceptions.OnlinegamesException;
 import org.igor.onlinegames.model.GameState;
@@ -22,11 +23,15 @@ import org.igor.onlinegames.wordsgame.dto.WordsGamePhase;
 import org.igor.onlinegames.wordsgame.dto.WordsGamePlayerNameIsOccupiedErrorDto;
 import org.igor.onlinegames.wordsgame.dto.WordsGamePlayerNameWasSetMsgDto;
 import org.igor.onlinegames.wordsgame.dto.WordsGameStateDto;
+import org.igor.onlinegames.wordsgame.dto.WordsGameTextDto;
 import org.igor.onlinegames.wordsgame.dto.WordsPlayerDto;
 import org.igor.onlinegames.wordsgame.dto.WordsPlayerScoreDto;
+import org.igor.onlinegames.wordsgame.dto.history.WordsGamePlayerInfoDto;
+import org.igor.onlinegames.wordsgame.dto.history.WordsGameRecordDto;
+import org.igor.onlinegames.wordsgame.dto.history.WordsGameSelectedWordDto;
+import org.igor.onlinegames.wordsgame.dto.history.WordsGameUserInputDto;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.WebSocketSession;
@@ -44,12 +49,10 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -79,34 +82,40 @@ public class WordsGameState extends State implements GameState {
     private static final Pattern TIMER_VALUE_PATTERN_1 = Pattern.compile("^(\\d+)([sm])$");
     private static final Pattern TIMER_VALUE_PATTERN_2 = Pattern.compile("^(\\d+)m(\\d+)s$");
     private static final String PLAYER_NAME = "PLAYER_NAME";
+    private static final String SENT_TEXT_VERSION = "SENT_TEXT_VERSION";
     private static final Duration INACTIVITY_INTERVAL = Duration.of(30, ChronoUnit.MINUTES);
 
-    @Value("${app.wordsgame.history-path}")
-    private String historyPath;
     @Autowired
     private ObjectMapper mapper;
     @Autowired
+    private WordsGameHistoryStore historyStore;
+    @Autowired
     @Qualifier("wordsGamePlayersCounts")
     private GamePlayersCounts gamePlayersCounts;
-    private Instant lastActionAt = Instant.now();
+    @Autowired
+    private HashedTimingWheel timingWheel;
+    @Autowired
+    private TokenizedTextCache tokenizedTextCache;
+    private volatile Instant lastActionAt = Instant.now();
 
     private String title;
     private String passcode;
     private Set<UUID> userIdsEverConnected = new HashSet<>();
-    private WordsGamePhase phase = WAITING_FOR_PLAYERS_TO_JOIN;
-    private UUID gameOwnerUserId;
+    private volatile WordsGamePhase phase = WAITING_FOR_PLAYERS_TO_JOIN;
+    private volatile UUID gameOwnerUserId;
     private List<WordsPlayer> players;
     private Map<UUID,WordsPlayer> userIdToPlayer;
     private Map<Integer,WordsPlayer> playerIdToPlayer;
     private String timerStr;
     private Integer timerSeconds;
-    private ScheduledExecutorService scheduledExecutorService;
-    private ScheduledFuture<?> timerHandle;
+    private HashedTimingWheel.Timeout timerHandle;
     private WordsPlayer playerToMove;
     private String textToLearn;
-    private List<List<TextToken>> words;
+    private volatile List<List<TextToken>> words;
+    private WordsGameTextDto text;
     private SelectedWord prevSelectedWord;
     private SelectedWord selectedWord;
+    private WordsGameRecordDto history;
 
     @Override
     protected void init(JsonNode args) {
@@ -114,7 +123,7 @@ public class WordsGameState extends State implements GameState {
         if (StringUtils.isEmpty(textToLearn)) {
             throw new OnlinegamesException("StringUtils.isEmpty(wordsToLearnStr)");
         }
-        words = TextProcessing.splitOnParagraphs(textToLearn);
+        text = createTextDto();
         timerStr = getNonEmptyTextFromParams(args, TIMER);
         timerSeconds = parseTimerValue(timerStr);
         title = getNonEmptyTextFromParams(args, TITLE);
@@ -122,7 +131,8 @@ public class WordsGameState extends State implements GameState {
     }
 
     @Override
-    public synchronized boolean bind(WebSocketSession session, JsonNode bindParams) {
+    public boolean bind(WebSocketSession session, JsonNode bindParams) {
+        session.getAttributes().remove(SENT_TEXT_VERSION);
         if (phase == WAITING_FOR_PLAYERS_TO_JOIN) {
             if (gameOwnerUserId == null) {
                 gameOwnerUserId = extractUserIdFromSession(session);
@@ -156,13 +166,13 @@ public class WordsGameState extends State implements GameState {
     }
 
     @Override
-    public synchronized void unbind(WebSocketSession session) {
+    public void unbind(WebSocketSession session) {
         super.unbind(session);
         broadcastGameState();
     }
 
     @RpcMethod
-    public synchronized void setPlayerName(WebSocketSession session, String playerName) {
+    public void setPlayerName(WebSocketSession session, String playerName) {
         playerName = sanitizePlayerName(playerName);
         if (checkPlayerNameIsUnique(session, playerName)) {
             savePlayerNameToSession(session, playerName);
@@ -179,7 +189,7 @@ public class WordsGameState extends State implements GameState {
     }
 
     @RpcMethod
-    public synchronized void discard(WebSocketSession session) {
+    public void discard(WebSocketSession session) {
         if (phase != WAITING_FOR_PLAYERS_TO_JOIN) {
             return;
         }
@@ -193,7 +203,7 @@ public class WordsGameState extends State implements GameState {
     }
 
     @RpcMethod
-    public synchronized void end(WebSocketSession session) {
+    public void end(WebSocketSession session) {
         if (phase != SELECT_WORD && phase != ENTER_WORD) {
             return;
         }
@@ -202,12 +212,13 @@ public class WordsGameState extends State implements GameState {
             sendMessageToFe(session, new WordsGameErrorDto("You don't have permissions to end this game."));
         } else {
             phase = FINISHED;
+            saveHistory();
             broadcastGameState();
         }
     }
 
     @RpcMethod
-    public synchronized void setTextToLearn(WebSocketSession session, String newTextToLearn) {
+    public void setTextToLearn(WebSocketSession session, String newTextToLearn) {
         executeOnBehalfOfPlayer(session, player -> setTextToLearn(player, newTextToLearn));
     }
 
@@ -216,14 +227,14 @@ public class WordsGameState extends State implements GameState {
                 && player.isGameOwner()
                 && StringUtils.isNoneBlank(newTextToLearn)) {
             textToLearn = newTextToLearn;
-            words = TextProcessing.splitOnParagraphs(textToLearn);
+            text = createTextDto();
             player.sendMessageToFe(new WordsGameNewTextWasSavedMsgDto());
             broadcastGameState();
         }
     }
 
     @RpcMethod
-    public synchronized void startGame(WebSocketSession session) {
+    public void startGame(WebSocketSession session) {
         if (phase != WAITING_FOR_PLAYERS_TO_JOIN) {
             return;
         }
@@ -260,28 +271,44 @@ public class WordsGameState extends State implements GameState {
             playerToMove = players.get(0);
             phase = SELECT_WORD;
             if (timerSeconds != null) {
-                scheduledExecutorService = Executors.newScheduledThreadPool(1);
                 startTimerForCurrentPlayer();
             }
+            history = WordsGameRecordDto.builder()
+                    .gameId(stateId)
+                    .startedAt(Instant.now())
+                    .title(title)
+                    .selectedWords(new ArrayList<>())
+                    .build();
             broadcastGameState();
         }
     }
 
     @RpcMethod
-    public synchronized void selectWord(WebSocketSession session, int paragraphIndex, int wordIndex, String text) {
+    public void selectWord(WebSocketSession session, int paragraphIndex, int wordIndex, String text) {
         if (phase == SELECT_WORD) {
             executeOnBehalfOfPlayer(session, player -> selectWord(player, paragraphIndex, wordIndex, text));
         }
     }
 
     @RpcMethod
-    public synchronized void enterWord(WebSocketSession session, String text) {
+    public void enterWord(WebSocketSession session, String text) {
         if (phase == ENTER_WORD) {
             executeOnBehalfOfPlayer(session, player -> enterWord(player, text));
         }
     }
 
-    protected synchronized void onTimer() {
+    /**
+     * Resends the text to a client which got a state referring to a text version it has not received.
+     */
+    @RpcMethod
+    public void requestText(WebSocketSession session, String textVersion) {
+        if (text != null && text.getTextVersion().equals(textVersion)) {
+            sendMessageToFe(session, text);
+            session.getAttributes().put(SENT_TEXT_VERSION, textVersion);
+        }
+    }
+
+    protected void onTimer() {
         if (timerHandle != null) {
 
         }
@@ -365,6 +392,15 @@ public class WordsGameState extends State implements GameState {
         }
     }
 
+    private Object getViewKey(WebSocketSession session) {
+        final WordsPlayer player = sessionToPlayer(session);
+        if (player.getPlayerId() != null) {
+            return player.getPlayerId();
+        } else {
+            return Pair.of(player.isGameOwner(), player.getName());
+        }
+    }
+
     private WordsPlayer sessionToMinimalPlayer(WebSocketSession session) {
         return WordsPlayer.builder()
                 .gameOwner(extractUserIdFromSession(session).equals(gameOwnerUserId))
@@ -385,9 +421,7 @@ public class WordsGameState extends State implements GameState {
     }
 
     private void sendMessageToFe(UUID userId, Object msg) {
-        sessions.stream()
-                .filter(session -> extractUserIdFromSession(session).equals(userId))
-                .forEach(session -> sendMessageToFe(session, msg));
+        sendMessageToFe(session -> extractUserIdFromSession(session).equals(userId), msg);
     }
 
     private void executeOnBehalfOfPlayer(WebSocketSession session, Consumer<WordsPlayer> executor) {
@@ -439,8 +473,7 @@ public class WordsGameState extends State implements GameState {
                     .currentPlayerName(player.getName())
                     .currentUserIsGameOwner(player.isGameOwner())
                     .timerSeconds(getRemainingTimerDelay())
-                    .textToLearn(textToLearn)
-                    .words(words)
+                    .textVersion(text.getTextVersion())
                     .build();
         } else {
             final Comparator<Pair<Double, WordsPlayerDto>> comparator = Comparator.comparing(Pair::getLeft);
@@ -451,8 +484,7 @@ public class WordsGameState extends State implements GameState {
                     .currentPlayerId(player.getPlayerId())
                     .players(createPlayersDto(player, players))
                     .playerIdToMove(nullSafeGetter(playerToMove, WordsPlayer::getPlayerId))
-                    .textToLearn(textToLearn)
-                    .words(words)
+                    .textVersion(text.getTextVersion())
                     .selectedWord(createViewOfSelectedWord(player).getSelectedWord())
                     .finalScores(
                             phase != FINISHED ? null
@@ -618,13 +650,18 @@ public class WordsGameState extends State implements GameState {
             if (!userInput.getCorrect().isPresent()) {
                 userInput.setCorrect(Optional.of(selectedWord.getTextUpperCase().equals(userInputTextUpperCase)));
                 userInput.setText(text.trim());
+                userInput.setEnteredAt(lastActionAt);
                 player.getScore().setNumOfAllWords(player.getScore().getNumOfAllWords()+1);
                 if (userInput.getCorrect().get()) {
                     userInput.setConfirmed(true);
+                    userInput.setConfirmedAt(lastActionAt);
                     player.getScore().setNumOfCorrectWords(player.getScore().getNumOfCorrectWords()+1);
                 }
             } else if (!userInput.getCorrect().get() && !userInput.isConfirmed()) {
                 userInput.setConfirmed(selectedWord.getTextUpperCase().equals(userInputTextUpperCase));
+                if (userInput.isConfirmed()) {
+                    userInput.setConfirmedAt(lastActionAt);
+                }
             }
             if (!selectedWord.getUserInputs().entrySet().stream()
                     .map(e -> e.getValue())
@@ -632,6 +669,7 @@ public class WordsGameState extends State implements GameState {
                     .filter(c -> !c)
                     .findAny()
                     .isPresent()) {
+                history.getSelectedWords().add(createSelectedWordHistory(selectedWord));
                 prevSelectedWord = selectedWord;
                 selectedWord = null;
                 phase = SELECT_WORD;
@@ -673,6 +711,8 @@ public class WordsGameState extends State implements GameState {
             }
             lastActionAt = Instant.now();
             selectedWord = SelectedWord.builder()
+                    .playerId(player.getPlayerId())
+                    .selectedAt(lastActionAt)
                     .paragraphIndex(paragraphIndex)
                     .wordIndex(wordIndex)
                     .text(StringUtils.trimToEmpty(text))
@@ -694,25 +734,93 @@ public class WordsGameState extends State implements GameState {
         }
     }
 
+    private void saveHistory() {
+        if (selectedWord != null) {
+            history.getSelectedWords().add(createSelectedWordHistory(selectedWord));
+        }
+        history.setFinishedAt(Instant.now());
+        history.setTextHash(text.getTextVersion());
+        history.setPlayers(
+                players.stream()
+                        .map(player -> WordsGamePlayerInfoDto.builder()
+                                .userId(player.getUserId())
+                                .playerId(player.getPlayerId())
+                                .playerName(player.getName() == null ? "Incognito" : player.getName())
+                                .numOfAllWords(player.getScore().getNumOfAllWords())
+                                .numOfCorrectWords(player.getScore().getNumOfCorrectWords())
+                                .build()
+                        ).collect(Collectors.toList())
+        );
+        historyStore.save(history);
+    }
+
+    private WordsGameSelectedWordDto createSelectedWordHistory(SelectedWord word) {
+        return WordsGameSelectedWordDto.builder()
+                .playerId(word.getPlayerId())
+                .time(word.getSelectedAt())
+                .paragraphIndex(word.getParagraphIndex())
+                .wordIndex(word.getWordIndex())
+                .text(word.getText())
+                .userInputs(
+                        word.getUserInputs().entrySet().stream()
+                                .filter(entry -> entry.getKey() != word.getPlayerId())
+                                .sorted(Map.Entry.comparingByKey())
+                                .map(entry -> createUserInputHistory(word, entry.getKey(), entry.getValue()))
+                                .collect(Collectors.toList())
+                ).build();
+    }
+
+    private WordsGameUserInputDto createUserInputHistory(SelectedWord word, int playerId, UserInput userInput) {
+        return WordsGameUserInputDto.builder()
+                .playerId(playerId)
+                .text(StringUtils.trimToNull(userInput.getText()))
+                .correct(userInput.getCorrect().orElse(null))
+                .confirmed(userInput.isConfirmed())
+                .enteredAfterMillis(millisSince(word.getSelectedAt(), userInput.getEnteredAt()))
+                .confirmedAfterMillis(millisSince(word.getSelectedAt(), userInput.getConfirmedAt()))
+                .build();
+    }
+
+    private static Long millisSince(Instant start, Instant end) {
+        return end == null ? null : Duration.between(start, end).toMillis();
+    }
+
     private WordsPlayer getNextPlayerToMove() {
         return players.get((playerToMove.getPlayerId()+1)%players.size());
     }
 
     private void broadcastGameState() {
-        sessions.forEach(session -> sendMessageToFe(session, createViewOfCurrentState(sessionToPlayer(session))));
+        sendTextToFe();
+        sendStateSnapshotsToFe(this::getViewKey, session -> createViewOfCurrentState(sessionToPlayer(session)));
+    }
+
+    /**
+     * Sends the text to sessions which have not received its current version yet. The text message is enqueued
+     * before the state which refers to it and is never coalesced, so a session always has the text it is shown.
+     */
+    private void sendTextToFe() {
+        final String textVersion = text.getTextVersion();
+        final Predicate<WebSocketSession> hasNoText =
+                session -> !textVersion.equals(session.getAttributes().get(SENT_TEXT_VERSION));
+        if (sessions.stream().anyMatch(hasNoText)) {
+            sendMessageToFe(hasNoText, text);
+            sessions.forEach(session -> session.getAttributes().put(SENT_TEXT_VERSION, textVersion));
+        }
+    }
+
+    private WordsGameTextDto createTextDto() {
+        final TokenizedTextCache.TokenizedText tokenizedText = tokenizedTextCache.get(textToLearn);
+        words = tokenizedText.getParagraphs();
+        return new WordsGameTextDto(tokenizedText.getTextHash(), textToLearn, words);
     }
 
     private void broadcastSelectedWord() {
-        sessions.forEach(session -> sendMessageToFe(session, createViewOfSelectedWord(sessionToPlayer(session))));
+        sendViewsToFe(this::getViewKey, session -> createViewOfSelectedWord(sessionToPlayer(session)));
     }
 
     private void broadcastPhaseChange() {
-        sessions.forEach(session -> sendMessageToFe(
-                session,
-                createViewOfCurrentState(sessionToPlayer(session))
-                .withTextToLearn(null)
-                .withWords(null)
-        ));
+        sendTextToFe();
+        sendViewsToFe(this::getViewKey, session -> createViewOfCurrentState(sessionToPlayer(session)));
     }
 
     private List<WordsPlayerDto> createPlayersDto(WordsPlayer viewer, List<WordsPlayer> players) {
@@ -761,18 +869,18 @@ public class WordsGameState extends State implements GameState {
 
     private void startTimerForCurrentPlayer() {
         if (timerHandle != null) {
-            timerHandle.cancel(true);
+            timerHandle.cancel();
         }
         timerHandle = startTimerForPlayer(playerToMove);
     }
 
-    private ScheduledFuture<?> startTimerForPlayer(WordsPlayer player) {
-        return scheduledExecutorService.schedule(
-                () -> {
+    private HashedTimingWheel.Timeout startTimerForPlayer(WordsPlayer player) {
+        return timingWheel.schedule(
+                () -> execute(() -> {
                     if (playerToMove == player) {
                         onTimer();
                     }
-                },
+                }),
                 timerSeconds + 1,
                 TimeUnit.SECONDS
         );
@@ -780,13 +888,9 @@ public class WordsGameState extends State implements GameState {
 
     private void shutdownTimer() {
         if (timerHandle != null) {
-            timerHandle.cancel(true);
+            timerHandle.cancel();
             timerHandle = null;
         }
-        if (scheduledExecutorService != null) {
-            scheduledExecutorService.shutdownNow();
-            scheduledExecutorService = null;
-        }
     }
 
     private String getPlayerNameFromSession(UUID userId) {
@@ -799,42 +903,42 @@ public class WordsGameState extends State implements GameState {
     }
 
     @Override
-    protected synchronized Object getViewRepresentation() {
-        return this.getClass().getSimpleName() + "[scheduledExecutorService=" + scheduledExecutorService + "]";
+    protected Object getViewRepresentation() {
+        return this.getClass().getSimpleName() + "[timerHandle=" + timerHandle + "]";
     }
 
     @Override
-    public synchronized boolean isWaitingForPlayersToJoin() {
+    public boolean isWaitingForPlayersToJoin() {
         return phase == WAITING_FOR_PLAYERS_TO_JOIN;
     }
 
     @Override
-    public synchronized boolean isInProgress() {
+    public boolean isInProgress() {
         return phase == SELECT_WORD || phase == ENTER_WORD;
     }
 
     @Override
-    public synchronized String gameType() {
+    public String gameType() {
         return "WordsGame";
     }
 
     @Override
-    public synchronized String gameDisplayType() {
+    public String gameDisplayType() {
         return "Words Game";
     }
 
     @Override
-    public synchronized String getTitle() {
+    public String getTitle() {
         return title;
     }
 
     @Override
-    public synchronized boolean hasPasscode() {
+    public boolean hasPasscode() {
         return passcode != null;
     }
 
     @Override
-    public synchronized String getShortDescription() {
+    public String getShortDescription() {
         return "W " + words.stream()
                 .map(List::stream)
                 .map(stream -> stream.filter(word -> word.getActive() != null && word.getActive()).count())
@@ -843,17 +947,17 @@ public class WordsGameState extends State implements GameState {
     }
 
     @Override
-    public synchronized boolean isOwner(UserSessionData userData) {
+    public boolean isOwner(UserSessionData userData) {
         return userData.getUserId().equals(gameOwnerUserId);
     }
 
     @Override
-    public synchronized boolean mayBeRemoved() {
+    public boolean mayBeRemoved() {
         return Duration.between(lastActionAt, Instant.now()).compareTo(INACTIVITY_INTERVAL) > 0;
     }
 
     @Override
-    public synchronized void preDestroy() {
+    public void preDestroy() {
         unbindAndCloseAllWebSockets();
         shutdownTimer();
     }
@@ -6,6 +6,7 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
 @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
 @JsonSubTypes({
         @JsonSubTypes.Type(value = XoGameStateDto.class, name = "state"),
+        @JsonSubTypes.Type(value = XoGameStateDeltaDto.class, name = "state:delta"),
         @JsonSubTypes.Type(value = XoGameMsgDto.class, name = "msg"),
         @JsonSubTypes.Type(value = XoGamePlayerNameWasSetMsgDto.class, name = "msg:PlayerNameWasSet"),
         @JsonSubTypes.Type(value = XoGameErrorDto.class, name = "error"),
@@ -0,0 +1,20 @@
+package org.igor.onlinegames.xogame.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class XoGameStateDeltaDto implements XoGameDto {
+    private long seq;
+    private XoGamePhase phase;
+    private XoCellDto cell;
+    private Integer timerSeconds;
+    private Integer playerIdToMove;
+    private Integer winnerId;
+    private List<List<Integer>> winnerPath;
+}
@@ -10,6 +10,7 @@ import java.util.List;
 @Builder
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class XoGameStateDto implements XoGameDto {
+    private long seq;
     private String title;
     private String passcode;
     private XoGamePhase phase;
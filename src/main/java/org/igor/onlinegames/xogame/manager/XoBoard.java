@@ -0,0 +1,144 @@
+package org.igor.onlinegames.xogame.manager;
+
+import org.igor.onlinegames.exceptions.OnlinegamesException;
+import org.igor.onlinegames.xogame.dto.XoCellDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.igor.onlinegames.common.OnlinegamesUtils.listOf;
+
+public class XoBoard {
+    private static final int[][] LINE_DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+    private static final byte EMPTY = 0;
+
+    private final int size;
+    private final int goal;
+    private final byte[] cells;
+    private final int[] takenCells;
+    private int numOfTakenCells;
+    private final XoDrawDetector drawDetector;
+
+    public XoBoard(int size, int goal) {
+        this.size = size;
+        this.goal = goal;
+        cells = new byte[size * size];
+        takenCells = new int[size * size];
+        drawDetector = new XoDrawDetector(size, goal);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isOnBoard(int x, int y) {
+        return 0 <= x && x < size && 0 <= y && y < size;
+    }
+
+    public boolean isEmpty(int x, int y) {
+        return cells[x * size + y] == EMPTY;
+    }
+
+    public Character getSymbol(int x, int y) {
+        final byte cell = cells[x * size + y];
+        return cell == EMPTY ? null : (char) cell;
+    }
+
+    public void put(int x, int y, char symbol) {
+        if (symbol == EMPTY || symbol > Byte.MAX_VALUE) {
+            throw new OnlinegamesException("Unsupported symbol '" + symbol + "'");
+        }
+        final int idx = x * size + y;
+        if (cells[idx] != EMPTY) {
+            throw new OnlinegamesException("cells[" + x + "][" + y + "] != EMPTY");
+        }
+        cells[idx] = (byte) symbol;
+        takenCells[numOfTakenCells++] = idx;
+        drawDetector.cellTaken(x, y, symbol);
+    }
+
+    public boolean isDraw() {
+        return drawDetector.isDraw();
+    }
+
+    public List<XoCellDto> createCellsDto() {
+        final List<XoCellDto> cellsDto = new ArrayList<>(numOfTakenCells);
+        for (int i = 0; i < numOfTakenCells; i++) {
+            final int idx = takenCells[i];
+            cellsDto.add(XoCellDto.builder().x(idx / size).y(idx % size).symbol((char) cells[idx]).build());
+        }
+        return cellsDto;
+    }
+
+    public List<List<Integer>> findWinnerPath(int x, int y) {
+        final byte symbol = cells[x * size + y];
+        if (symbol == EMPTY) {
+            return null;
+        }
+        int startX = -1;
+        int startY = -1;
+        int dirX = 0;
+        int dirY = 0;
+        int length = 0;
+        for (int[] lineDirection : LINE_DIRECTIONS) {
+            final int ux = lineDirection[0];
+            final int uy = lineDirection[1];
+            final int backward = countSameSymbol(symbol, x, y, -ux, -uy);
+            final int forward = countSameSymbol(symbol, x, y, ux, uy);
+            if (backward + 1 + forward < goal) {
+                continue;
+            }
+            final int fwdStartX = x - backward * ux;
+            final int fwdStartY = y - backward * uy;
+            if (startX < 0 || isBefore(fwdStartX, fwdStartY, ux, uy, startX, startY, dirX, dirY)) {
+                startX = fwdStartX;
+                startY = fwdStartY;
+                dirX = ux;
+                dirY = uy;
+                length = backward + 1 + forward;
+            }
+            final int bwdOffset = Math.max(0, goal - 1 - backward);
+            final int bwdStartX = x + bwdOffset * ux;
+            final int bwdStartY = y + bwdOffset * uy;
+            if (isBefore(bwdStartX, bwdStartY, -ux, -uy, startX, startY, dirX, dirY)) {
+                startX = bwdStartX;
+                startY = bwdStartY;
+                dirX = -ux;
+                dirY = -uy;
+                length = bwdOffset + 1 + backward;
+            }
+        }
+        if (startX < 0) {
+            return null;
+        }
+        final List<List<Integer>> path = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            path.add(listOf(startX + i * dirX, startY + i * dirY));
+        }
+        return path;
+    }
+
+    private int countSameSymbol(byte symbol, int x, int y, int dx, int dy) {
+        int cnt = 0;
+        x += dx;
+        y += dy;
+        while (isOnBoard(x, y) && cells[x * size + y] == symbol) {
+            cnt++;
+            x += dx;
+            y += dy;
+        }
+        return cnt;
+    }
+
+    private static boolean isBefore(int x1, int y1, int dx1, int dy1, int x2, int y2, int dx2, int dy2) {
+        if (x1 != x2) {
+            return x1 < x2;
+        } else if (y1 != y2) {
+            return y1 < y2;
+        } else if (dx1 != dx2) {
+            return dx1 < dx2;
+        } else {
+            return dy1 < dy2;
+        }
+    }
+}
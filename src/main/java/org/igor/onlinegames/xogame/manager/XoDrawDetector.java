@@ -0,0 +1,63 @@
+package org.igor.onlinegames.xogame.manager;
+
+public class XoDrawDetector {
+    private static final int[][] LINE_DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+    private static final char EMPTY = '\0';
+    private static final char BLOCKED = '\uffff';
+
+    private final int fieldSize;
+    private final int goal;
+    private final char[][] windowOwners;
+    private int numOfWinnableWindows;
+
+    public XoDrawDetector(int fieldSize, int goal) {
+        this.fieldSize = fieldSize;
+        this.goal = goal;
+        windowOwners = new char[LINE_DIRECTIONS.length][fieldSize * fieldSize];
+        for (int d = 0; d < LINE_DIRECTIONS.length; d++) {
+            for (int x = 0; x < fieldSize; x++) {
+                for (int y = 0; y < fieldSize; y++) {
+                    if (isValidWindow(d, x, y)) {
+                        numOfWinnableWindows++;
+                    }
+                }
+            }
+        }
+    }
+
+    public void cellTaken(int x, int y, char symbol) {
+        for (int d = 0; d < LINE_DIRECTIONS.length; d++) {
+            final int dx = LINE_DIRECTIONS[d][0];
+            final int dy = LINE_DIRECTIONS[d][1];
+            final char[] owners = windowOwners[d];
+            for (int i = 0; i < goal; i++) {
+                final int startX = x - i * dx;
+                final int startY = y - i * dy;
+                if (isValidWindow(d, startX, startY)) {
+                    final int idx = startX * fieldSize + startY;
+                    final char owner = owners[idx];
+                    if (owner == EMPTY) {
+                        owners[idx] = symbol;
+                    } else if (owner != BLOCKED && owner != symbol) {
+                        owners[idx] = BLOCKED;
+                        numOfWinnableWindows--;
+                    }
+                }
+            }
+        }
+    }
+
+    public boolean isDraw() {
+        return numOfWinnableWindows == 0;
+    }
+
+    private boolean isValidWindow(int d, int startX, int startY) {
+        final int endX = startX + (goal - 1) * LINE_DIRECTIONS[d][0];
+        final int endY = startY + (goal - 1) * LINE_DIRECTIONS[d][1];
+        return isOnField(startX, startY) && isOnField(endX, endY);
+    }
+
+    private boolean isOnField(int x, int y) {
+        return 0 <= x && x < fieldSize && 0 <= y && y < fieldSize;
+    }
+}
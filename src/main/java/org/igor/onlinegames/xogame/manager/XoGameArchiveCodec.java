@@ -0,0 +1,210 @@
+package org.igor.onlinegames.xogame.manager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.igor.onlinegames.common.GameHistoryArchiveCodec;
+import org.igor.onlinegames.common.GameHistoryRecord;
+import org.igor.onlinegames.common.RawGameHistoryArchiveCodec;
+import org.igor.onlinegames.xogame.dto.history.XoGameMoveDto;
+import org.igor.onlinegames.xogame.dto.history.XoGamePlayerInfoDto;
+import org.igor.onlinegames.xogame.dto.history.XoGameRecordDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.igor.onlinegames.common.GameHistoryArchiveCodec.readSignedVarLong;
+import static org.igor.onlinegames.common.GameHistoryArchiveCodec.readVarLong;
+import static org.igor.onlinegames.common.GameHistoryArchiveCodec.writeSignedVarLong;
+import static org.igor.onlinegames.common.GameHistoryArchiveCodec.writeVarLong;
+
+/**
+ * Stores an XO game without field names: times are nanoseconds since the previous time (the game start for the first
+ * move), coordinates and numbers are variable length numbers, players refer to user ids of the record. A game is
+ * decoded back to JSON. If a game cannot be restored exactly from the compact form, its JSON is stored as is.
+ */
+public class XoGameArchiveCodec implements GameHistoryArchiveCodec {
+    private static final byte RAW = 0;
+    private static final byte COMPACT = 1;
+
+    private final ObjectMapper mapper;
+    private final RawGameHistoryArchiveCodec rawCodec = new RawGameHistoryArchiveCodec();
+
+    public XoGameArchiveCodec(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    @Override
+    public void writeData(GameHistoryRecord record, DataOutput out) throws IOException {
+        final byte[] compact = encode(record);
+        if (compact != null) {
+            out.writeByte(COMPACT);
+            out.write(compact);
+        } else {
+            out.writeByte(RAW);
+            rawCodec.writeData(record, out);
+        }
+    }
+
+    @Override
+    public byte[] readData(GameHistoryRecord record, DataInput in) throws IOException {
+        final byte format = in.readByte();
+        if (format == RAW) {
+            return rawCodec.readData(record, in);
+        } else if (format == COMPACT) {
+            return mapper.writeValueAsBytes(readGame(record, in));
+        } else {
+            throw new IOException("Unknown format " + format + " of game " + record.getGameId());
+        }
+    }
+
+    /**
+     * @return the compact form of the game or null if the game cannot be restored from it
+     */
+    private byte[] encode(GameHistoryRecord record) {
+        try {
+            final XoGameRecordDto game = mapper.readValue(record.getData(), XoGameRecordDto.class);
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            writeGame(record, game, new DataOutputStream(bytes));
+            final byte[] compact = bytes.toByteArray();
+            final XoGameRecordDto restored = readGame(record, new DataInputStream(new ByteArrayInputStream(compact)));
+            return game.equals(restored) ? compact : null;
+        } catch (IOException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+    private void writeGame(GameHistoryRecord record, XoGameRecordDto game, DataOutput out) throws IOException {
+        writeSignedVarLong(out, Duration.between(record.getStartedAt(), game.getStartedAt()).toNanos());
+        writeNullableTime(out, game.getStartedAt(), game.getFinishedAt());
+        writeVarLong(out, game.getFieldSize());
+        writeVarLong(out, game.getGoal());
+        writeNullableInt(out, game.getSecondsPerMove());
+        writeVarLong(out, game.getPlayers().size());
+        for (XoGamePlayerInfoDto player : game.getPlayers()) {
+            // 0 for no user
+            writeVarLong(out, player.getUserId() == null ? 0 : record.getUserIds().indexOf(player.getUserId()) + 1);
+            writeSignedVarLong(out, player.getPlayerId());
+            out.writeBoolean(player.getPlayerName() != null);
+            if (player.getPlayerName() != null) {
+                out.writeUTF(player.getPlayerName());
+            }
+        }
+        final List<XoGameMoveDto> moves = game.getMoves();
+        writeVarLong(out, moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            writeSignedVarLong(out, moves.get(i).getMoveNumber() - (i + 1L));
+        }
+        for (XoGameMoveDto move : moves) {
+            writeSignedVarLong(out, move.getPlayerId());
+        }
+        Instant prevTime = game.getStartedAt();
+        for (XoGameMoveDto move : moves) {
+            writeSignedVarLong(out, Duration.between(prevTime, move.getTime()).toNanos());
+            prevTime = move.getTime();
+        }
+        for (XoGameMoveDto move : moves) {
+            writeVarLong(out, move.getX());
+            writeVarLong(out, move.getY());
+        }
+        out.writeByte(game.getDraw() == null ? 0 : game.getDraw() ? 2 : 1);
+        out.writeBoolean(game.getWinnerPath() != null);
+        if (game.getWinnerPath() != null) {
+            writeVarLong(out, game.getWinnerPath().size());
+            for (List<Integer> cell : game.getWinnerPath()) {
+                writeVarLong(out, cell.size());
+                for (Integer coordinate : cell) {
+                    writeVarLong(out, coordinate);
+                }
+            }
+        }
+        writeNullableInt(out, game.getWinnerId());
+    }
+
+    private XoGameRecordDto readGame(GameHistoryRecord record, DataInput in) throws IOException {
+        final Instant startedAt = record.getStartedAt().plusNanos(readSignedVarLong(in));
+        final XoGameRecordDto game = XoGameRecordDto.builder()
+                .gameId(record.getGameId())
+                .startedAt(startedAt)
+                .finishedAt(readNullableTime(in, startedAt))
+                .fieldSize((int) readVarLong(in))
+                .goal((int) readVarLong(in))
+                .secondsPerMove(readNullableInt(in))
+                .build();
+        final int numOfPlayers = (int) readVarLong(in);
+        final List<XoGamePlayerInfoDto> players = new ArrayList<>(numOfPlayers);
+        for (int i = 0; i < numOfPlayers; i++) {
+            final int userNumber = (int) readVarLong(in);
+            players.add(XoGamePlayerInfoDto.builder()
+                    .userId(userNumber == 0 ? null : record.getUserIds().get(userNumber - 1))
+                    .playerId((int) readSignedVarLong(in))
+                    .playerName(in.readBoolean() ? in.readUTF() : null)
+                    .build());
+        }
+        game.setPlayers(players);
+        final int numOfMoves = (int) readVarLong(in);
+        final List<XoGameMoveDto> moves = new ArrayList<>(numOfMoves);
+        for (int i = 0; i < numOfMoves; i++) {
+            moves.add(XoGameMoveDto.builder().moveNumber((int) (readSignedVarLong(in) + i + 1)).build());
+        }
+        for (XoGameMoveDto move : moves) {
+            move.setPlayerId((int) readSignedVarLong(in));
+        }
+        Instant prevTime = startedAt;
+        for (XoGameMoveDto move : moves) {
+            prevTime = prevTime.plusNanos(readSignedVarLong(in));
+            move.setTime(prevTime);
+        }
+        for (XoGameMoveDto move : moves) {
+            move.setX((int) readVarLong(in));
+            move.setY((int) readVarLong(in));
+        }
+        game.setMoves(moves);
+        final byte draw = in.readByte();
+        game.setDraw(draw == 0 ? null : draw == 2);
+        if (in.readBoolean()) {
+            final int pathLength = (int) readVarLong(in);
+            final List<List<Integer>> winnerPath = new ArrayList<>(pathLength);
+            for (int i = 0; i < pathLength; i++) {
+                final int cellSize = (int) readVarLong(in);
+                final List<Integer> cell = new ArrayList<>(cellSize);
+                for (int j = 0; j < cellSize; j++) {
+                    cell.add((int) readVarLong(in));
+                }
+                winnerPath.add(cell);
+            }
+            game.setWinnerPath(winnerPath);
+        }
+        game.setWinnerId(readNullableInt(in));
+        return game;
+    }
+
+    private static void writeNullableTime(DataOutput out, Instant base, Instant time) throws IOException {
+        out.writeBoolean(time != null);
+        if (time != null) {
+            writeSignedVarLong(out, Duration.between(base, time).toNanos());
+        }
+    }
+
+    private static Instant readNullableTime(DataInput in, Instant base) throws IOException {
+        return in.readBoolean() ? base.plusNanos(readSignedVarLong(in)) : null;
+    }
+
+    private static void writeNullableInt(DataOutput out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeSignedVarLong(out, value);
+        }
+    }
+
+    private static Integer readNullableInt(DataInput in) throws IOException {
+        return in.readBoolean() ? (int) readSignedVarLong(in) : null;
+    }
+}
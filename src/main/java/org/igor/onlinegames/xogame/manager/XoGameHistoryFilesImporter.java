@@ -0,0 +1,89 @@
+package org.igor.onlinegames.xogame.manager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.igor.onlinegames.common.GameHistoryRepository;
+import org.igor.onlinegames.xogame.dto.history.XoGameRecordDto;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Moves XO games saved one JSON file per game (yyyy_MM_dd/xogame-*.json, as older versions did) into the history
+ * repository. Runs until it succeeds once: when all files are imported, a marker file is created in the directory.
+ * Games which are already in the repository are skipped, so an interrupted import is safely restarted. The files
+ * themselves are left in place.
+ */
+@Slf4j
+class XoGameHistoryFilesImporter {
+    static final String MARKER_FILE_NAME = "imported";
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy_MM_dd");
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy_MM_dd__HH_mm_ss");
+
+    private final ObjectMapper mapper;
+    private final GameHistoryRepository repository;
+
+    XoGameHistoryFilesImporter(ObjectMapper mapper, GameHistoryRepository repository) {
+        this.mapper = mapper;
+        this.repository = repository;
+    }
+
+    /**
+     * @return the number of imported games
+     */
+    int importFiles(Path historyDir) throws IOException {
+        final Path marker = historyDir.resolve(MARKER_FILE_NAME);
+        if (!Files.isDirectory(historyDir) || Files.exists(marker)) {
+            return 0;
+        }
+        final List<Path> files;
+        try (Stream<Path> paths = Files.walk(historyDir, 2)) {
+            // file names start with the time the game started
+            files = paths.filter(path -> path.getFileName().toString().startsWith("xogame-"))
+                    .sorted(Comparator.comparing(path -> path.getFileName().toString()))
+                    .collect(Collectors.toList());
+        }
+        final Set<UUID> gameIds = new HashSet<>();
+        repository.readRange(Instant.EPOCH, Instant.MAX, (position, record) -> gameIds.add(record.getGameId()));
+        int numOfImported = 0;
+        for (Path file : files) {
+            final byte[] data = Files.readAllBytes(file);
+            final XoGameRecordDto game;
+            try {
+                game = mapper.readValue(data, XoGameRecordDto.class);
+            } catch (IOException ex) {
+                log.error("Cannot import " + file, ex);
+                continue;
+            }
+            if (gameIds.add(game.getGameId())) {
+                repository.append(XoGameHistoryStore.createHistoryRecord(game, data));
+                numOfImported++;
+            }
+        }
+        // the marker must not survive a crash which the imported games didn't
+        repository.sync();
+        Files.createFile(marker);
+        log.info("Imported {} games from {}.", numOfImported, historyDir);
+        return numOfImported;
+    }
+
+    /**
+     * @return the file older versions saved the game to
+     */
+    static Path getGameFile(Path historyDir, Instant startedAt, UUID gameId) {
+        return historyDir.resolve(DATE_FORMATTER.format(startedAt.atZone(ZoneOffset.UTC))).resolve(
+                "xogame-" + DATE_TIME_FORMATTER.format(startedAt.atZone(ZoneOffset.UTC)) + "-" + gameId + ".json"
+        );
+    }
+}
@@ -0,0 +1,60 @@
+package org.igor.onlinegames.xogame.manager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.igor.onlinegames.common.GameHistoryRecord;
+import org.igor.onlinegames.common.GameHistoryRepository;
+import org.igor.onlinegames.common.GameHistoryStore;
+import org.igor.onlinegames.common.GameHistoryWriter;
+import org.igor.onlinegames.xogame.dto.history.XoGamePlayerInfoDto;
+import org.igor.onlinegames.xogame.dto.history.XoGameRecordDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * History of XO games. On startup games saved one file per game by older versions are imported first.
+ */
+@Component
+public class XoGameHistoryStore extends GameHistoryStore<XoGameRecordDto> {
+    private final String historyPath;
+
+    @Autowired
+    public XoGameHistoryStore(@Value("${app.xogame.history-path}") String historyPath,
+                              @Value("${app.xogame.history-index-days}") int indexDays,
+                              ObjectMapper mapper,
+                              @Qualifier("xoGameHistoryRepository") GameHistoryRepository repository,
+                              @Qualifier("xoGameHistoryWriter") GameHistoryWriter historyWriter) {
+        super(XoGameRecordDto.class, mapper, repository, historyWriter, indexDays);
+        this.historyPath = historyPath;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        new XoGameHistoryFilesImporter(mapper, repository).importFiles(Paths.get(historyPath));
+        rebuildIndex();
+    }
+
+    @Override
+    protected GameHistoryRecord toHistoryRecord(XoGameRecordDto game, byte[] data) {
+        return createHistoryRecord(game, data);
+    }
+
+    static GameHistoryRecord createHistoryRecord(XoGameRecordDto game, byte[] data) {
+        return new GameHistoryRecord(
+                game.getStartedAt(),
+                game.getGameId(),
+                game.getPlayers().stream()
+                        .map(XoGamePlayerInfoDto::getUserId)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()),
+                data
+        );
+    }
+}
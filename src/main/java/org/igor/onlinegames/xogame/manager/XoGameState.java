@@ -1,10 +1,10 @@
 package org.igor.onlinegames.xogame.manager;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.SneakyThrows;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.igor.onlinegames.common.GamePlayersCounts;
+import org.igor.onlinegames.common.HashedTimingWheel;
 import org.igor.onlinegames.common.OnlinegamesUtils;
 import org.igor.onlinegames.exceptions.OnlinegamesException;
 import org.igor.onlinegames.model.GameState;
@@ -19,6 +19,7 @@ import org.igor.onlinegames.xogame.dto.XoGamePasscodeIsRequiredErrorDto;
 import org.igor.onlinegames.xogame.dto.XoGamePhase;
 import org.igor.onlinegames.xogame.dto.XoGamePlayerNameIsOccupiedErrorDto;
 import org.igor.onlinegames.xogame.dto.XoGamePlayerNameWasSetMsgDto;
+import org.igor.onlinegames.xogame.dto.XoGameStateDeltaDto;
 import org.igor.onlinegames.xogame.dto.XoGameStateDto;
 import org.igor.onlinegames.xogame.dto.XoPlayerDto;
 import org.igor.onlinegames.xogame.dto.history.XoGameMoveDto;
@@ -26,18 +27,12 @@ import org.igor.onlinegames.xogame.dto.history.XoGamePlayerInfoDto;
 import org.igor.onlinegames.xogame.dto.history.XoGameRecordDto;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
-import org.springframework.util.CollectionUtils;
 import org.springframework.web.socket.WebSocketSession;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.time.Duration;
 import java.time.Instant;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -48,11 +43,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.regex.Matcher;
@@ -79,46 +70,44 @@ public class XoGameState extends State implements GameState {
     private static final String PLAYER_NAME = "PLAYER_NAME";
     private static final Duration INACTIVITY_INTERVAL = Duration.of(10, ChronoUnit.MINUTES);
 
-    @Value("${app.xogame.history-path}")
-    private String historyPath;
     @Autowired
-    private ObjectMapper mapper;
+    private XoGameHistoryStore historyStore;
     @Autowired
     @Qualifier("xoGamePlayersCounts")
     private GamePlayersCounts gamePlayersCounts;
-    private Instant lastActionAt = Instant.now();
+    @Autowired
+    private HashedTimingWheel timingWheel;
+    private volatile Instant lastActionAt = Instant.now();
 
     private String title;
     private String passcode;
     private Set<UUID> userIdsEverConnected = new HashSet<>();
-    private XoGamePhase phase = XoGamePhase.WAITING_FOR_PLAYERS_TO_JOIN;
-    private UUID gameOwnerUserId;
+    private volatile XoGamePhase phase = XoGamePhase.WAITING_FOR_PLAYERS_TO_JOIN;
+    private volatile UUID gameOwnerUserId;
     private List<XoPlayer> players;
     private Map<UUID,XoPlayer> userIdToPlayer;
     private int fieldSize;
     private int goal;
     private String timerStr;
     private Integer timerSeconds;
-    private ScheduledExecutorService scheduledExecutorService;
-    private ScheduledFuture<?> timerHandle;
-    private Character[][] field;
+    private HashedTimingWheel.Timeout timerHandle;
+    private XoBoard board;
     private List<Integer> lastCell;
     private XoPlayer playerToMove;
     private XoPlayer winner;
     private List<List<Integer>> winnerPath;
+    private long stateSeq;
 
     private XoGameRecordDto history;
-    private final static DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy_MM_dd");
-    private final static DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy_MM_dd__HH_mm_ss");
 
     @Override
     protected void init(JsonNode args) {
         fieldSize = args.get(FIELD_SIZE).asInt();
-        field = new Character[fieldSize][fieldSize];
         goal = args.get(GOAL).asInt();
         if (fieldSize < goal) {
             throw new OnlinegamesException("fieldSize < goal");
         }
+        board = new XoBoard(fieldSize, goal);
 
         timerStr = getNonEmptyTextFromParams(args, TIMER);
         timerSeconds = parseTimerValue(timerStr);
@@ -127,7 +116,7 @@ public class XoGameState extends State implements GameState {
     }
 
     @Override
-    public synchronized boolean bind(WebSocketSession session, JsonNode bindParams) {
+    public boolean bind(WebSocketSession session, JsonNode bindParams) {
         if (phase == XoGamePhase.WAITING_FOR_PLAYERS_TO_JOIN) {
             if (gameOwnerUserId == null) {
                 gameOwnerUserId = extractUserIdFromSession(session);
@@ -153,7 +142,11 @@ public class XoGameState extends State implements GameState {
                 }
             }
         } else if (super.bind(session, bindParams)) {
-            broadcastGameState();
+            if (phase == XoGamePhase.DISCARDED) {
+                broadcastGameState();
+            } else {
+                sendGameStateSnapshot(session);
+            }
             return true;
         } else {
             return false;
@@ -161,13 +154,20 @@ public class XoGameState extends State implements GameState {
     }
 
     @Override
-    public synchronized void unbind(WebSocketSession session) {
+    public void unbind(WebSocketSession session) {
         super.unbind(session);
-        broadcastGameState();
+        if (phase == XoGamePhase.WAITING_FOR_PLAYERS_TO_JOIN || phase == XoGamePhase.DISCARDED) {
+            broadcastGameState();
+        }
+    }
+
+    @RpcMethod
+    public void requestSnapshot(WebSocketSession session) {
+        sendGameStateSnapshot(session);
     }
 
     @RpcMethod
-    public synchronized void setPlayerName(WebSocketSession session, String playerName) {
+    public void setPlayerName(WebSocketSession session, String playerName) {
         playerName = sanitizePlayerName(playerName);
         if (checkPlayerNameIsUnique(session, playerName)) {
             savePlayerNameToSession(session, playerName);
@@ -177,9 +177,12 @@ public class XoGameState extends State implements GameState {
                 players.stream()
                         .filter(player -> player.getUserId().equals(userId))
                         .forEach(player -> player.setName(finalPlayerName));
-                history.getPlayers().stream()
-                        .filter(player -> player.getUserId().equals(userId))
-                        .forEach(player -> player.setPlayerName(finalPlayerName));
+                // a finished game is already passed to the history store
+                if (phase != XoGamePhase.FINISHED) {
+                    history.getPlayers().stream()
+                            .filter(player -> player.getUserId().equals(userId))
+                            .forEach(player -> player.setPlayerName(finalPlayerName));
+                }
             }
             sendMessageToFe(session, new XoGamePlayerNameWasSetMsgDto(playerName));
             broadcastGameState();
@@ -187,7 +190,7 @@ public class XoGameState extends State implements GameState {
     }
 
     @RpcMethod
-    public synchronized void discard(WebSocketSession session) {
+    public void discard(WebSocketSession session) {
         if (phase != XoGamePhase.WAITING_FOR_PLAYERS_TO_JOIN) {
             return;
         }
@@ -201,7 +204,7 @@ public class XoGameState extends State implements GameState {
     }
 
     @RpcMethod
-    public synchronized void startGame(WebSocketSession session) {
+    public void startGame(WebSocketSession session) {
         if (phase != XoGamePhase.WAITING_FOR_PLAYERS_TO_JOIN) {
             return;
         }
@@ -235,7 +238,6 @@ public class XoGameState extends State implements GameState {
             playerToMove = players.get(0);
             phase = XoGamePhase.IN_PROGRESS;
             if (timerSeconds != null) {
-                scheduledExecutorService = Executors.newScheduledThreadPool(1);
                 startTimerForCurrentPlayer();
             }
             history = XoGameRecordDto.builder()
@@ -261,7 +263,7 @@ public class XoGameState extends State implements GameState {
     }
 
     @RpcMethod
-    public synchronized void clickCell(WebSocketSession session, int x, int y) {
+    public void clickCell(WebSocketSession session, int x, int y) {
         if (phase == XoGamePhase.IN_PROGRESS) {
             executeOnBehalfOfPlayer(session, player -> clickCell(player, x, y));
         }
@@ -345,6 +347,15 @@ public class XoGameState extends State implements GameState {
         }
     }
 
+    private Object getViewKey(WebSocketSession session) {
+        final XoPlayer player = sessionToPlayer(session);
+        if (player.getPlayerId() != null) {
+            return player.getPlayerId();
+        } else {
+            return Pair.of(player.isGameOwner(), player.getName());
+        }
+    }
+
     private XoPlayer sessionToMinimalPlayer(WebSocketSession session) {
         return XoPlayer.builder()
                 .gameOwner(extractUserIdFromSession(session).equals(gameOwnerUserId))
@@ -364,9 +375,7 @@ public class XoGameState extends State implements GameState {
     }
 
     private void sendMessageToFe(UUID userId, Object msg) {
-        sessions.stream()
-                .filter(session -> extractUserIdFromSession(session).equals(userId))
-                .forEach(session -> sendMessageToFe(session, msg));
+        sendMessageToFe(session -> extractUserIdFromSession(session).equals(userId), msg);
     }
 
     private void executeOnBehalfOfPlayer(WebSocketSession session, Consumer<XoPlayer> executor) {
@@ -411,6 +420,7 @@ public class XoGameState extends State implements GameState {
     private XoGameStateDto createViewOfCurrentState(XoPlayer player) {
         if (phase == XoGamePhase.WAITING_FOR_PLAYERS_TO_JOIN || phase == XoGamePhase.DISCARDED) {
             return XoGameStateDto.builder()
+                    .seq(stateSeq)
                     .title(title)
                     .passcode(player.ifGameOwner(() -> passcode))
                     .phase(phase)
@@ -421,16 +431,17 @@ public class XoGameState extends State implements GameState {
                     .fieldSize(fieldSize)
                     .goal(goal)
                     .timerSeconds(getRemainingTimerDelay())
-                    .field(createFieldDto(field))
+                    .field(board.createCellsDto())
                     .build();
         } else {
             return XoGameStateDto.builder()
+                    .seq(stateSeq)
                     .phase(phase)
                     .currentUserIsGameOwner(player.isGameOwner())
                     .fieldSize(fieldSize)
                     .goal(goal)
                     .timerSeconds(getRemainingTimerDelay())
-                    .field(createFieldDto(field))
+                    .field(board.createCellsDto())
                     .lastCell(lastCell)
                     .currentPlayerId(player.getPlayerId())
                     .players(createPlayersDto(player, players))
@@ -459,16 +470,16 @@ public class XoGameState extends State implements GameState {
 
     private void clickCell(XoPlayer player, int x, int y) {
         if (phase == XoGamePhase.IN_PROGRESS) {
-            if (!(0 <= x && x < field.length && 0 <= y && y < field[0].length)) {
+            if (!board.isOnBoard(x, y)) {
                 player.sendMessageToFe(new XoGameErrorDto("Incorrect coordinates: x = " + x + ", y = " + y + "."));
             } else if (playerToMove != player) {
                 player.sendMessageToFe(new XoGameErrorDto("It's not your turn."));
-            } else if (field[x][y] != null) {
+            } else if (!board.isEmpty(x, y)) {
                 player.sendMessageToFe(new XoGameErrorDto("The cell you clicked is not empty."));
             } else {
                 lastActionAt = Instant.now();
                 if (timerHandle != null) {
-                    timerHandle.cancel(true);
+                    timerHandle.cancel();
                     timerHandle = null;
                 }
                 history.getMoves().add(
@@ -480,18 +491,14 @@ public class XoGameState extends State implements GameState {
                                 .y(y)
                                 .build()
                 );
-                field[x][y] = player.getPlayerSymbol();
+                board.put(x, y, player.getPlayerSymbol());
                 lastCell = listOf(x,y);
 
-                winnerPath = findPath(true);
+                winnerPath = board.findWinnerPath(x, y);
                 if (winnerPath != null) {
                     history.setWinnerPath(winnerPath);
                     playerToMove = null;
-                    Character winnerSymbol = field[winnerPath.get(0).get(0)][winnerPath.get(0).get(1)];
-                    winner = players.stream()
-                            .filter(xoPlayer -> winnerSymbol.equals(xoPlayer.getPlayerSymbol()))
-                            .findFirst()
-                            .get();
+                    winner = player;
                     history.setWinnerId(winner.getPlayerId());
                     phase = XoGamePhase.FINISHED;
                 } else if (isDraw()) {
@@ -504,7 +511,7 @@ public class XoGameState extends State implements GameState {
                         startTimerForCurrentPlayer();
                     }
                 }
-                broadcastGameState();
+                broadcastGameStateDelta(XoCellDto.builder().x(x).y(y).symbol(player.getPlayerSymbol()).build());
             }
             if (phase == XoGamePhase.FINISHED) {
                 shutdownTimer();
@@ -514,26 +521,11 @@ public class XoGameState extends State implements GameState {
         }
     }
 
-    public static String getGameHistoryDirPath(String historyPath, Instant startedAt) {
-        return historyPath + "/" + DATE_FORMATTER.format(startedAt.atZone(ZoneOffset.UTC));
-    }
-
-    protected static String getGameHistoryFilePath(String historyPath, Instant startedAt, UUID gameId) {
-        return getGameHistoryDirPath(historyPath, startedAt)
-                + "/xogame-" + DATE_TIME_FORMATTER.format(startedAt.atZone(ZoneOffset.UTC))
-                + "-" + gameId + ".json";
-    }
-
-    @SneakyThrows
     private void saveHistory() {
         history.getPlayers().stream()
                 .filter(player -> player.getPlayerName() == null)
                 .forEach(player -> player.setPlayerName("Incognito"));
-        final File file = new File(getGameHistoryFilePath(historyPath, history.getStartedAt(), history.getGameId()));
-        file.getParentFile().mkdirs();
-        try (final FileWriter fileWriter = new FileWriter(file)) {
-            fileWriter.write(mapper.writeValueAsString(history));
-        }
+        historyStore.save(history);
     }
 
     private XoPlayer getNextPlayerToMove() {
@@ -541,7 +533,27 @@ public class XoGameState extends State implements GameState {
     }
 
     private void broadcastGameState() {
-        sessions.forEach(session -> sendMessageToFe(session, createViewOfCurrentState(sessionToPlayer(session))));
+        stateSeq++;
+        sendStateSnapshotsToFe(this::getViewKey, session -> createViewOfCurrentState(sessionToPlayer(session)));
+    }
+
+    private void sendGameStateSnapshot(WebSocketSession session) {
+        sendStateSnapshotToFe(session, createViewOfCurrentState(sessionToPlayer(session)));
+    }
+
+    private void broadcastGameStateDelta(XoCellDto cell) {
+        stateSeq++;
+        sendMessageToFe(
+                XoGameStateDeltaDto.builder()
+                        .seq(stateSeq)
+                        .phase(phase)
+                        .cell(cell)
+                        .timerSeconds(getRemainingTimerDelay())
+                        .playerIdToMove(nullSafeGetter(playerToMove, XoPlayer::getPlayerId))
+                        .winnerId(nullSafeGetter(winner, XoPlayer::getPlayerId))
+                        .winnerPath(winnerPath)
+                        .build()
+        );
     }
 
     private List<XoPlayerDto> createPlayersDto(XoPlayer viewer, List<XoPlayer> players) {
@@ -560,100 +572,8 @@ public class XoGameState extends State implements GameState {
         }
     }
 
-    private List<XoCellDto> createFieldDto(Character[][] field) {
-        final ArrayList<XoCellDto> cellsDto = new ArrayList<>();
-        for (int x = 0; x < field.length; x++) {
-            for (int y = 0; y < field[x].length; y++) {
-                final Character cellSymbol = field[x][y];
-                if (cellSymbol != null) {
-                    cellsDto.add(XoCellDto.builder().x(x).y(y).symbol(cellSymbol).build());
-                }
-            }
-        }
-        return cellsDto;
-    }
-
-    private void iterateCells(int x, int y, int dx, int dy, BiFunction<Integer, Integer, Boolean> coordsConsumer) {
-        if (dx == 0 && dy == 0) {
-            return;
-        } else {
-            int maxX = fieldSize-1;
-            int maxY = fieldSize-1;
-            while (0<=x && x<=maxX && 0<=y && y<=maxY && coordsConsumer.apply(x,y)) {
-                x+=dx;
-                y+=dy;
-            }
-        }
-    }
-
-    private int countPathLength(BiFunction<Integer, Integer, Boolean> cellBelongsToPath, int startX, int startY, int dx, int dy) {
-        final int[] length = {0};
-        iterateCells(startX, startY, dx, dy, (x,y) -> {
-            final boolean doContinue = cellBelongsToPath.apply(x,y);
-            if (doContinue) {
-                length[0]++;
-            }
-            return doContinue;
-        });
-        return length[0];
-    }
-
-    private List<List<Integer>> createPath(BiFunction<Integer, Integer, Boolean> cellBelongsToPath, int startX, int startY, int dx, int dy) {
-        if (countPathLength(cellBelongsToPath, startX, startY, dx, dy) < goal) {
-            return null;
-        } else {
-            final ArrayList<List<Integer>> path = new ArrayList<>();
-            iterateCells(startX, startY, dx, dy, (x,y) -> {
-                final boolean doContinue = cellBelongsToPath.apply(x,y);
-                if (doContinue) {
-                    path.add(listOf(x,y));
-                }
-                return doContinue;
-            });
-            return path;
-        }
-    }
-
-    private List<List<Integer>> findPath(boolean forWinner) {
-        for (int x = 0; x < fieldSize; x++) {
-            for (int y = 0; y < fieldSize; y++) {
-                for (int dx = -1; dx < 2; dx++) {
-                    for (int dy = -1; dy < 2; dy++) {
-                        Character symbol = field[x][y];
-                        BiFunction<Integer, Integer, Boolean> contFunc = null;
-                        if (forWinner) {
-                            if (symbol != null) {
-                                contFunc = (xx,yy) -> symbol.equals(field[xx][yy]);
-                            }
-                        } else {
-                            if (symbol != null) {
-                                contFunc = (xx,yy) -> symbol.equals(field[xx][yy]) || null == field[xx][yy];
-                            } else {
-                                final Character[] firstFound = {null};
-                                contFunc = (xx,yy) -> {
-                                    final Character currSymb = field[xx][yy];
-                                    if (firstFound[0] == null && currSymb != null) {
-                                        firstFound[0] = currSymb;
-                                    }
-                                    return null == currSymb || Objects.equals(firstFound[0], currSymb);
-                                };
-                            }
-                        }
-                        if (contFunc != null) {
-                            List<List<Integer>> path = createPath(contFunc, x, y, dx, dy);
-                            if (path != null) {
-                                return path;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return null;
-    }
-
     private boolean isDraw() {
-        return CollectionUtils.isEmpty(findPath(false));
+        return board.isDraw();
     }
 
     private Integer parseTimerValue(String timerStr) {
@@ -678,40 +598,38 @@ public class XoGameState extends State implements GameState {
         }
     }
 
-    private synchronized void startTimerForCurrentPlayer() {
+    private void startTimerForCurrentPlayer() {
         if (timerHandle != null) {
-            timerHandle.cancel(true);
+            timerHandle.cancel();
         }
         timerHandle = startTimerForPlayer(playerToMove);
     }
 
-    private synchronized ScheduledFuture<?> startTimerForPlayer(XoPlayer player) {
-        return scheduledExecutorService.schedule(
-                () -> {
-                    if (playerToMove == player) {
-                        setNextPlayerToMove();
-                        broadcastGameState();
-                        startTimerForCurrentPlayer();
-                    }
-                },
+    private HashedTimingWheel.Timeout startTimerForPlayer(XoPlayer player) {
+        return timingWheel.schedule(
+                () -> execute(() -> onTimerExpired(player)),
                 timerSeconds + 1,
                 TimeUnit.SECONDS
         );
     }
 
-    private synchronized void setNextPlayerToMove() {
+    private void onTimerExpired(XoPlayer player) {
+        if (playerToMove == player) {
+            setNextPlayerToMove();
+            broadcastGameStateDelta(null);
+            startTimerForCurrentPlayer();
+        }
+    }
+
+    private void setNextPlayerToMove() {
         playerToMove = getNextPlayerToMove();
     }
 
-    private synchronized void shutdownTimer() {
+    private void shutdownTimer() {
         if (timerHandle != null) {
-            timerHandle.cancel(true);
+            timerHandle.cancel();
             timerHandle = null;
         }
-        if (scheduledExecutorService != null) {
-            scheduledExecutorService.shutdownNow();
-            scheduledExecutorService = null;
-        }
     }
 
     private String getPlayerNameFromSession(UUID userId) {
@@ -725,7 +643,7 @@ public class XoGameState extends State implements GameState {
 
     @Override
     protected Object getViewRepresentation() {
-        return this.getClass().getSimpleName() + "[scheduledExecutorService=" + scheduledExecutorService + "]";
+        return this.getClass().getSimpleName() + "[timerHandle=" + timerHandle + "]";
     }
 
     @Override
@@ -35,6 +35,9 @@ const WordsGamePlayerView = ({openView}) => {
     const [incorrectPasscode, setIncorrectPasscode] = useState(false)
     const [beState, setBeState] = useState(null)
     const prevBeState = usePrevious(beState)
+    const [beText, setBeText] = useState(null)
+    const beTextVersion = useRef(null)
+    const requestedTextVersion = useRef(null)
 
     // function printState() {
     //     console.log('beState?.selectedWord?.userInputs')
@@ -80,6 +83,14 @@ const WordsGamePlayerView = ({openView}) => {
             setPasscode(null)
             setIncorrectPasscode(false)
             setBeState(old => ({...old, ...msg}))
+            if (hasValue(msg.textVersion) && msg.textVersion != beTextVersion.current
+                    && msg.textVersion != requestedTextVersion.current) {
+                requestedTextVersion.current = msg.textVersion
+                backend.send("requestText", {textVersion: msg.textVersion})
+            }
+        } else if (msg.type == "text") {
+            beTextVersion.current = msg.textVersion
+            setBeText(msg)
         } else if (msg.type == "msg:PlayerNameWasSet") {
             setPlayerName(msg.newPlayerName)
             setConflictingPlayerName(null)
@@ -219,7 +230,7 @@ const WordsGamePlayerView = ({openView}) => {
     }
 
     function goToEditMode() {
-        setNewTextToLearn(beState.textToLearn)
+        setNewTextToLearn(beText.textToLearn)
     }
 
     function copyToClipboard(str) {
@@ -573,7 +584,7 @@ const WordsGamePlayerView = ({openView}) => {
     }
 
     function renderText() {
-        if (beState.words) {
+        if (beText?.words) {
             if (hasValue(newTextToLearn)) {
                 return RE.Container.col.top.left({},{style:{marginBottom:"20px"}},
                     RE.Container.row.left.center({},{style:{marginRight:"20px"}},
@@ -591,7 +602,7 @@ const WordsGamePlayerView = ({openView}) => {
                 )
             } else {
                 return RE.Container.col.top.left({}, {style:{marginBottom:"20px"}},
-                    beState.words.map((p, pi) => RE.div({key:pi, style: {...TEXT_FONT_STYLE, lineHeight:'35px'}},
+                    beText.words.map((p, pi) => RE.div({key:pi, style: {...TEXT_FONT_STYLE, lineHeight:'35px'}},
                         p.map((w, wi) => [w,wi]).filter(([w,wi])=>!w.meta).map(([w,wi]) => renderWord({paragraphIndex:pi, wordIndex:wi, word: w}))
                     ))
                 )
@@ -19,6 +19,8 @@ const XoGamePlayerView = ({openView}) => {
     const [incorrectPasscode, setIncorrectPasscode] = useState(false)
     const [beState, setBeState] = useState(null)
     const prevBeState = usePrevious(beState)
+    const beStateSeq = useRef(null)
+    const snapshotRequested = useRef(false)
 
     const [discardDialogOpened, setDiscardDialogOpened] = useState(false)
 
@@ -53,9 +55,21 @@ const XoGamePlayerView = ({openView}) => {
 
     function onMessageFromBackend(msg) {
         if (msg.type == "state") {
+            beStateSeq.current = msg.seq
+            snapshotRequested.current = false
             setPasscode(null)
             setIncorrectPasscode(false)
             setBeState(msg)
+        } else if (msg.type == "state:delta") {
+            if (hasValue(beStateSeq.current) && msg.seq == beStateSeq.current + 1) {
+                beStateSeq.current = msg.seq
+                setBeState(prevState => applyStateDelta(prevState, msg))
+            } else if (hasValue(beStateSeq.current) && msg.seq <= beStateSeq.current) {
+                // the snapshot which replaced the one this delta followed already includes it
+            } else if (!snapshotRequested.current) {
+                snapshotRequested.current = true
+                backend.send("requestSnapshot")
+            }
         } else if (msg.type == "msg:PlayerNameWasSet") {
             setPlayerName(msg.newPlayerName)
             setConflictingPlayerName(null)
@@ -73,6 +87,23 @@ const XoGamePlayerView = ({openView}) => {
         }
     }
 
+    function applyStateDelta(prevState, delta) {
+        const newState = {
+            ...prevState,
+            seq: delta.seq,
+            phase: delta.phase,
+            timerSeconds: delta.timerSeconds,
+            playerIdToMove: delta.playerIdToMove,
+            winnerId: delta.winnerId,
+            winnerPath: delta.winnerPath,
+        }
+        if (delta.cell) {
+            newState.field = [...prevState.field, delta.cell]
+            newState.lastCell = [delta.cell.x, delta.cell.y]
+        }
+        return newState
+    }
+
     function getLastCellStr() {
         const lastCell = beState?.lastCell
         return lastCell?(lastCell[0]+'-'+lastCell[1]):undefined
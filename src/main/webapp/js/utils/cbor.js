@@ -0,0 +1,142 @@
+'use strict'
+
+const CBOR_SUBPROTOCOL = 'cbor.onlinegames'
+const BINARY_WEB_SOCKET_LOC_STORAGE_KEY = 'binaryWebSocket'
+
+const CBOR_BREAK = Symbol('break')
+
+/**
+ * Decodes a CBOR (RFC 7049) encoded message sent by the backend.
+ * @param {ArrayBuffer} buffer
+ */
+function decodeCbor(buffer) {
+    const view = new DataView(buffer)
+    const textDecoder = new TextDecoder()
+    let offset = 0
+
+    function readLength(additionalInfo) {
+        if (additionalInfo < 24) {
+            return additionalInfo
+        } else if (additionalInfo == 24) {
+            offset += 1
+            return view.getUint8(offset - 1)
+        } else if (additionalInfo == 25) {
+            offset += 2
+            return view.getUint16(offset - 2)
+        } else if (additionalInfo == 26) {
+            offset += 4
+            return view.getUint32(offset - 4)
+        } else if (additionalInfo == 27) {
+            offset += 8
+            return view.getUint32(offset - 8) * 0x100000000 + view.getUint32(offset - 4)
+        } else if (additionalInfo == 31) {
+            return -1
+        } else {
+            throw new Error('Unexpected CBOR additional info ' + additionalInfo)
+        }
+    }
+
+    function readHalfFloat() {
+        const half = view.getUint16(offset)
+        offset += 2
+        const exponent = (half >> 10) & 0x1f
+        const fraction = half & 0x3ff
+        const sign = half & 0x8000 ? -1 : 1
+        if (exponent == 0) {
+            return sign * Math.pow(2, -14) * (fraction / 1024)
+        } else if (exponent == 0x1f) {
+            return fraction ? NaN : sign * Infinity
+        } else {
+            return sign * Math.pow(2, exponent - 15) * (1 + fraction / 1024)
+        }
+    }
+
+    function readString(majorType, length) {
+        if (length < 0) {
+            const chunks = []
+            let chunk
+            while ((chunk = readItem()) !== CBOR_BREAK) {
+                chunks.push(chunk)
+            }
+            return chunks.join('')
+        }
+        const bytes = new Uint8Array(buffer, offset, length)
+        offset += length
+        return majorType == 3 ? textDecoder.decode(bytes) : bytes
+    }
+
+    function readArray(length) {
+        const result = []
+        if (length < 0) {
+            let item
+            while ((item = readItem()) !== CBOR_BREAK) {
+                result.push(item)
+            }
+        } else {
+            for (let i = 0; i < length; i++) {
+                result.push(readItem())
+            }
+        }
+        return result
+    }
+
+    function readMap(length) {
+        const result = {}
+        if (length < 0) {
+            let key
+            while ((key = readItem()) !== CBOR_BREAK) {
+                result[key] = readItem()
+            }
+        } else {
+            for (let i = 0; i < length; i++) {
+                const key = readItem()
+                result[key] = readItem()
+            }
+        }
+        return result
+    }
+
+    function readSimpleValue(additionalInfo) {
+        if (additionalInfo == 20) {
+            return false
+        } else if (additionalInfo == 21) {
+            return true
+        } else if (additionalInfo == 22 || additionalInfo == 23) {
+            return null
+        } else if (additionalInfo == 25) {
+            return readHalfFloat()
+        } else if (additionalInfo == 26) {
+            offset += 4
+            return view.getFloat32(offset - 4)
+        } else if (additionalInfo == 27) {
+            offset += 8
+            return view.getFloat64(offset - 8)
+        } else if (additionalInfo == 31) {
+            return CBOR_BREAK
+        } else {
+            throw new Error('Unexpected CBOR simple value ' + additionalInfo)
+        }
+    }
+
+    function readItem() {
+        const initialByte = view.getUint8(offset)
+        offset += 1
+        const majorType = initialByte >> 5
+        const additionalInfo = initialByte & 0x1f
+        if (majorType == 7) {
+            return readSimpleValue(additionalInfo)
+        }
+        const length = readLength(additionalInfo)
+        switch (majorType) {
+            case 0: return length
+            case 1: return -1 - length
+            case 2:
+            case 3: return readString(majorType, length)
+            case 4: return readArray(length)
+            case 5: return readMap(length)
+            default: return readItem() // a tag, its content is used as is
+        }
+    }
+
+    return readItem()
+}
@@ -200,8 +200,15 @@ function useBackend({stateType, stateId, bindParams, onBackendStateCreated, onMe
         if (!webSocket.current
             || webSocket.current.readyState == WEB_SOCKET_STATE_CLOSED
             || webSocket.current.readyState == WEB_SOCKET_STATE_CLOSING) {
-            webSocket.current = new WebSocket("ws://" + location.host + "/be/websocket/state")
-            webSocket.current.onmessage = event => onMessageFromBackend(JSON.parse(event.data))
+            if (readFromLocalStorage(BINARY_WEB_SOCKET_LOC_STORAGE_KEY, false)) {
+                webSocket.current = new WebSocket("ws://" + location.host + "/be/websocket/state", [CBOR_SUBPROTOCOL])
+                webSocket.current.binaryType = 'arraybuffer'
+            } else {
+                webSocket.current = new WebSocket("ws://" + location.host + "/be/websocket/state")
+            }
+            webSocket.current.onmessage = event => onMessageFromBackend(
+                typeof event.data === 'string' ? JSON.parse(event.data) : decodeCbor(event.data)
+            )
             webSocket.current.onopen = () => {
                 callBackendStateMethodInner(webSocket.current, BIND_TO_BE_STATE_METHOD_NAME, {stateId: beStateId, bindParams})
                 callBackendStateMethodInner(webSocket.current, methodName, params)
@@ -0,0 +1,122 @@
+package org.igor.onlinegames.common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class GameHistoryWriterTest {
+    private static final Instant STARTED_AT = Instant.parse("2021-07-01T10:00:00Z");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void queued_records_are_written_in_batches() throws Exception {
+        //given
+        final SegmentedGameHistoryLog historyLog = new SegmentedGameHistoryLog(dir, "game", 1 << 20);
+        historyLog.open();
+        final GameHistoryWriter writer = new GameHistoryWriter("game", historyLog, 1000, 32);
+        final List<UUID> writtenGameIds = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 100; i++) {
+            final int gameNumber = i;
+            final GameHistoryRecord record = createRecord(gameNumber);
+            if (gameNumber == 50) {
+                // cannot be appended
+                record.setData(null);
+            }
+            writer.submit(record, (position, rec) -> writtenGameIds.add(historyLog.read(position).getGameId()));
+        }
+
+        //when
+        writer.start();
+        writer.close();
+
+        //then
+        final GameHistoryWriterStatsDto stats = writer.getStats();
+        assertEquals(4, stats.getBatches());
+        assertEquals(99, stats.getWritten());
+        assertEquals(1, stats.getFailed());
+        assertEquals(0, stats.getQueueSize());
+        final List<UUID> expectedGameIds = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            if (i != 50) {
+                expectedGameIds.add(new UUID(i, 0));
+            }
+        }
+        assertEquals(expectedGameIds, writtenGameIds);
+        historyLog.close();
+    }
+
+    @Test
+    public void all_submitted_records_are_written_before_close_returns() throws Exception {
+        //given
+        final SegmentedGameHistoryLog historyLog = new SegmentedGameHistoryLog(dir, "game", 1 << 20);
+        historyLog.open();
+        final GameHistoryWriter writer = new GameHistoryWriter("game", historyLog, 16, 8);
+        writer.start();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            final int thread = t;
+            executor.submit(() -> {
+                for (int i = 0; i < 250; i++) {
+                    final int gameNumber = thread * 250 + i;
+                    writer.submit(createRecord(gameNumber), (position, record) -> { });
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        //when
+        writer.close();
+
+        //then
+        final Set<UUID> gameIds = new HashSet<>();
+        historyLog.readRange(Instant.EPOCH, Instant.MAX, (position, record) -> gameIds.add(record.getGameId()));
+        assertEquals(1000, gameIds.size());
+        assertEquals(1000, writer.getStats().getWritten());
+        historyLog.close();
+    }
+
+    @Test
+    public void a_record_is_dropped_when_the_queue_stays_full() throws Exception {
+        //given
+        final SegmentedGameHistoryLog historyLog = new SegmentedGameHistoryLog(dir, "game", 1 << 20);
+        historyLog.open();
+        final GameHistoryWriter writer = new GameHistoryWriter("game", historyLog, 1, 8);
+        writer.submit(createRecord(0), (position, record) -> { });
+
+        //when
+        writer.submit(createRecord(1), (position, record) -> { });
+
+        //then
+        assertEquals(1, writer.getStats().getDropped());
+        writer.start();
+        writer.close();
+        assertEquals(1, writer.getStats().getWritten());
+        historyLog.close();
+    }
+
+    private GameHistoryRecord createRecord(int gameNumber) {
+        return new GameHistoryRecord(
+                STARTED_AT.plusSeconds(gameNumber),
+                new UUID(gameNumber, 0),
+                Collections.singletonList(new UUID(gameNumber, 1)),
+                ("{\"game\":" + gameNumber + "}").getBytes(StandardCharsets.UTF_8)
+        );
+    }
+}
@@ -0,0 +1,133 @@
+package org.igor.onlinegames.common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class GamePlayersCountsStoreTest {
+    private static final List<UUID> GROUP_1 = Arrays.asList(new UUID(1, 1), new UUID(1, 2), new UUID(1, 3));
+    private static final List<UUID> GROUP_2 = Arrays.asList(new UUID(2, 1), new UUID(2, 2));
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void counts_are_restored_from_snapshot_and_log() throws IOException {
+        //given
+        final GamePlayersCounts counts = new GamePlayersCounts();
+        final GamePlayersCountsStore store = new GamePlayersCountsStore(counts, dir, "game");
+        store.load();
+        play(counts, GROUP_1, 5);
+        store.writeSnapshot();
+        play(counts, GROUP_1, 4);
+        play(counts, GROUP_2, 3);
+        store.flush();
+        // a crash while an order was being appended
+        Files.write(dir.resolve("game.log"), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9}, StandardOpenOption.APPEND);
+
+        //when
+        final GamePlayersCounts restoredCounts = new GamePlayersCounts();
+        new GamePlayersCountsStore(restoredCounts, dir, "game").load();
+
+        //then
+        assertCountsEqual(counts.getCounts(), restoredCounts.getCounts());
+        assertEquals(9, sumOfCounts(restoredCounts, GROUP_1));
+        assertEquals(3, sumOfCounts(restoredCounts, GROUP_2));
+    }
+
+    @Test
+    public void orders_included_into_snapshot_are_not_applied_again_from_log() throws IOException {
+        //given
+        final GamePlayersCounts counts = new GamePlayersCounts();
+        final GamePlayersCountsStore store = new GamePlayersCountsStore(counts, dir, "game");
+        store.load();
+        play(counts, GROUP_1, 2);
+        store.flush();
+        final byte[] logBeforeSnapshot = Files.readAllBytes(dir.resolve("game.log"));
+        play(counts, GROUP_1, 1);
+        store.close();
+        // as if the process stopped after the snapshot was replaced but before the log was truncated
+        Files.write(dir.resolve("game.log"), logBeforeSnapshot);
+
+        //when
+        final GamePlayersCounts restoredCounts = new GamePlayersCounts();
+        final GamePlayersCountsStore restoredStore = new GamePlayersCountsStore(restoredCounts, dir, "game");
+        restoredStore.load();
+
+        //then
+        assertEquals(3, sumOfCounts(restoredCounts, GROUP_1));
+        play(restoredCounts, GROUP_1, 3);
+        restoredStore.close();
+        final GamePlayersCounts reloadedCounts = new GamePlayersCounts();
+        new GamePlayersCountsStore(reloadedCounts, dir, "game").load();
+        assertCountsEqual(restoredCounts.getCounts(), reloadedCounts.getCounts());
+        assertEquals(6, sumOfCounts(reloadedCounts, GROUP_1));
+    }
+
+    @Test
+    public void truncated_snapshot_does_not_stop_loading() throws IOException {
+        //given
+        final GamePlayersCounts counts = new GamePlayersCounts();
+        final GamePlayersCountsStore store = new GamePlayersCountsStore(counts, dir, "game");
+        store.load();
+        play(counts, GROUP_1, 2);
+        play(counts, GROUP_2, 1);
+        store.close();
+        final Path snapshot = dir.resolve("game.snapshot");
+        final byte[] bytes = Files.readAllBytes(snapshot);
+        Files.write(snapshot, Arrays.copyOf(bytes, bytes.length - 1));
+
+        //when
+        final GamePlayersCounts restoredCounts = new GamePlayersCounts();
+        final GamePlayersCountsStore restoredStore = new GamePlayersCountsStore(restoredCounts, dir, "game");
+        restoredStore.load();
+
+        //then
+        assertEquals(1, restoredCounts.getCounts().size());
+        play(restoredCounts, GROUP_1, 1);
+        restoredStore.close();
+        final GamePlayersCounts reloadedCounts = new GamePlayersCounts();
+        new GamePlayersCountsStore(reloadedCounts, dir, "game").load();
+        assertCountsEqual(restoredCounts.getCounts(), reloadedCounts.getCounts());
+    }
+
+    private void play(GamePlayersCounts counts, List<UUID> userIds, int numOfGames) {
+        for (int i = 0; i < numOfGames; i++) {
+            counts.getAndUpdateOrderOfPlayers(userIds);
+        }
+    }
+
+    /**
+     * @return the number of games played by the group
+     */
+    private int sumOfCounts(GamePlayersCounts counts, List<UUID> userIds) {
+        int sum = 0;
+        for (int[] playerCounts : counts.getCounts().get(new HashSet<>(userIds)).values()) {
+            sum += playerCounts[0];
+        }
+        return sum;
+    }
+
+    private void assertCountsEqual(Map<Set<UUID>, Map<UUID, int[]>> expected, Map<Set<UUID>, Map<UUID, int[]>> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Set<UUID> userIds : expected.keySet()) {
+            assertEquals(expected.get(userIds).keySet(), actual.get(userIds).keySet());
+            for (UUID userId : userIds) {
+                assertArrayEquals(expected.get(userIds).get(userId), actual.get(userIds).get(userId));
+            }
+        }
+    }
+}
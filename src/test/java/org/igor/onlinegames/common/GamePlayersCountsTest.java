@@ -2,7 +2,14 @@ package org.igor.onlinegames.common;
 
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -55,6 +62,111 @@ public class GamePlayersCountsTest {
         }
     }
 
+    @Test
+    public void getAndUpdateOrderOfPlayers_distributes_counts_equally_under_contention() throws Exception {
+        //given
+        final int numOfThreads = 8;
+        final int numOfIterations = 1200;
+        final List<Set<UUID>> groups = new ArrayList<>();
+        for (int numOfUserIds = 2; numOfUserIds <= 4; numOfUserIds++) {
+            final Set<UUID> userIds = new HashSet<>();
+            for (int i = 0; i < numOfUserIds; i++) {
+                userIds.add(UUID.randomUUID());
+            }
+            groups.add(userIds);
+        }
+        final GamePlayersCounts gamePlayersCounts = new GamePlayersCounts();
+        final ExecutorService executor = Executors.newFixedThreadPool(numOfThreads);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        //when
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < numOfThreads; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < numOfIterations / numOfThreads; i++) {
+                    for (Set<UUID> userIds : groups) {
+                        gamePlayersCounts.getAndUpdateOrderOfPlayers(userIds);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        //then
+        assertEquals(groups.size(), gamePlayersCounts.getCounts().size());
+        for (Set<UUID> userIds : groups) {
+            final Map<UUID, int[]> idToCounts = gamePlayersCounts.getCounts().get(userIds);
+            final int expectedCount = numOfIterations / userIds.size();
+            int total = 0;
+            for (int[] counts : idToCounts.values()) {
+                for (int count : counts) {
+                    assertTrue(expectedCount - 1 <= count && count <= expectedCount + 1);
+                    total += count;
+                }
+            }
+            assertEquals(numOfIterations * userIds.size(), total);
+        }
+    }
+
+    @Test
+    public void least_recently_played_groups_are_evicted() {
+        //given
+        final GamePlayersCounts gamePlayersCounts = new GamePlayersCounts(32, Duration.ofDays(1));
+        final List<Set<UUID>> groups = createGroupsOfTwo(100);
+
+        //when
+        for (Set<UUID> userIds : groups) {
+            gamePlayersCounts.getAndUpdateOrderOfPlayers(userIds);
+            gamePlayersCounts.getAndUpdateOrderOfPlayers(groups.get(0));
+        }
+
+        //then
+        final Map<Set<UUID>, Map<UUID, int[]>> counts = gamePlayersCounts.getCounts();
+        assertTrue(counts.size() <= 32);
+        assertTrue(counts.containsKey(groups.get(groups.size() - 1)));
+        assertEquals(101, counts.get(groups.get(0)).values().stream().mapToInt(cnt -> cnt[0]).sum());
+    }
+
+    @Test
+    public void expired_groups_are_evicted() {
+        //given
+        final AtomicLong time = new AtomicLong();
+        final GamePlayersCounts gamePlayersCounts = new GamePlayersCounts(1000, Duration.ofMillis(100), time::get);
+        final List<Set<UUID>> groups = createGroupsOfTwo(100);
+        for (Set<UUID> userIds : groups) {
+            gamePlayersCounts.getAndUpdateOrderOfPlayers(userIds);
+        }
+
+        //when
+        for (long t : new long[]{60, 120}) {
+            time.set(t);
+            for (Set<UUID> userIds : groups.subList(50, groups.size())) {
+                gamePlayersCounts.getAndUpdateOrderOfPlayers(userIds);
+            }
+        }
+
+        //then
+        final Map<Set<UUID>, Map<UUID, int[]>> counts = gamePlayersCounts.getCounts();
+        assertEquals(new HashSet<>(groups.subList(50, groups.size())), counts.keySet());
+        for (Set<UUID> userIds : groups.subList(50, groups.size())) {
+            assertEquals(3, counts.get(userIds).values().stream().mapToInt(cnt -> cnt[0]).sum());
+        }
+    }
+
+    private List<Set<UUID>> createGroupsOfTwo(int numOfGroups) {
+        final List<Set<UUID>> groups = new ArrayList<>();
+        for (int i = 0; i < numOfGroups; i++) {
+            groups.add(new HashSet<>(Arrays.asList(new UUID(i, 1), new UUID(i, 2))));
+        }
+        return groups;
+    }
+
     private static class Stats {
         public Map<Integer, Map<UUID, Integer>> stats;
 
@@ -0,0 +1,79 @@
+package org.igor.onlinegames.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HashedTimingWheelTest {
+    @Test
+    public void schedule_executes_10k_timers_on_one_thread_and_skips_cancelled_ones() throws InterruptedException {
+        //given
+        final int numOfTimers = 10_000;
+        final int numOfThreadsBefore = Thread.activeCount();
+        final HashedTimingWheel timingWheel = new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 64);
+        final Random rnd = new Random(42);
+        final CountDownLatch allExpired = new CountDownLatch(numOfTimers / 2);
+        final AtomicInteger numOfEarlyTimers = new AtomicInteger();
+        final AtomicInteger numOfCancelledTimersExecuted = new AtomicInteger();
+        final List<HashedTimingWheel.Timeout> timeouts = new ArrayList<>();
+
+        //when
+        for (int i = 0; i < numOfTimers; i++) {
+            final boolean toBeCancelled = i % 2 == 1;
+            final long delayMillis = 50 + rnd.nextInt(1500);
+            final long scheduledAt = System.nanoTime();
+            timeouts.add(timingWheel.schedule(
+                    () -> {
+                        if (toBeCancelled) {
+                            numOfCancelledTimersExecuted.incrementAndGet();
+                        } else {
+                            if (System.nanoTime() - scheduledAt < TimeUnit.MILLISECONDS.toNanos(delayMillis)) {
+                                numOfEarlyTimers.incrementAndGet();
+                            }
+                            allExpired.countDown();
+                        }
+                    },
+                    delayMillis,
+                    TimeUnit.MILLISECONDS
+            ));
+        }
+        final int numOfThreadsWhileRunning = Thread.activeCount();
+        for (int i = 1; i < numOfTimers; i += 2) {
+            assertTrue(timeouts.get(i).cancel());
+        }
+
+        //then
+        assertTrue(allExpired.await(10, TimeUnit.SECONDS));
+        assertEquals(0, numOfEarlyTimers.get());
+        assertEquals(0, numOfCancelledTimersExecuted.get());
+        assertTrue(numOfThreadsWhileRunning - numOfThreadsBefore <= 1);
+        for (int i = 0; i < numOfTimers; i++) {
+            assertEquals(i % 2 == 0, timeouts.get(i).isExpired());
+        }
+        timingWheel.stop();
+    }
+
+    @Test
+    public void getDelay_returns_remaining_delay() throws InterruptedException {
+        //given
+        final HashedTimingWheel timingWheel = new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 64);
+
+        //when
+        final HashedTimingWheel.Timeout timeout = timingWheel.schedule(() -> {}, 30, TimeUnit.SECONDS);
+        Thread.sleep(1100);
+
+        //then
+        assertEquals(28, timeout.getDelay(TimeUnit.SECONDS));
+        assertFalse(timeout.isExpired());
+        timingWheel.stop();
+    }
+}
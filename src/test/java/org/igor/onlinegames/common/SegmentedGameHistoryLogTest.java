@@ -0,0 +1,202 @@
+package org.igor.onlinegames.common;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SegmentedGameHistoryLogTest {
+    private static final Instant DAY_1 = Instant.parse("2021-07-01T10:00:00Z");
+    private static final Instant DAY_2 = Instant.parse("2021-07-02T10:00:00Z");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void records_are_read_by_position_and_by_time_range_across_segments() throws IOException {
+        //given
+        final AtomicLong clock = new AtomicLong(DAY_1.toEpochMilli());
+        final SegmentedGameHistoryLog historyLog = new SegmentedGameHistoryLog(
+                dir, "game", 160, new RawGameHistoryArchiveCodec(), clock::get
+        );
+        historyLog.open();
+        final List<GameHistoryRecord> records = new ArrayList<>();
+        final List<Long> positions = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            if (i == 6) {
+                clock.set(DAY_2.toEpochMilli());
+            }
+            final GameHistoryRecord record = createRecord(DAY_1.plusSeconds(i * 60), i);
+            records.add(record);
+            positions.add(historyLog.append(record));
+        }
+        historyLog.close();
+
+        //when
+        final SegmentedGameHistoryLog reopenedLog = new SegmentedGameHistoryLog(
+                dir, "game", 160, new RawGameHistoryArchiveCodec(), clock::get
+        );
+        reopenedLog.open();
+
+        //then
+        // a record is 77 bytes, so a segment holds 2 of them; day 1 has 3 segments, day 2 - 2
+        assertEquals(
+                Arrays.asList(
+                        "game-2021_07_01-000001.log", "game-2021_07_01-000002.log", "game-2021_07_01-000003.log",
+                        "game-2021_07_02-000004.log", "game-2021_07_02-000005.log"
+                ),
+                listSegments()
+        );
+        for (int i = 0; i < records.size(); i++) {
+            assertRecordEquals(records.get(i), reopenedLog.read(positions.get(i)));
+        }
+        final List<GameHistoryRecord> range = new ArrayList<>();
+        final List<Long> rangePositions = new ArrayList<>();
+        reopenedLog.readRange(DAY_1.plusSeconds(3 * 60), DAY_1.plusSeconds(8 * 60), (position, record) -> {
+            rangePositions.add(position);
+            range.add(record);
+        });
+        assertEquals(positions.subList(3, 8), rangePositions);
+        for (int i = 0; i < range.size(); i++) {
+            assertRecordEquals(records.get(i + 3), range.get(i));
+        }
+
+        final GameHistoryRecord newRecord = createRecord(DAY_2, 10);
+        final long newPosition = reopenedLog.append(newRecord);
+        assertRecordEquals(newRecord, reopenedLog.read(newPosition));
+        assertEquals("game-2021_07_02-000006.log", listSegments().get(5));
+        reopenedLog.close();
+    }
+
+    @Test
+    public void torn_tail_is_cut_off_and_damaged_record_is_reported() throws IOException {
+        //given
+        final SegmentedGameHistoryLog historyLog = new SegmentedGameHistoryLog(dir, "game", 1 << 20);
+        historyLog.open();
+        final List<Long> positions = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            positions.add(historyLog.append(createRecord(DAY_1.plusSeconds(i), i)));
+        }
+        historyLog.close();
+        final Path segment = dir.resolve(listSegments().get(0));
+        final long validSize = Files.size(segment);
+        // a crash while a record was being appended
+        Files.write(segment, new byte[]{0, 0, 0, 90, 1, 2, 3, 4, 5, 6}, StandardOpenOption.APPEND);
+
+        //when
+        final SegmentedGameHistoryLog reopenedLog = new SegmentedGameHistoryLog(dir, "game", 1 << 20);
+        reopenedLog.open();
+
+        //then
+        assertEquals(validSize, Files.size(segment));
+        final GameHistoryRecord record = createRecord(DAY_1.plusSeconds(3), 3);
+        assertRecordEquals(record, reopenedLog.read(reopenedLog.append(record)));
+        final List<Long> rangePositions = new ArrayList<>();
+        reopenedLog.readRange(Instant.EPOCH, Instant.MAX, (position, r) -> rangePositions.add(position));
+        assertEquals(4, rangePositions.size());
+
+        // the last byte of the data of the second record
+        final byte[] bytes = Files.readAllBytes(segment);
+        bytes[(int) (positions.get(2) & 0xFFFFFFFFFFL) - 1] ^= 1;
+        Files.write(segment, bytes);
+        assertThrows(IOException.class, () -> reopenedLog.read(positions.get(1)));
+        reopenedLog.close();
+    }
+
+    @Test
+    public void archived_segments_are_read_as_before() throws IOException {
+        //given
+        final AtomicLong clock = new AtomicLong(DAY_1.toEpochMilli());
+        final SegmentedGameHistoryLog historyLog = new SegmentedGameHistoryLog(
+                dir, "game", 160, new RawGameHistoryArchiveCodec(), clock::get
+        );
+        historyLog.open();
+        final List<GameHistoryRecord> records = new ArrayList<>();
+        final List<Long> positions = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            if (i == 6) {
+                clock.set(DAY_2.toEpochMilli());
+            }
+            final GameHistoryRecord record = createRecord(DAY_1.plusSeconds(i * 60), i);
+            records.add(record);
+            positions.add(historyLog.append(record));
+        }
+
+        //when
+        final int numOfArchived = historyLog.archiveSegments(DAY_2);
+
+        //then
+        assertEquals(3, numOfArchived);
+        assertEquals(
+                Arrays.asList(
+                        "game-2021_07_01-000001.arc", "game-2021_07_01-000002.arc", "game-2021_07_01-000003.arc",
+                        "game-2021_07_02-000004.log", "game-2021_07_02-000005.log"
+                ),
+                listSegments()
+        );
+        for (int i = 0; i < records.size(); i++) {
+            assertRecordEquals(records.get(i), historyLog.read(positions.get(i)));
+        }
+        final List<Long> rangePositions = new ArrayList<>();
+        historyLog.readRange(DAY_1.plusSeconds(3 * 60), DAY_1.plusSeconds(8 * 60), (position, record) -> {
+            rangePositions.add(position);
+            assertRecordEquals(records.get(positions.indexOf(position)), record);
+        });
+        assertEquals(positions.subList(3, 8), rangePositions);
+        historyLog.close();
+
+        final SegmentedGameHistoryLog reopenedLog = new SegmentedGameHistoryLog(
+                dir, "game", 160, new RawGameHistoryArchiveCodec(), clock::get
+        );
+        reopenedLog.open();
+        assertEquals(0, reopenedLog.archiveSegments(DAY_2));
+        final List<Long> allPositions = new ArrayList<>();
+        reopenedLog.readRange(Instant.EPOCH, Instant.MAX, (position, record) -> allPositions.add(position));
+        assertEquals(positions, allPositions);
+        assertRecordEquals(records.get(1), reopenedLog.read(positions.get(1)));
+        final GameHistoryRecord newRecord = createRecord(DAY_2, 10);
+        assertRecordEquals(newRecord, reopenedLog.read(reopenedLog.append(newRecord)));
+        reopenedLog.close();
+    }
+
+    private GameHistoryRecord createRecord(Instant startedAt, int i) {
+        return new GameHistoryRecord(
+                startedAt,
+                new UUID(i, 0),
+                Arrays.asList(new UUID(i, 1), new UUID(i, 2)),
+                String.format("{\"game\":%03d}", i).getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    private void assertRecordEquals(GameHistoryRecord expected, GameHistoryRecord actual) {
+        assertEquals(expected.getStartedAt(), actual.getStartedAt());
+        assertEquals(expected.getGameId(), actual.getGameId());
+        assertEquals(expected.getUserIds(), actual.getUserIds());
+        assertArrayEquals(expected.getData(), actual.getData());
+    }
+
+    private List<String> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(fileName -> fileName.endsWith(".log") || fileName.endsWith(".arc"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+}
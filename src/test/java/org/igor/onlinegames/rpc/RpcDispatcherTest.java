@@ -0,0 +1,120 @@
+package org.igor.onlinegames.rpc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.igor.onlinegames.exceptions.OnlinegamesException;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RpcDispatcherTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void dispatchRpcCall_binds_passed_default_and_looked_up_params() throws Exception {
+        //given
+        final RpcDispatcher rpcDispatcher = createRpcDispatcher();
+        final TestRpcMethods target = new TestRpcMethods();
+        final Map<String, RpcMethodInvoker> methodTable = rpcDispatcher.getMethodTable(target);
+        final RpcAutowiredParamsLookup paramsLookup = new RpcAutowiredParamsLookup() {
+            @Override
+            public <T> T getByClass(Class<T> clazz) {
+                return StringBuilder.class.equals(clazz) ? (T) new StringBuilder("looked-up") : null;
+            }
+        };
+        final UUID id = UUID.randomUUID();
+
+        //when
+        final Object withDefault = rpcDispatcher.dispatchRpcCall(
+                "describe", mapper.readTree("{\"x\":5,\"ids\":[\"" + id + "\"]}"), target, methodTable, paramsLookup
+        );
+        final Object withPassedParams = rpcDispatcher.dispatchRpcCall(
+                "describe", mapper.readTree("{\"x\":5,\"y\":7,\"ids\":null}"), target, methodTable, paramsLookup
+        );
+        final Object noResult = rpcDispatcher.dispatchRpcCall("noResult", null, target, methodTable, paramsLookup);
+
+        //then
+        assertEquals("5 3 [" + id + "] looked-up", withDefault);
+        assertEquals("5 7 null looked-up", withPassedParams);
+        assertNull(noResult);
+    }
+
+    @Test
+    public void dispatchRpcCall_reports_errors() throws Exception {
+        //given
+        final RpcDispatcher rpcDispatcher = createRpcDispatcher();
+        final TestRpcMethods target = new TestRpcMethods();
+        final Map<String, RpcMethodInvoker> methodTable = rpcDispatcher.getMethodTable(target);
+
+        //when
+        final OnlinegamesException unknownParam = assertThrows(OnlinegamesException.class, () ->
+                rpcDispatcher.dispatchRpcCall("describe", mapper.readTree("{\"z\":1}"), target, methodTable, null)
+        );
+        final OnlinegamesException missingParam = assertThrows(OnlinegamesException.class, () ->
+                rpcDispatcher.dispatchRpcCall("describe", mapper.readTree("{\"x\":1}"), target, methodTable, new EmptyParamsLookup())
+        );
+        final InvocationTargetException failedCall = assertThrows(InvocationTargetException.class, () ->
+                rpcDispatcher.dispatchRpcCall("fail", null, target, methodTable, null)
+        );
+
+        //then
+        assertTrue(unknownParam.getMessage().startsWith("Unknown parameter name 'z' in describe"));
+        assertTrue(missingParam.getMessage().startsWith("Rpc call error: required parameter 'ids'"));
+        assertEquals("failed", failedCall.getCause().getMessage());
+    }
+
+    @Test
+    public void getMethodTable_returns_one_table_per_class() {
+        //given
+        final RpcDispatcher rpcDispatcher = createRpcDispatcher();
+
+        //when
+        final Map<String, RpcMethodInvoker> methodTable1 = rpcDispatcher.getMethodTable(new TestRpcMethods());
+        final Map<String, RpcMethodInvoker> methodTable2 = rpcDispatcher.getMethodTable(new TestRpcMethods());
+
+        //then
+        assertSame(methodTable1, methodTable2);
+        assertEquals(3, methodTable1.size());
+    }
+
+    private RpcDispatcher createRpcDispatcher() {
+        final RpcDispatcher rpcDispatcher = new RpcDispatcher();
+        ReflectionTestUtils.setField(rpcDispatcher, "objectMapper", mapper);
+        ReflectionTestUtils.setField(rpcDispatcher, "rpcMethodsCollections", Collections.emptyList());
+        rpcDispatcher.init();
+        return rpcDispatcher;
+    }
+
+    private static class EmptyParamsLookup implements RpcAutowiredParamsLookup {
+        @Override
+        public <T> T getByClass(Class<T> clazz) {
+            return null;
+        }
+    }
+
+    public static class TestRpcMethods {
+        @RpcMethod
+        public String describe(int x, @Default("3") Integer y, List<UUID> ids, StringBuilder lookedUp) {
+            return x + " " + y + " " + ids + " " + lookedUp;
+        }
+
+        @RpcMethod
+        public void noResult() {
+        }
+
+        @RpcMethod
+        public void fail() {
+            throw new OnlinegamesException("failed");
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.igor.onlinegames.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.igor.onlinegames.common.GameHistoryRecord;
+import org.igor.onlinegames.common.SegmentedGameHistoryLog;
+import org.igor.onlinegames.xogame.dto.history.XoGameMoveDto;
+import org.igor.onlinegames.xogame.dto.history.XoGamePlayerInfoDto;
+import org.igor.onlinegames.xogame.dto.history.XoGameRecordDto;
+import org.igor.onlinegames.xogame.manager.XoGameArchiveCodec;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compares disk footprint and time of reading all XO games of the history log before and after its segments are
+ * archived.
+ */
+public class GameHistoryArchiveBenchmark {
+    private static final int NUM_OF_GAMES = 20_000;
+    private static final int NUM_OF_USERS = 500;
+
+    public static void main(String[] args) throws IOException {
+        final ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        final Path dir = Files.createTempDirectory("history-archive-benchmark");
+        try {
+            final SegmentedGameHistoryLog historyLog = new SegmentedGameHistoryLog(
+                    dir, "xo_game", 1 << 20, new XoGameArchiveCodec(mapper)
+            );
+            historyLog.open();
+            final Random random = new Random(42);
+            final List<UUID> userIds = new ArrayList<>();
+            for (int i = 0; i < NUM_OF_USERS; i++) {
+                userIds.add(new UUID(random.nextLong(), random.nextLong()));
+            }
+            final Instant startedAt = Instant.now().minus(Duration.ofDays(30));
+            for (int i = 0; i < NUM_OF_GAMES; i++) {
+                final XoGameRecordDto game = createGame(random, userIds, startedAt.plusSeconds(i * 60L));
+                historyLog.append(new GameHistoryRecord(
+                        game.getStartedAt().truncatedTo(ChronoUnit.MILLIS),
+                        game.getGameId(),
+                        game.getPlayers().stream().map(XoGamePlayerInfoDto::getUserId).collect(Collectors.toList()),
+                        mapper.writeValueAsBytes(game)
+                ));
+            }
+            historyLog.sync();
+
+            // warm up
+            measureScan(historyLog, mapper);
+            System.out.println("log     " + describe(dir) + ", scan " + measureScan(historyLog, mapper));
+            final long archivingStartedAt = System.nanoTime();
+            historyLog.archiveSegments(Instant.now().plus(Duration.ofDays(1)));
+            System.out.printf("archived in %.1f ms%n", (System.nanoTime() - archivingStartedAt) / 1e6);
+            // the first scan decodes archives, the next ones read archives kept in memory
+            System.out.println("archive " + describe(dir) + ", scan " + measureScan(historyLog, mapper));
+            System.out.println("cached  " + describe(dir) + ", scan " + measureScan(historyLog, mapper));
+            historyLog.close();
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static XoGameRecordDto createGame(Random random, List<UUID> userIds, Instant startedAt) {
+        final int numOfMoves = 5 + random.nextInt(40);
+        final List<XoGameMoveDto> moves = new ArrayList<>(numOfMoves);
+        Instant time = startedAt;
+        for (int i = 0; i < numOfMoves; i++) {
+            time = time.plusNanos(500_000_000L + random.nextInt(1_000_000_000) * 10L);
+            moves.add(XoGameMoveDto.builder()
+                    .moveNumber(i + 1)
+                    .playerId(i % 2)
+                    .time(time)
+                    .x(random.nextInt(15))
+                    .y(random.nextInt(15))
+                    .build());
+        }
+        return XoGameRecordDto.builder()
+                .gameId(UUID.randomUUID())
+                .startedAt(startedAt.plusNanos(random.nextInt(1_000_000_000)))
+                .finishedAt(time.plusMillis(random.nextInt(1000)))
+                .fieldSize(15)
+                .goal(5)
+                .secondsPerMove(random.nextBoolean() ? 30 : null)
+                .players(Arrays.asList(
+                        createPlayer(userIds.get(random.nextInt(userIds.size())), 0),
+                        createPlayer(userIds.get(random.nextInt(userIds.size())), 1)
+                ))
+                .moves(moves)
+                .winnerPath(Arrays.asList(Arrays.asList(1, 1), Arrays.asList(2, 2), Arrays.asList(3, 3),
+                        Arrays.asList(4, 4), Arrays.asList(5, 5)))
+                .winnerId(random.nextInt(2))
+                .build();
+    }
+
+    private static XoGamePlayerInfoDto createPlayer(UUID userId, int playerId) {
+        return XoGamePlayerInfoDto.builder()
+                .userId(userId)
+                .playerId(playerId)
+                .playerName("player-" + userId.toString().substring(0, 8))
+                .build();
+    }
+
+    private static String describe(Path dir) throws IOException {
+        final long size;
+        final long numOfFiles;
+        try (Stream<Path> files = Files.list(dir)) {
+            final List<Path> paths = files.collect(Collectors.toList());
+            numOfFiles = paths.size();
+            size = paths.stream().mapToLong(GameHistoryArchiveBenchmark::sizeOf).sum();
+        }
+        return String.format("%10d bytes in %4d files, %8.1f bytes/game",
+                size, numOfFiles, (double) size / NUM_OF_GAMES);
+    }
+
+    private static String measureScan(SegmentedGameHistoryLog historyLog, ObjectMapper mapper) throws IOException {
+        final long startedAt = System.nanoTime();
+        final long[] checksum = new long[1];
+        historyLog.readRange(Instant.EPOCH, Instant.MAX, (position, record) ->
+                checksum[0] += mapper.readValue(record.getData(), XoGameRecordDto.class).getMoves().size()
+        );
+        final long elapsed = System.nanoTime() - startedAt;
+        return String.format("%8.1f ms %6.2f us/game (checksum %d)",
+                elapsed / 1e6, elapsed / 1e3 / NUM_OF_GAMES, checksum[0]);
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
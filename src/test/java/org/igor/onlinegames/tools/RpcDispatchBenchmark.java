@@ -0,0 +1,103 @@
+package org.igor.onlinegames.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.igor.onlinegames.rpc.Default;
+import org.igor.onlinegames.rpc.RpcAutowiredParamsLookup;
+import org.igor.onlinegames.rpc.RpcDispatcher;
+import org.igor.onlinegames.rpc.RpcIgnore;
+import org.igor.onlinegames.rpc.RpcMethod;
+import org.igor.onlinegames.rpc.RpcMethodInvoker;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Measures the overhead of dispatching a clickCell-like RPC call: reflective dispatch which inspects the method on
+ * every call (as RpcDispatcher did before precompiled invokers) vs RpcDispatcher.
+ */
+public class RpcDispatchBenchmark {
+    private static final int NUM_OF_WARMUP_CALLS = 2_000_000;
+    private static final int NUM_OF_MEASURED_CALLS = 5_000_000;
+
+    public static void main(String[] args) throws Exception {
+        final ObjectMapper mapper = new ObjectMapper();
+        final RpcDispatcher rpcDispatcher = new RpcDispatcher();
+        ReflectionTestUtils.setField(rpcDispatcher, "objectMapper", mapper);
+        ReflectionTestUtils.setField(rpcDispatcher, "rpcMethodsCollections", Collections.emptyList());
+        rpcDispatcher.init();
+        final BenchmarkRpcMethods target = new BenchmarkRpcMethods();
+        final Map<String, RpcMethodInvoker> methodTable = rpcDispatcher.getMethodTable(target);
+        final Method method = BenchmarkRpcMethods.class.getMethod("clickCell", StringBuilder.class, int.class, int.class);
+        final JsonNode params = mapper.readTree("{\"x\":3,\"y\":4}");
+        final StringBuilder session = new StringBuilder();
+        final RpcAutowiredParamsLookup paramsLookup = new RpcAutowiredParamsLookup() {
+            @Override
+            public <T> T getByClass(Class<T> clazz) {
+                return (T) session;
+            }
+        };
+
+        final Call reflective = () -> invokeReflectively(mapper, target, method, params, paramsLookup);
+        final Call precompiled = () -> rpcDispatcher.dispatchRpcCall("clickCell", params, target, methodTable, paramsLookup);
+        measure(reflective, NUM_OF_WARMUP_CALLS);
+        measure(precompiled, NUM_OF_WARMUP_CALLS);
+        System.out.printf("reflective  %6.1f ns/call%n", measure(reflective, NUM_OF_MEASURED_CALLS));
+        System.out.printf("precompiled %6.1f ns/call%n", measure(precompiled, NUM_OF_MEASURED_CALLS));
+        System.out.println("checksum " + target.sum);
+    }
+
+    private static double measure(Call call, int numOfCalls) throws Exception {
+        final long startedAt = System.nanoTime();
+        for (int i = 0; i < numOfCalls; i++) {
+            call.call();
+        }
+        return (System.nanoTime() - startedAt) / (double) numOfCalls;
+    }
+
+    private static Object invokeReflectively(ObjectMapper mapper, Object target, Method method, JsonNode passedParams,
+                                             RpcAutowiredParamsLookup paramsLookup) throws Exception {
+        final Parameter[] declaredParams = method.getParameters();
+        final Set<String> allParamNames = new HashSet<>();
+        for (Parameter declaredParam : declaredParams) {
+            allParamNames.add(declaredParam.getName());
+        }
+        passedParams.fieldNames().forEachRemaining(name -> {
+            if (!allParamNames.contains(name)) {
+                throw new IllegalArgumentException(name);
+            }
+        });
+        final Object[] arguments = new Object[declaredParams.length];
+        for (int i = 0; i < declaredParams.length; i++) {
+            final Parameter declaredParam = declaredParams[i];
+            if (declaredParam.getAnnotation(RpcIgnore.class) != null) {
+                continue;
+            }
+            final JsonNode passedParam = passedParams.get(declaredParam.getName());
+            if (passedParam != null) {
+                arguments[i] = mapper.treeToValue(passedParam, declaredParam.getType());
+            } else if (declaredParam.getAnnotation(Default.class) == null) {
+                arguments[i] = paramsLookup.getByClass(declaredParam.getType());
+            }
+        }
+        return method.invoke(target, arguments);
+    }
+
+    private interface Call {
+        Object call() throws Exception;
+    }
+
+    public static class BenchmarkRpcMethods {
+        private long sum;
+
+        @RpcMethod
+        public void clickCell(StringBuilder session, int x, int y) {
+            sum += x + y;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.igor.onlinegames.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.igor.onlinegames.rpc.RpcDispatcher;
+import org.igor.onlinegames.rpc.RpcMethod;
+import org.igor.onlinegames.rpc.RpcMethodInvoker;
+import org.igor.onlinegames.websocket.AsyncWebSocketRpcCall;
+import org.igor.onlinegames.websocket.RpcFrameReader;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Compares time and allocations per frame of reading high-frequency RPC frames into method arguments: via an
+ * intermediate JsonNode tree vs RpcFrameReader which binds parameters from the token stream.
+ */
+public class RpcFrameParsingBenchmark {
+    private static final int NUM_OF_WARMUP_FRAMES = 1_000_000;
+    private static final int NUM_OF_MEASURED_FRAMES = 2_000_000;
+
+    public static void main(String[] args) throws Exception {
+        final ObjectMapper mapper = new ObjectMapper();
+        final RpcDispatcher rpcDispatcher = new RpcDispatcher();
+        ReflectionTestUtils.setField(rpcDispatcher, "objectMapper", mapper);
+        ReflectionTestUtils.setField(rpcDispatcher, "rpcMethodsCollections", Collections.emptyList());
+        rpcDispatcher.init();
+        final RpcFrameReader rpcFrameReader = new RpcFrameReader();
+        ReflectionTestUtils.setField(rpcFrameReader, "mapper", mapper);
+        ReflectionTestUtils.setField(rpcFrameReader, "cborMapper", new ObjectMapper(new CBORFactory()));
+        final Map<String, RpcMethodInvoker> methodTable = rpcDispatcher.getMethodTable(new BenchmarkRpcMethods());
+
+        for (String payload : new String[]{
+                "{\"methodName\":\"clickCell\",\"params\":{\"x\":3,\"y\":4}}",
+                "{\"methodName\":\"enterWord\",\"params\":{\"text\":\"pellentesque\"}}"
+        }) {
+            final Parse tree = () -> {
+                final AsyncWebSocketRpcCall call = mapper.readValue(payload, AsyncWebSocketRpcCall.class);
+                return methodTable.get(call.getMethodName()).parseArguments(call.getParams());
+            };
+            final Parse streaming = () -> rpcFrameReader.read(payload, methodTable).getArguments();
+            measure(tree, NUM_OF_WARMUP_FRAMES);
+            measure(streaming, NUM_OF_WARMUP_FRAMES);
+            System.out.println(payload);
+            System.out.println("  JsonNode  " + measure(tree, NUM_OF_MEASURED_FRAMES));
+            System.out.println("  streaming " + measure(streaming, NUM_OF_MEASURED_FRAMES));
+        }
+    }
+
+    private static String measure(Parse parse, int numOfFrames) throws Exception {
+        final com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        final long startedAt = System.nanoTime();
+        int checksum = 0;
+        for (int i = 0; i < numOfFrames; i++) {
+            checksum += parse.parse().length;
+        }
+        final long elapsed = System.nanoTime() - startedAt;
+        final long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        return String.format(
+                "%6.1f ns/frame %6d bytes/frame (checksum %d)",
+                elapsed / (double) numOfFrames, allocated / numOfFrames, checksum
+        );
+    }
+
+    private interface Parse {
+        Object[] parse() throws Exception;
+    }
+
+    public static class BenchmarkRpcMethods {
+        @RpcMethod
+        public void clickCell(WebSocketSession session, int x, int y) {
+        }
+
+        @RpcMethod
+        public void enterWord(WebSocketSession session, String text) {
+        }
+    }
+}
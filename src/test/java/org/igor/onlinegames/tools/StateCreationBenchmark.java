@@ -0,0 +1,74 @@
+package org.igor.onlinegames.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.igor.onlinegames.rpc.RpcDispatcher;
+import org.igor.onlinegames.rpc.RpcMethodInvoker;
+import org.igor.onlinegames.websocket.State;
+import org.igor.onlinegames.xogame.manager.XoGameState;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Compares the method table part of StateManager.createNewBackendState: a method table created for every new state
+ * (as before per-class method tables) vs a method table shared by all states of the same class. Reports creation
+ * throughput and heap retained per idle game.
+ */
+public class StateCreationBenchmark {
+    private static final int NUM_OF_GAMES = 20_000;
+
+    public static void main(String[] args) {
+        final RpcDispatcher rpcDispatcher = new RpcDispatcher();
+        ReflectionTestUtils.setField(rpcDispatcher, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(rpcDispatcher, "rpcMethodsCollections", Collections.emptyList());
+        rpcDispatcher.init();
+
+        final Function<State, Map<String, RpcMethodInvoker>> perInstance =
+                state -> ReflectionTestUtils.invokeMethod(rpcDispatcher, "createMethodTable", state.getClass());
+        final Function<State, Map<String, RpcMethodInvoker>> perClass = rpcDispatcher::getMethodTable;
+        createGames(perInstance);
+        createGames(perClass);
+        runBenchmark("per-instance", perInstance);
+        runBenchmark("per-class", perClass);
+    }
+
+    private static void runBenchmark(String name, Function<State, Map<String, RpcMethodInvoker>> methodTableProvider) {
+        final long usedHeapBefore = getUsedHeapAfterGc();
+        final long startedAt = System.nanoTime();
+        final List<State> games = createGames(methodTableProvider);
+        final long elapsed = System.nanoTime() - startedAt;
+        final long usedHeapAfter = getUsedHeapAfterGc();
+        System.out.printf(
+                "%-12s %8.0f games/s, %6d bytes retained per idle game%n",
+                name,
+                games.size() / (elapsed / 1e9),
+                (usedHeapAfter - usedHeapBefore) / games.size()
+        );
+    }
+
+    private static List<State> createGames(Function<State, Map<String, RpcMethodInvoker>> methodTableProvider) {
+        final List<State> games = new ArrayList<>(NUM_OF_GAMES);
+        for (int i = 0; i < NUM_OF_GAMES; i++) {
+            final State game = new XoGameState();
+            game.setMethodTable(methodTableProvider.apply(game));
+            game.setCreatedAt(Instant.now());
+            game.setStateId(UUID.randomUUID());
+            games.add(game);
+        }
+        return games;
+    }
+
+    private static long getUsedHeapAfterGc() {
+        final Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
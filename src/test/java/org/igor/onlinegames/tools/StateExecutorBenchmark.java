@@ -0,0 +1,99 @@
+package org.igor.onlinegames.tools;
+
+import org.igor.onlinegames.config.AppConfig;
+import org.igor.onlinegames.exceptions.OnlinegamesException;
+import org.igor.onlinegames.websocket.State;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares throughput and latency of RPC processing for different values of app.executor.mode.
+ * Every simulated client is bound to one game and sends RPCs one by one waiting for each response. Every RPC blocks
+ * for a short time to simulate a slow send or a history write.
+ * <p>
+ * Usage: StateExecutorBenchmark [mode...], modes: fixed, cached, virtual (Java 21+). By default all modes are run,
+ * virtual is skipped on runtimes without virtual threads.
+ */
+public class StateExecutorBenchmark {
+    private static final int NUM_OF_CLIENTS = 1_000;
+    private static final int NUM_OF_CLIENTS_PER_GAME = 4;
+    private static final int NUM_OF_CALLS_PER_CLIENT = 20;
+    private static final int POOL_SIZE = 10;
+    private static final long RPC_BLOCKING_MILLIS = 1;
+
+    public static void main(String[] args) throws InterruptedException {
+        final List<String> modes = args.length == 0
+                ? Arrays.asList("fixed", "cached", "virtual")
+                : Arrays.asList(args);
+        for (String mode : modes) {
+            final ExecutorService executorService;
+            try {
+                executorService = AppConfig.createExecutorService(mode, POOL_SIZE);
+            } catch (OnlinegamesException ex) {
+                System.out.printf("mode=%-7s skipped: %s%n", mode, ex.getMessage());
+                continue;
+            }
+            runBenchmark(mode, executorService);
+        }
+    }
+
+    private static void runBenchmark(String mode, ExecutorService executorService) throws InterruptedException {
+        final List<State> games = new ArrayList<>();
+        for (int i = 0; i < NUM_OF_CLIENTS / NUM_OF_CLIENTS_PER_GAME; i++) {
+            final State game = new BenchmarkState();
+            ReflectionTestUtils.setField(game, "executorService", executorService);
+            games.add(game);
+        }
+        final long[] latencies = new long[NUM_OF_CLIENTS * NUM_OF_CALLS_PER_CLIENT];
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch finish = new CountDownLatch(NUM_OF_CLIENTS);
+        for (int c = 0; c < NUM_OF_CLIENTS; c++) {
+            final int client = c;
+            final State game = games.get(client / NUM_OF_CLIENTS_PER_GAME);
+            final Thread clientThread = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < NUM_OF_CALLS_PER_CLIENT; i++) {
+                        final long sentAt = System.nanoTime();
+                        game.submit(() -> {
+                            Thread.sleep(RPC_BLOCKING_MILLIS);
+                            return null;
+                        }).join();
+                        latencies[client * NUM_OF_CALLS_PER_CLIENT + i] = System.nanoTime() - sentAt;
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    finish.countDown();
+                }
+            });
+            clientThread.setDaemon(true);
+            clientThread.start();
+        }
+        final long startedAt = System.nanoTime();
+        start.countDown();
+        finish.await();
+        final long elapsed = System.nanoTime() - startedAt;
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.MINUTES);
+
+        Arrays.sort(latencies);
+        System.out.printf(
+                "mode=%-7s throughput=%8.0f rpc/s p50=%7.2f ms p99=%7.2f ms max=%7.2f ms%n",
+                mode,
+                latencies.length / (elapsed / 1e9),
+                latencies[latencies.length / 2] / 1e6,
+                latencies[(int) (latencies.length * 0.99)] / 1e6,
+                latencies[latencies.length - 1] / 1e6
+        );
+    }
+
+    private static class BenchmarkState extends State {
+    }
+}
@@ -0,0 +1,59 @@
+package org.igor.onlinegames.tools;
+
+import org.igor.onlinegames.wordsgame.manager.RegexTextProcessing;
+import org.igor.onlinegames.wordsgame.manager.TextProcessing;
+import org.igor.onlinegames.wordsgame.manager.TextToken;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Compares time and allocations of splitting texts of different sizes on paragraphs: the regex based tokenizer vs
+ * the single pass one.
+ */
+public class TextProcessingBenchmark {
+    private static final String SAMPLE = "Lorem ipsum dolor sit amet, consectetur [adipiscing elit], sed do eiusmod "
+            + "tempor incididunt ut labore et dolore magna aliqua! Ut enim ad minim veniam, quis {1.} nostrud - "
+            + "exercitation ullamco \"laboris\" nisi ut aliquip ex ea commodo consequat…\n";
+
+    public static void main(String[] args) {
+        for (int size : new int[]{1_000, 100_000, 1_000_000}) {
+            final String text = createText(size);
+            final int numOfIterations = Math.max(5, 50_000_000 / size);
+            final Function<String, List<List<TextToken>>> regex = RegexTextProcessing::splitOnParagraphs;
+            final Function<String, List<List<TextToken>>> singlePass = TextProcessing::splitOnParagraphs;
+            measure(regex, text, numOfIterations);
+            measure(singlePass, text, numOfIterations);
+            System.out.println(size + " chars");
+            System.out.println("  regex       " + measure(regex, text, numOfIterations));
+            System.out.println("  single pass " + measure(singlePass, text, numOfIterations));
+        }
+    }
+
+    private static String createText(int size) {
+        final StringBuilder text = new StringBuilder();
+        while (text.length() < size) {
+            text.append(SAMPLE);
+        }
+        return text.substring(0, size);
+    }
+
+    private static String measure(Function<String, List<List<TextToken>>> split, String text, int numOfIterations) {
+        final com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        final long startedAt = System.nanoTime();
+        int checksum = 0;
+        for (int i = 0; i < numOfIterations; i++) {
+            checksum += split.apply(text).size();
+        }
+        final long elapsed = System.nanoTime() - startedAt;
+        final long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        return String.format(
+                "%10.3f ms/text %10d bytes/text (checksum %d)",
+                elapsed / 1e6 / numOfIterations, allocated / numOfIterations, checksum
+        );
+    }
+}
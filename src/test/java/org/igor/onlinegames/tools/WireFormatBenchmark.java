@@ -0,0 +1,135 @@
+package org.igor.onlinegames.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.igor.onlinegames.common.OnlinegamesUtils;
+import org.igor.onlinegames.websocket.MessageSizeStats;
+import org.igor.onlinegames.wordsgame.dto.WordsGamePhase;
+import org.igor.onlinegames.wordsgame.dto.WordsGameStateDto;
+import org.igor.onlinegames.wordsgame.dto.WordsGameTextDto;
+import org.igor.onlinegames.wordsgame.dto.WordsPlayerDto;
+import org.igor.onlinegames.wordsgame.manager.TextProcessing;
+import org.igor.onlinegames.xogame.dto.XoCellDto;
+import org.igor.onlinegames.xogame.dto.XoGamePhase;
+import org.igor.onlinegames.xogame.dto.XoGameStateDeltaDto;
+import org.igor.onlinegames.xogame.dto.XoGameStateDto;
+import org.igor.onlinegames.xogame.dto.XoPlayerDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares size (plain and permessage-deflate compressed without context takeover), encoding time and decoding time
+ * of typical server to client messages in JSON and CBOR wire formats.
+ */
+public class WireFormatBenchmark {
+    private static final int NUM_OF_WARMUP_ITERATIONS = 20_000;
+    private static final int NUM_OF_MEASURED_ITERATIONS = 50_000;
+
+    public static void main(String[] args) throws Exception {
+        final ObjectMapper jsonMapper = new ObjectMapper();
+        final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        final Map<String, Object> messages = new LinkedHashMap<>();
+        messages.put("xo snapshot 15x15", createXoSnapshot(15));
+        messages.put("xo delta", createXoDelta());
+        messages.put("words snapshot", createWordsSnapshot());
+        messages.put("words text", createWordsText());
+
+        for (Map.Entry<String, Object> message : messages.entrySet()) {
+            System.out.println(message.getKey());
+            measure("json", jsonMapper, message.getValue(), NUM_OF_WARMUP_ITERATIONS);
+            measure("cbor", cborMapper, message.getValue(), NUM_OF_WARMUP_ITERATIONS);
+            System.out.println(measure("json", jsonMapper, message.getValue(), NUM_OF_MEASURED_ITERATIONS));
+            System.out.println(measure("cbor", cborMapper, message.getValue(), NUM_OF_MEASURED_ITERATIONS));
+        }
+    }
+
+    private static String measure(String name, ObjectMapper mapper, Object msg, int numOfIterations) throws Exception {
+        byte[] encoded = null;
+        final long encodingStartedAt = System.nanoTime();
+        for (int i = 0; i < numOfIterations; i++) {
+            encoded = mapper.writeValueAsBytes(msg);
+        }
+        final long encodingElapsed = System.nanoTime() - encodingStartedAt;
+        int checksum = 0;
+        final long decodingStartedAt = System.nanoTime();
+        for (int i = 0; i < numOfIterations; i++) {
+            checksum += mapper.readValue(encoded, JsonNode.class).size();
+        }
+        final long decodingElapsed = System.nanoTime() - decodingStartedAt;
+        return String.format(
+                "  %s %7d bytes (%6d deflated), encode %8.1f ns, decode %8.1f ns (checksum %d)",
+                name, encoded.length, MessageSizeStats.getCompressedSize(encoded),
+                encodingElapsed / (double) numOfIterations, decodingElapsed / (double) numOfIterations,
+                checksum
+        );
+    }
+
+    private static XoGameStateDto createXoSnapshot(int fieldSize) {
+        final List<XoCellDto> field = new ArrayList<>();
+        for (int x = 0; x < fieldSize; x++) {
+            for (int y = 0; y < fieldSize; y++) {
+                field.add(XoCellDto.builder().x(x).y(y).symbol((x * 7 + y * 3) % 5 == 0 ? 'x' : null).build());
+            }
+        }
+        return XoGameStateDto.builder()
+                .seq(42)
+                .title("Benchmark game")
+                .phase(XoGamePhase.IN_PROGRESS)
+                .currentUserIsGameOwner(true)
+                .fieldSize(fieldSize)
+                .goal(5)
+                .timerSeconds(30)
+                .field(field)
+                .lastCell(Arrays.asList(3, 4))
+                .players(Arrays.asList(
+                        XoPlayerDto.builder().playerId(1).name("player-1").gameOwner(true).symbol('x').build(),
+                        XoPlayerDto.builder().playerId(2).name("player-2").symbol('o').build()
+                ))
+                .currentPlayerId(1)
+                .playerIdToMove(2)
+                .build();
+    }
+
+    private static XoGameStateDeltaDto createXoDelta() {
+        return XoGameStateDeltaDto.builder()
+                .seq(43)
+                .phase(XoGamePhase.IN_PROGRESS)
+                .cell(XoCellDto.builder().x(3).y(4).symbol('x').build())
+                .timerSeconds(30)
+                .playerIdToMove(2)
+                .build();
+    }
+
+    private static WordsGameTextDto createWordsText() {
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            text.append("Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ut ")
+                    .append("labore et dolore magna aliqua.");
+            text.append(i % 5 == 4 ? "\n" : " ");
+        }
+        return new WordsGameTextDto(
+                OnlinegamesUtils.sha256Hex(text.toString()), text.toString(), TextProcessing.splitOnParagraphs(text.toString())
+        );
+    }
+
+    private static WordsGameStateDto createWordsSnapshot() {
+        return WordsGameStateDto.builder()
+                .title("Benchmark game")
+                .phase(WordsGamePhase.SELECT_WORD)
+                .currentUserIsGameOwner(true)
+                .timerSeconds(60)
+                .players(Arrays.asList(
+                        WordsPlayerDto.builder().playerId(1).name("player-1").gameOwner(true).build(),
+                        WordsPlayerDto.builder().playerId(2).name("player-2").build()
+                ))
+                .currentPlayerId(1)
+                .playerIdToMove(1)
+                .textVersion(createWordsText().getTextVersion())
+                .build();
+    }
+}
@@ -0,0 +1,220 @@
+package org.igor.onlinegames.tools;
+
+import org.igor.onlinegames.xogame.dto.XoCellDto;
+import org.igor.onlinegames.xogame.manager.XoBoard;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+import static org.igor.onlinegames.common.OnlinegamesUtils.listOf;
+
+/**
+ * Compares the work done on every XO move: XoBoard vs the former Character[][] field which was scanned as a whole
+ * to find the winner, to detect a draw and to create the cells DTO. Both play the same random games till the first
+ * win or a draw.
+ */
+public class XoBoardBenchmark {
+    private static final char[] SYMBOLS = {'x', 'o'};
+
+    public static void main(String[] args) {
+        final int[][] sizesAndGoals = {{3, 3}, {15, 5}, {50, 5}};
+        final int[] numsOfGames = {20_000, 200, 5};
+        for (int i = 0; i < sizesAndGoals.length; i++) {
+            final int size = sizesAndGoals[i][0];
+            final int goal = sizesAndGoals[i][1];
+            final List<int[]> games = createGames(size, numsOfGames[i]);
+            measure(new ArrayScan(), size, goal, games);
+            measure(new Board(), size, goal, games);
+            System.out.println(size + "x" + size + ", goal " + goal);
+            System.out.println("  Character[][] scan " + measure(new ArrayScan(), size, goal, games));
+            System.out.println("  XoBoard            " + measure(new Board(), size, goal, games));
+        }
+    }
+
+    private static List<int[]> createGames(int size, int numOfGames) {
+        final Random random = new Random(size);
+        final List<int[]> games = new ArrayList<>();
+        for (int g = 0; g < numOfGames; g++) {
+            final List<Integer> cells = new ArrayList<>();
+            for (int i = 0; i < size * size; i++) {
+                cells.add(i);
+            }
+            Collections.shuffle(cells, random);
+            games.add(cells.stream().mapToInt(Integer::intValue).toArray());
+        }
+        return games;
+    }
+
+    private static String measure(Engine engine, int size, int goal, List<int[]> games) {
+        final com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        final long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        final long startedAt = System.nanoTime();
+        long numOfMoves = 0;
+        int checksum = 0;
+        for (int[] cells : games) {
+            engine.start(size, goal);
+            for (int move = 0; move < cells.length; move++) {
+                numOfMoves++;
+                final int result = engine.move(cells[move] / size, cells[move] % size, SYMBOLS[move % 2]);
+                checksum += result;
+                if (result < 0) {
+                    break;
+                }
+            }
+        }
+        final long elapsed = System.nanoTime() - startedAt;
+        final long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        return String.format(
+                "%10.3f us/move %10d bytes/move (%d moves, checksum %d)",
+                elapsed / 1e3 / numOfMoves, allocated / numOfMoves, numOfMoves, checksum
+        );
+    }
+
+    private interface Engine {
+        void start(int size, int goal);
+
+        /**
+         * @return -1 if the game is finished, otherwise the number of cells sent to players
+         */
+        int move(int x, int y, char symbol);
+    }
+
+    private static class Board implements Engine {
+        private XoBoard board;
+
+        @Override
+        public void start(int size, int goal) {
+            board = new XoBoard(size, goal);
+        }
+
+        @Override
+        public int move(int x, int y, char symbol) {
+            board.put(x, y, symbol);
+            if (board.findWinnerPath(x, y) != null || board.isDraw()) {
+                return -1;
+            }
+            return board.createCellsDto().size();
+        }
+    }
+
+    /**
+     * The field and the full scan as they were before XoBoard.
+     */
+    private static class ArrayScan implements Engine {
+        private Character[][] field;
+        private int goal;
+
+        @Override
+        public void start(int size, int goal) {
+            field = new Character[size][size];
+            this.goal = goal;
+        }
+
+        @Override
+        public int move(int x, int y, char symbol) {
+            field[x][y] = symbol;
+            if (findPath(field, goal, true) != null || findPath(field, goal, false) == null) {
+                return -1;
+            }
+            return createFieldDto(field).size();
+        }
+
+        private static List<XoCellDto> createFieldDto(Character[][] field) {
+            final ArrayList<XoCellDto> cellsDto = new ArrayList<>();
+            for (int x = 0; x < field.length; x++) {
+                for (int y = 0; y < field[x].length; y++) {
+                    final Character cellSymbol = field[x][y];
+                    if (cellSymbol != null) {
+                        cellsDto.add(XoCellDto.builder().x(x).y(y).symbol(cellSymbol).build());
+                    }
+                }
+            }
+            return cellsDto;
+        }
+
+        private static void iterateCells(int fieldSize, int x, int y, int dx, int dy,
+                                         BiFunction<Integer, Integer, Boolean> coordsConsumer) {
+            if (dx == 0 && dy == 0) {
+                return;
+            }
+            while (0 <= x && x < fieldSize && 0 <= y && y < fieldSize && coordsConsumer.apply(x, y)) {
+                x += dx;
+                y += dy;
+            }
+        }
+
+        private static int countPathLength(int fieldSize, BiFunction<Integer, Integer, Boolean> cellBelongsToPath,
+                                           int startX, int startY, int dx, int dy) {
+            final int[] length = {0};
+            iterateCells(fieldSize, startX, startY, dx, dy, (x, y) -> {
+                final boolean doContinue = cellBelongsToPath.apply(x, y);
+                if (doContinue) {
+                    length[0]++;
+                }
+                return doContinue;
+            });
+            return length[0];
+        }
+
+        private static List<List<Integer>> createPath(int fieldSize, int goal,
+                                                      BiFunction<Integer, Integer, Boolean> cellBelongsToPath,
+                                                      int startX, int startY, int dx, int dy) {
+            if (countPathLength(fieldSize, cellBelongsToPath, startX, startY, dx, dy) < goal) {
+                return null;
+            }
+            final ArrayList<List<Integer>> path = new ArrayList<>();
+            iterateCells(fieldSize, startX, startY, dx, dy, (x, y) -> {
+                final boolean doContinue = cellBelongsToPath.apply(x, y);
+                if (doContinue) {
+                    path.add(listOf(x, y));
+                }
+                return doContinue;
+            });
+            return path;
+        }
+
+        private static List<List<Integer>> findPath(Character[][] field, int goal, boolean forWinner) {
+            final int fieldSize = field.length;
+            for (int x = 0; x < fieldSize; x++) {
+                for (int y = 0; y < fieldSize; y++) {
+                    for (int dx = -1; dx < 2; dx++) {
+                        for (int dy = -1; dy < 2; dy++) {
+                            final Character symbol = field[x][y];
+                            BiFunction<Integer, Integer, Boolean> contFunc = null;
+                            if (forWinner) {
+                                if (symbol != null) {
+                                    contFunc = (xx, yy) -> symbol.equals(field[xx][yy]);
+                                }
+                            } else if (symbol != null) {
+                                contFunc = (xx, yy) -> symbol.equals(field[xx][yy]) || null == field[xx][yy];
+                            } else {
+                                final Character[] firstFound = {null};
+                                contFunc = (xx, yy) -> {
+                                    final Character currSymb = field[xx][yy];
+                                    if (firstFound[0] == null && currSymb != null) {
+                                        firstFound[0] = currSymb;
+                                    }
+                                    return null == currSymb || Objects.equals(firstFound[0], currSymb);
+                                };
+                            }
+                            if (contFunc != null) {
+                                final List<List<Integer>> path = createPath(fieldSize, goal, contFunc, x, y, dx, dy);
+                                if (path != null) {
+                                    return path;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
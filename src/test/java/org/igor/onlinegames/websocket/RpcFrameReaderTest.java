@@ -0,0 +1,106 @@
+package org.igor.onlinegames.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.igor.onlinegames.rpc.RpcDispatcher;
+import org.igor.onlinegames.rpc.RpcMethod;
+import org.igor.onlinegames.rpc.RpcMethodInvoker;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class RpcFrameReaderTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+
+    @Test
+    public void read_binds_params_of_known_method_from_token_stream() throws Exception {
+        //given
+        final RpcFrameReader rpcFrameReader = createRpcFrameReader();
+        final TestRpcMethods target = new TestRpcMethods();
+        final Map<String, RpcMethodInvoker> methodTable = createMethodTable(target);
+        final String payload = "{\"methodName\":\"clickCell\",\"params\":{\"y\":4,\"x\":3,\"tags\":[\"a\",null]}}";
+
+        //when
+        final AsyncWebSocketRpcCall call = rpcFrameReader.read(payload, methodTable);
+
+        //then
+        assertEquals("clickCell", call.getMethodName());
+        assertNull(call.getParams());
+        final Object[] parsedFromTree = methodTable.get("clickCell").parseArguments(mapper.readTree(payload).get("params"));
+        assertArrayEquals(parsedFromTree, call.getArguments());
+        assertEquals("3 4 [a, null]", methodTable.get("clickCell").invoke(target, call.getArguments(), null));
+    }
+
+    @Test
+    public void read_falls_back_to_json_node_when_method_is_not_known() throws Exception {
+        //given
+        final RpcFrameReader rpcFrameReader = createRpcFrameReader();
+        final Map<String, RpcMethodInvoker> methodTable = createMethodTable(new TestRpcMethods());
+
+        //when
+        final AsyncWebSocketRpcCall bindCall = rpcFrameReader.read(
+                "{\"methodName\":\"-bindToState\",\"params\":{\"stateId\":\"s\"}}", methodTable
+        );
+        final AsyncWebSocketRpcCall paramsFirstCall = rpcFrameReader.read(
+                "{\"params\":{\"x\":1},\"methodName\":\"clickCell\"}", methodTable
+        );
+
+        //then
+        assertEquals("s", bindCall.getParams().get("stateId").asText());
+        assertNull(bindCall.getArguments());
+        assertEquals("clickCell", paramsFirstCall.getMethodName());
+        assertEquals(1, paramsFirstCall.getParams().get("x").asInt());
+        assertNull(paramsFirstCall.getArguments());
+    }
+
+    @Test
+    public void read_binds_params_from_cbor_frame() throws Exception {
+        //given
+        final RpcFrameReader rpcFrameReader = createRpcFrameReader();
+        final TestRpcMethods target = new TestRpcMethods();
+        final Map<String, RpcMethodInvoker> methodTable = createMethodTable(target);
+        final ByteBuffer payload = ByteBuffer.wrap(cborMapper.writeValueAsBytes(
+                mapper.readTree("{\"methodName\":\"clickCell\",\"params\":{\"y\":4,\"x\":3,\"tags\":[\"a\"]}}")
+        ));
+
+        //when
+        final AsyncWebSocketRpcCall call = rpcFrameReader.read(payload, methodTable);
+        final AsyncWebSocketRpcCall treeCall = rpcFrameReader.read(payload, null);
+
+        //then
+        assertEquals("3 4 [a]", methodTable.get("clickCell").invoke(target, call.getArguments(), null));
+        assertEquals("3 4 [a]", methodTable.get("clickCell").invoke(target, treeCall.getParams(), null));
+    }
+
+    private RpcFrameReader createRpcFrameReader() {
+        final RpcFrameReader rpcFrameReader = new RpcFrameReader();
+        ReflectionTestUtils.setField(rpcFrameReader, "mapper", mapper);
+        ReflectionTestUtils.setField(rpcFrameReader, "cborMapper", cborMapper);
+        return rpcFrameReader;
+    }
+
+    private Map<String, RpcMethodInvoker> createMethodTable(Object target) {
+        final RpcDispatcher rpcDispatcher = new RpcDispatcher();
+        ReflectionTestUtils.setField(rpcDispatcher, "objectMapper", mapper);
+        ReflectionTestUtils.setField(rpcDispatcher, "rpcMethodsCollections", Collections.emptyList());
+        rpcDispatcher.init();
+        return rpcDispatcher.getMethodTable(target);
+    }
+
+    public static class TestRpcMethods {
+        @RpcMethod
+        public String clickCell(WebSocketSession session, int x, int y, List<String> tags) {
+            return x + " " + y + " " + tags;
+        }
+    }
+}
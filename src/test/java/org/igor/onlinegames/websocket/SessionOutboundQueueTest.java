@@ -0,0 +1,100 @@
+package org.igor.onlinegames.websocket;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.igor.onlinegames.common.OnlinegamesUtils.listOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SessionOutboundQueueTest {
+    @Test
+    public void superseded_snapshots_are_coalesced_while_waiting_to_be_sent() throws Exception {
+        //given
+        final WebSocketSession session = mock(WebSocketSession.class);
+        final List<Runnable> tasks = new ArrayList<>();
+        final WebSocketMessageSender.Stats stats = new WebSocketMessageSender.Stats();
+        final SessionOutboundQueue queue = new SessionOutboundQueue(session, tasks::add, 1024, 1000, stats);
+
+        //when
+        queue.enqueue(new TextMessage("snapshot-1"), "snapshot", "Snapshot");
+        queue.enqueue(new TextMessage("delta-1"), null, "Delta");
+        queue.enqueue(new TextMessage("snapshot-2"), "snapshot", "Snapshot");
+        queue.enqueue(new TextMessage("delta-2"), null, "Delta");
+        tasks.forEach(Runnable::run);
+
+        //then
+        assertEquals(1, tasks.size());
+        final ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session, times(3)).sendMessage(captor.capture());
+        assertEquals(
+                listOf("delta-1", "snapshot-2", "delta-2"),
+                captor.getAllValues().stream().map(TextMessage::getPayload).collect(Collectors.toList())
+        );
+        assertEquals(1, stats.getCoalescedMessages().get());
+        assertEquals(3, stats.getSentMessages().get());
+        assertEquals(1, stats.getMessageTypes().get("Snapshot").toDto().getSentMessages());
+        assertEquals(2, stats.getMessageTypes().get("Delta").toDto().getSentMessages());
+    }
+
+    @Test
+    public void wire_bytes_are_estimated_for_sessions_which_negotiated_compression() throws Exception {
+        //given
+        final WebSocketSession plainSession = mock(WebSocketSession.class);
+        final WebSocketSession compressingSession = mock(WebSocketSession.class);
+        when(compressingSession.getExtensions()).thenReturn(listOf(new WebSocketExtension("permessage-deflate")));
+        final WebSocketMessageSender.Stats stats = new WebSocketMessageSender.Stats();
+        final SessionOutboundQueue plainQueue = new SessionOutboundQueue(plainSession, Runnable::run, 100_000, 1000, stats);
+        final SessionOutboundQueue compressingQueue =
+                new SessionOutboundQueue(compressingSession, Runnable::run, 100_000, 1000, stats);
+        final TextMessage message = new TextMessage(String.join(",", Collections.nCopies(1000, "{\"x\":1,\"y\":2}")));
+
+        //when
+        plainQueue.enqueue(message, null, "Plain");
+        compressingQueue.enqueue(message, null, "Compressed");
+
+        //then
+        final WebSocketMessageTypeStatsDto plain = stats.getMessageTypes().get("Plain").toDto();
+        final WebSocketMessageTypeStatsDto compressed = stats.getMessageTypes().get("Compressed").toDto();
+        assertEquals(message.getPayloadLength(), plain.getRawBytes());
+        assertEquals(message.getPayloadLength(), plain.getWireBytes());
+        assertEquals(message.getPayloadLength(), compressed.getRawBytes());
+        assertTrue(compressed.getWireBytes() > 0);
+        assertTrue(compressed.getWireBytes() < message.getPayloadLength() / 10);
+    }
+
+    @Test
+    public void session_is_closed_when_buffer_size_limit_is_exceeded() throws Exception {
+        //given
+        final WebSocketSession session = mock(WebSocketSession.class);
+        final List<Runnable> tasks = new ArrayList<>();
+        final WebSocketMessageSender.Stats stats = new WebSocketMessageSender.Stats();
+        final SessionOutboundQueue queue = new SessionOutboundQueue(session, tasks::add, 10, 1000, stats);
+
+        //when
+        queue.enqueue(new TextMessage("123456"), null, "TextMessage");
+        queue.enqueue(new TextMessage("789012"), null, "TextMessage");
+        queue.enqueue(new TextMessage("345678"), null, "TextMessage");
+        new ArrayList<>(tasks).forEach(Runnable::run);
+
+        //then
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        verify(session, never()).sendMessage(any());
+        assertEquals(1, stats.getOverflowedSessions().get());
+    }
+}
@@ -0,0 +1,220 @@
+package org.igor.onlinegames.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.igor.onlinegames.common.OnlinegamesUtils.mapOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StateTest {
+    @Test
+    public void sendMessageToFe_serializes_message_once_per_wire_format() throws Exception {
+        //given
+        final TestState state = createState();
+        final WebSocketSession session1 = createSession("a");
+        final WebSocketSession session2 = createSession("b");
+        final WebSocketSession session3 = createSession("a");
+        final WebSocketSession session4 = createSession("b");
+        when(session3.getAcceptedProtocol()).thenReturn(WireFormat.CBOR_SUBPROTOCOL);
+        when(session4.getAcceptedProtocol()).thenReturn(WireFormat.CBOR_SUBPROTOCOL);
+        state.bind(session1, null);
+        state.bind(session2, null);
+        state.bind(session3, null);
+        state.bind(session4, null);
+
+        //when
+        state.sendMessageToFe(mapOf("k", "v"));
+
+        //then
+        final WebSocketMessage<?> msg1 = captureSentMessage(session1);
+        final WebSocketMessage<?> msg2 = captureSentMessage(session2);
+        final WebSocketMessage<?> msg3 = captureSentMessage(session3);
+        final WebSocketMessage<?> msg4 = captureSentMessage(session4);
+        assertSame(msg1, msg2);
+        assertSame(msg3, msg4);
+        assertEquals("{\"k\":\"v\"}", ((TextMessage) msg1).getPayload());
+        assertEquals(
+                mapOf("k", "v"),
+                new ObjectMapper(new CBORFactory()).readValue(((BinaryMessage) msg3).getPayload().array(), Map.class)
+        );
+    }
+
+    @Test
+    public void sendViewsToFe_creates_one_view_per_view_key() throws Exception {
+        //given
+        final TestState state = createState();
+        final WebSocketSession session1 = createSession("a");
+        final WebSocketSession session2 = createSession("b");
+        final WebSocketSession session3 = createSession("a");
+        state.bind(session1, null);
+        state.bind(session2, null);
+        state.bind(session3, null);
+        final AtomicInteger numOfCreatedViews = new AtomicInteger();
+
+        //when
+        state.sendViewsToFe(
+                session -> session.getAttributes().get("viewKey"),
+                session -> {
+                    numOfCreatedViews.incrementAndGet();
+                    return mapOf("view", session.getAttributes().get("viewKey"));
+                }
+        );
+
+        //then
+        assertEquals(2, numOfCreatedViews.get());
+        final TextMessage msg1 = (TextMessage) captureSentMessage(session1);
+        final TextMessage msg2 = (TextMessage) captureSentMessage(session2);
+        final TextMessage msg3 = (TextMessage) captureSentMessage(session3);
+        assertSame(msg1, msg3);
+        assertEquals("{\"view\":\"a\"}", msg1.getPayload());
+        assertEquals("{\"view\":\"b\"}", msg2.getPayload());
+    }
+
+    @Test
+    public void mailbox_executes_commands_of_each_state_one_at_a_time_and_in_order() throws Exception {
+        //given
+        final int numOfStates = 300;
+        final int numOfProducers = 8;
+        final int numOfCommandsPerProducer = 200;
+        final ExecutorService mailboxExecutor = Executors.newFixedThreadPool(4);
+        final ExecutorService producers = Executors.newFixedThreadPool(numOfProducers);
+        final List<TestState> states = new ArrayList<>();
+        for (int i = 0; i < numOfStates; i++) {
+            final TestState state = createState();
+            ReflectionTestUtils.setField(state, "executorService", mailboxExecutor);
+            states.add(state);
+        }
+        final CountDownLatch allCommandsExecuted = new CountDownLatch(numOfStates * numOfProducers * numOfCommandsPerProducer);
+        final AtomicInteger numOfViolations = new AtomicInteger();
+
+        //when
+        for (int p = 0; p < numOfProducers; p++) {
+            final int producer = p;
+            producers.execute(() -> {
+                for (int c = 0; c < numOfCommandsPerProducer; c++) {
+                    final int command = c;
+                    for (TestState state : states) {
+                        state.execute(() -> {
+                            if (state.inFlight.incrementAndGet() != 1
+                                    || state.lastCommandOfProducer[producer] != command - 1) {
+                                numOfViolations.incrementAndGet();
+                            }
+                            state.lastCommandOfProducer[producer] = command;
+                            state.numOfExecutedCommands++;
+                            state.inFlight.decrementAndGet();
+                            allCommandsExecuted.countDown();
+                        });
+                    }
+                }
+            });
+        }
+
+        //then
+        assertTrue(allCommandsExecuted.await(30, TimeUnit.SECONDS));
+        assertEquals(0, numOfViolations.get());
+        for (TestState state : states) {
+            assertEquals(
+                    numOfProducers * numOfCommandsPerProducer,
+                    state.submit(() -> state.numOfExecutedCommands).get(5, TimeUnit.SECONDS)
+            );
+        }
+        producers.shutdownNow();
+        mailboxExecutor.shutdownNow();
+    }
+
+    private TestState createState() {
+        final WebSocketMessageSender messageSender = new WebSocketMessageSender();
+        ReflectionTestUtils.setField(messageSender, "bufferSizeLimit", 1024);
+        ReflectionTestUtils.setField(messageSender, "sendTimeLimitMillis", 1000L);
+        ReflectionTestUtils.setField(messageSender, "executorService", new DirectExecutorService());
+        final TestState state = new TestState();
+        final WebSocketMessageCodec messageCodec = new WebSocketMessageCodec();
+        ReflectionTestUtils.setField(messageCodec, "mapper", new ObjectMapper());
+        ReflectionTestUtils.setField(messageCodec, "cborMapper", new ObjectMapper(new CBORFactory()));
+        ReflectionTestUtils.setField(state, "messageCodec", messageCodec);
+        ReflectionTestUtils.setField(state, "messageSender", messageSender);
+        return state;
+    }
+
+    private WebSocketSession createSession(String viewKey) {
+        final WebSocketSession session = mock(WebSocketSession.class);
+        final Map<String, Object> attributes = new HashMap<>();
+        attributes.put("viewKey", viewKey);
+        when(session.getAttributes()).thenReturn(attributes);
+        return session;
+    }
+
+    private WebSocketMessage<?> captureSentMessage(WebSocketSession session) throws Exception {
+        final ArgumentCaptor<WebSocketMessage<?>> captor = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(session).sendMessage(captor.capture());
+        return captor.getValue();
+    }
+
+    private static class TestState extends State {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final int[] lastCommandOfProducer = createLastCommandOfProducer();
+        private int numOfExecutedCommands;
+
+        private static int[] createLastCommandOfProducer() {
+            final int[] result = new int[8];
+            Arrays.fill(result, -1);
+            return result;
+        }
+    }
+
+    private static class DirectExecutorService extends AbstractExecutorService {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
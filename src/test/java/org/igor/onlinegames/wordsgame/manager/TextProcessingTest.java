@@ -1,14 +1,21 @@
 package org.igor.onlinegames.wordsgame.manager;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TextProcessingTest {
     @Test
@@ -121,4 +128,131 @@ public class TextProcessingTest {
         assertEquals(TextToken.builder().value("]").meta(true).build(), tokens.get(i++));
         assertEquals(i, tokens.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void splitOnParagraphs_should_produce_same_tokens_as_regex_based_implementation() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            //given
+            final String text = randomText(random, 1 + random.nextInt(i < 19_990 ? 60 : 20_000));
+            final String ignoreList = randomIgnoreList(random, text);
+
+            //when
+            List<List<TextToken>> paragraphs = TextProcessing.splitOnParagraphs(text, ignoreList);
+
+            //then
+            assertEquals(
+                    RegexTextProcessing.splitOnParagraphs(text, ignoreList), paragraphs,
+                    "text: '" + text + "', ignore list: '" + ignoreList + "'"
+            );
+        }
+    }
+
+    @Test
+    public void tokens_are_serialized_with_flags_set_to_true_or_omitted() throws IOException {
+        //given
+        final List<TextToken> tokens = TextProcessing.splitOnTokens("[site.com] {1.} a,\n", null);
+
+        //when
+        final String json = new ObjectMapper().writeValueAsString(tokens);
+
+        //then
+        assertEquals(
+                "[{\"value\":\"[\",\"meta\":true},{\"value\":\"site.com\",\"unsplittable\":true,\"active\":true},"
+                        + "{\"value\":\"]\",\"meta\":true},{\"value\":\" \"},{\"value\":\"{\",\"meta\":true},"
+                        + "{\"value\":\"1.\",\"ignored\":true},{\"value\":\"}\",\"meta\":true},{\"value\":\" \"},"
+                        + "{\"value\":\"a\",\"active\":true},{\"value\":\",\"},{\"value\":\"\\n\",\"meta\":true}]",
+                json
+        );
+        assertEquals(tokens, new ObjectMapper().readValue(json, new TypeReference<List<TextToken>>() {}));
+    }
+
+    @Test
+    public void equal_tokens_of_1mb_text_are_shared() {
+        //given
+        final Random random = new Random(7);
+        final String[] vocabulary = new String[5_000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = randomWord(random);
+        }
+        final StringBuilder text = new StringBuilder();
+        while (text.length() < 1_000_000) {
+            text.append(vocabulary[random.nextInt(vocabulary.length)])
+                    .append(random.nextInt(10) == 0 ? ". " : random.nextInt(30) == 0 ? ".\n" : " ");
+        }
+
+        //when
+        final List<List<TextToken>> paragraphs = TextProcessing.splitOnParagraphs(text.toString());
+
+        //then
+        final Set<TextToken> distinctTokens = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Set<String> distinctValues = Collections.newSetFromMap(new IdentityHashMap<>());
+        long numOfTokens = 0;
+        // estimated for 64 bit JVM with compressed references and compact strings
+        long footprintOfTokenPerWord = 0;
+        long footprint = align(16) + align(16 + 4L * paragraphs.size());
+        for (List<TextToken> paragraph : paragraphs) {
+            footprint += align(24) + align(16 + 4L * paragraph.size());
+            numOfTokens += paragraph.size();
+            for (TextToken token : paragraph) {
+                // a token with 5 fields and own String
+                footprintOfTokenPerWord += align(12 + 5 * 4) + align(24) + align(16 + token.getValue().length());
+                if (distinctTokens.add(token)) {
+                    footprint += align(12 + 4 + 1);
+                }
+                if (distinctValues.add(token.getValue())) {
+                    footprint += align(24) + align(16 + token.getValue().length());
+                }
+            }
+        }
+        assertTrue(numOfTokens > 300_000);
+        assertTrue(distinctTokens.size() <= vocabulary.length + 10);
+        assertEquals(distinctTokens.size(), distinctValues.size());
+        assertTrue(footprint < 2_000_000, "footprint = " + footprint);
+        assertTrue(
+                footprint * 10 < footprintOfTokenPerWord,
+                "footprint = " + footprint + ", footprint with a token per word = " + footprintOfTokenPerWord
+        );
+    }
+
+    private static long align(long size) {
+        return (size + 7) / 8 * 8;
+    }
+
+    private static String randomWord(Random random) {
+        final StringBuilder word = new StringBuilder();
+        final int length = 2 + random.nextInt(9);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+
+    private static final String[] TEXT_PARTS = {
+            "a", "b", "w", "1", "\u00e4", " ", "  ", "\t", "\n", "\r\n", ".", "!", "?", "\u2026", ",", ":", ";", "\"",
+            "(", ")", "[", "]", "{", "}", "\\", "/", "*", "+", "-", "\u2013", "\u2014", "\u201E", "\u201D", "'",
+            "word", "ab.", "..."
+    };
+
+    private static String randomText(Random random, int numOfParts) {
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < numOfParts; i++) {
+            text.append(TEXT_PARTS[random.nextInt(TEXT_PARTS.length)]);
+        }
+        return text.toString();
+    }
+
+    private static String randomIgnoreList(Random random, String text) {
+        final int numOfLines = random.nextInt(4);
+        if (numOfLines == 0) {
+            return random.nextBoolean() ? null : " ";
+        }
+        final StringBuilder ignoreList = new StringBuilder();
+        for (int i = 0; i < numOfLines; i++) {
+            final int start = random.nextInt(text.length());
+            ignoreList.append(text, start, Math.min(text.length(), start + 1 + random.nextInt(4)))
+                    .append(random.nextBoolean() ? "\n" : "\r\n");
+        }
+        return ignoreList.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package org.igor.onlinegames.wordsgame.manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TokenizedTextCacheTest {
+    @Test
+    public void same_text_is_tokenized_once_and_shared() {
+        //given
+        final TokenizedTextCache cache = new TokenizedTextCache(1_000_000);
+        final TokenizedTextCache.TokenizedText first = cache.get("Some text to learn.");
+
+        //when
+        final TokenizedTextCache.TokenizedText second = cache.get(new String("Some text to learn."));
+        final TokenizedTextCache.TokenizedText withIgnoreList = cache.get("Some text to learn.", "text");
+
+        //then
+        assertSame(first, second);
+        assertNotSame(first, withIgnoreList);
+        assertEquals(first.getTextHash(), withIgnoreList.getTextHash());
+        assertEquals(TextProcessing.splitOnParagraphs("Some text to learn."), first.getParagraphs());
+        assertEquals(TextProcessing.splitOnParagraphs("Some text to learn.", "text"), withIgnoreList.getParagraphs());
+        final List<TextToken> paragraph = first.getParagraphs().get(0);
+        assertThrows(UnsupportedOperationException.class, () -> paragraph.add(TextToken.builder().value("a").build()));
+        assertThrows(UnsupportedOperationException.class, () -> first.getParagraphs().remove(0));
+        final TokenizedTextCacheStatsDto stats = cache.getStats();
+        assertEquals(2, stats.getTexts());
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(0, stats.getEvictions());
+        assertEquals(first.getWeight() + withIgnoreList.getWeight(), stats.getWeight());
+    }
+
+    @Test
+    public void least_recently_used_texts_are_evicted_when_size_limit_is_exceeded() {
+        //given
+        final long textWeight = new TokenizedTextCache(Long.MAX_VALUE).get("text-1").getWeight();
+        final TokenizedTextCache cache = new TokenizedTextCache(textWeight * 2);
+        final TokenizedTextCache.TokenizedText text1 = cache.get("text-1");
+        final TokenizedTextCache.TokenizedText text2 = cache.get("text-2");
+
+        //when
+        cache.get("text-1");
+        cache.get("text-3");
+        cache.get("very long text which doesn't fit into the cache at all");
+
+        //then
+        assertSame(text1, cache.get("text-1"));
+        assertNotSame(text2, cache.get("text-2"));
+        final TokenizedTextCacheStatsDto stats = cache.getStats();
+        assertEquals(2, stats.getTexts());
+        assertEquals(textWeight * 2, stats.getWeight());
+        assertEquals(2, stats.getHits());
+        assertEquals(5, stats.getMisses());
+        assertEquals(2, stats.getEvictions());
+    }
+}
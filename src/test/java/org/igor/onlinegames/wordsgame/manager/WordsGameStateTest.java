@@ -0,0 +1,141 @@
+package org.igor.onlinegames.wordsgame.manager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.igor.onlinegames.common.GamePlayersCounts;
+import org.igor.onlinegames.common.OnlinegamesUtils;
+import org.igor.onlinegames.model.UserSessionData;
+import org.igor.onlinegames.websocket.WebSocketMessageCodec;
+import org.igor.onlinegames.websocket.WebSocketMessageSender;
+import org.igor.onlinegames.wordsgame.dto.history.WordsGamePlayerInfoDto;
+import org.igor.onlinegames.wordsgame.dto.history.WordsGameRecordDto;
+import org.igor.onlinegames.wordsgame.dto.history.WordsGameSelectedWordDto;
+import org.igor.onlinegames.wordsgame.dto.history.WordsGameUserInputDto;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.notNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WordsGameStateTest {
+    private static final String TEXT = "WordsGameTextDto";
+    private static final String STATE = "WordsGameStateDto";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void text_is_sent_to_a_session_once_per_text_version() throws Exception {
+        //given
+        final WebSocketMessageSender messageSender = mock(WebSocketMessageSender.class);
+        final WordsGameState game = createGame(messageSender);
+        final WebSocketSession ownerSession = createSession();
+        final WebSocketSession playerSession = createSession();
+
+        //when
+        game.bind(ownerSession, mapper.readTree("{\"playerName\":\"owner\"}"));
+        game.bind(playerSession, mapper.readTree("{\"playerName\":\"player\"}"));
+        game.setTextToLearn(playerSession, "ignored because the player is not the game owner");
+        game.setTextToLearn(ownerSession, "A new text.");
+
+        //then
+        verify(messageSender, times(2)).send(eq(ownerSession), any(), isNull(), eq(TEXT));
+        verify(messageSender, times(3)).send(eq(ownerSession), any(), notNull(), eq(STATE));
+        verify(messageSender, times(2)).send(eq(playerSession), any(), isNull(), eq(TEXT));
+        verify(messageSender, times(2)).send(eq(playerSession), any(), notNull(), eq(STATE));
+    }
+
+    @Test
+    public void finished_game_is_saved_to_history() throws Exception {
+        //given
+        final WordsGameHistoryStore historyStore = mock(WordsGameHistoryStore.class);
+        final WordsGameState game = createGame(mock(WebSocketMessageSender.class));
+        ReflectionTestUtils.setField(game, "historyStore", historyStore);
+        final WebSocketSession ownerSession = createSession();
+        final WebSocketSession playerSession = createSession();
+        game.bind(ownerSession, mapper.readTree("{\"playerName\":\"owner\"}"));
+        game.bind(playerSession, mapper.readTree("{\"playerName\":\"player\"}"));
+        game.startGame(ownerSession);
+        final WordsPlayer playerToMove = (WordsPlayer) ReflectionTestUtils.getField(game, "playerToMove");
+        final boolean ownerMoves = playerToMove.getUserId().equals(getUserId(ownerSession));
+        final WebSocketSession selectingSession = ownerMoves ? ownerSession : playerSession;
+        final WebSocketSession enteringSession = ownerMoves ? playerSession : ownerSession;
+
+        //when
+        game.selectWord(selectingSession, 0, 2, "text");
+        game.enterWord(enteringSession, "txet");
+        game.enterWord(enteringSession, "text");
+        game.selectWord(enteringSession, 0, 0, "Some");
+        game.end(ownerSession);
+
+        //then
+        final ArgumentCaptor<WordsGameRecordDto> history = ArgumentCaptor.forClass(WordsGameRecordDto.class);
+        verify(historyStore).save(history.capture());
+        final WordsGameRecordDto record = history.getValue();
+        assertEquals("title", record.getTitle());
+        assertNotNull(record.getFinishedAt());
+        assertEquals(2, record.getSelectedWords().size());
+        final WordsGameSelectedWordDto word = record.getSelectedWords().get(0);
+        assertEquals(playerToMove.getPlayerId(), word.getPlayerId());
+        assertEquals("text", word.getText());
+        assertEquals(1, word.getUserInputs().size());
+        final WordsGameUserInputDto userInput = word.getUserInputs().get(0);
+        assertEquals("txet", userInput.getText());
+        assertFalse(userInput.getCorrect());
+        assertTrue(userInput.isConfirmed());
+        assertTrue(userInput.getEnteredAfterMillis() <= userInput.getConfirmedAfterMillis());
+        final WordsGameUserInputDto notEntered = record.getSelectedWords().get(1).getUserInputs().get(0);
+        assertNull(notEntered.getText());
+        assertNull(notEntered.getCorrect());
+        assertNull(notEntered.getEnteredAfterMillis());
+        final WordsGamePlayerInfoDto enteringPlayer = record.getPlayers().stream()
+                .filter(player -> player.getUserId().equals(getUserId(enteringSession)))
+                .findAny()
+                .get();
+        assertEquals(1, enteringPlayer.getNumOfAllWords());
+        assertEquals(0, enteringPlayer.getNumOfCorrectWords());
+    }
+
+    private WordsGameState createGame(WebSocketMessageSender messageSender) throws Exception {
+        final WebSocketMessageCodec messageCodec = new WebSocketMessageCodec();
+        ReflectionTestUtils.setField(messageCodec, "mapper", mapper);
+        ReflectionTestUtils.setField(messageCodec, "cborMapper", new ObjectMapper(new CBORFactory()));
+        final WordsGameState game = new WordsGameState();
+        ReflectionTestUtils.setField(game, "messageCodec", messageCodec);
+        ReflectionTestUtils.setField(game, "messageSender", messageSender);
+        ReflectionTestUtils.setField(game, "tokenizedTextCache", new TokenizedTextCache(1_000_000));
+        ReflectionTestUtils.setField(game, "gamePlayersCounts", new GamePlayersCounts());
+        game.setStateId(UUID.randomUUID());
+        game.init(mapper.readTree("{\"textToLearn\":\"Some text to learn.\",\"title\":\"title\"}"));
+        return game;
+    }
+
+    private UUID getUserId(WebSocketSession session) {
+        return OnlinegamesUtils.extractUserSessionData(session).get().getUserId();
+    }
+
+    private WebSocketSession createSession() {
+        final WebSocketSession session = mock(WebSocketSession.class);
+        final Map<String, Object> attributes = new HashMap<>();
+        when(session.getAttributes()).thenReturn(attributes);
+        OnlinegamesUtils.setUserSessionData(session, new UserSessionData());
+        return session;
+    }
+}
@@ -0,0 +1,203 @@
+package org.igor.onlinegames.xogame.manager;
+
+import org.igor.onlinegames.xogame.dto.XoCellDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+import static org.igor.onlinegames.common.OnlinegamesUtils.listOf;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class XoBoardTest {
+    @Test
+    public void put_stores_symbols_and_createCellsDto_lists_taken_cells() {
+        //given
+        final XoBoard board = new XoBoard(3, 3);
+
+        //when
+        board.put(1, 2, 'x');
+        board.put(0, 0, 'o');
+
+        //then
+        assertEquals(Character.valueOf('x'), board.getSymbol(1, 2));
+        assertEquals(Character.valueOf('o'), board.getSymbol(0, 0));
+        assertNull(board.getSymbol(2, 2));
+        assertFalse(board.isEmpty(1, 2));
+        assertTrue(board.isEmpty(2, 1));
+        assertTrue(board.isOnBoard(2, 2));
+        assertFalse(board.isOnBoard(3, 0));
+        assertFalse(board.isOnBoard(0, -1));
+        assertEquals(
+                listOf(
+                        XoCellDto.builder().x(1).y(2).symbol('x').build(),
+                        XoCellDto.builder().x(0).y(0).symbol('o').build()
+                ),
+                board.createCellsDto()
+        );
+    }
+
+    @Test
+    public void findWinnerPath_returns_same_path_as_full_field_scan() {
+        final Random rnd = new Random(1);
+        final char[] symbols = {'x', 'o', 's', 't', 'a'};
+        int numOfWins = 0;
+        for (int game = 0; game < 5_000; game++) {
+            //given
+            final int fieldSize = 1 + rnd.nextInt(12);
+            final int goal = 1 + rnd.nextInt(Math.min(fieldSize, 6));
+            final int numOfPlayers = 2 + rnd.nextInt(symbols.length - 1);
+            final Character[][] field = new Character[fieldSize][fieldSize];
+            final XoBoard board = new XoBoard(fieldSize, goal);
+            final List<Integer> cells = new ArrayList<>();
+            for (int i = 0; i < fieldSize * fieldSize; i++) {
+                cells.add(i);
+            }
+            Collections.shuffle(cells, rnd);
+
+            for (int move = 0; move < cells.size(); move++) {
+                final int x = cells.get(move) / fieldSize;
+                final int y = cells.get(move) % fieldSize;
+                field[x][y] = symbols[move % numOfPlayers];
+
+                //when
+                board.put(x, y, field[x][y]);
+                final List<List<Integer>> actualPath = board.findWinnerPath(x, y);
+
+                //then
+                final List<List<Integer>> expectedPath = findPath(field, goal, true);
+                assertEquals(expectedPath, actualPath);
+                if (actualPath != null) {
+                    numOfWins++;
+                    break;
+                }
+            }
+        }
+        assertTrue(numOfWins > 1_000);
+    }
+
+    @Test
+    public void isDraw_agrees_with_full_field_scan() {
+        final Random rnd = new Random(2);
+        final char[] symbols = {'x', 'o', 's', 't', 'a'};
+        int numOfDraws = 0;
+        for (int game = 0; game < 3_000; game++) {
+            //given
+            final int fieldSize = 1 + rnd.nextInt(10);
+            final int goal = 1 + rnd.nextInt(Math.min(fieldSize, 5));
+            final int numOfPlayers = 2 + rnd.nextInt(symbols.length - 1);
+            final Character[][] field = new Character[fieldSize][fieldSize];
+            final XoBoard board = new XoBoard(fieldSize, goal);
+            final List<Integer> cells = new ArrayList<>();
+            for (int i = 0; i < fieldSize * fieldSize; i++) {
+                cells.add(i);
+            }
+            Collections.shuffle(cells, rnd);
+
+            for (int move = 0; move < cells.size(); move++) {
+                final int x = cells.get(move) / fieldSize;
+                final int y = cells.get(move) % fieldSize;
+                field[x][y] = symbols[move % numOfPlayers];
+
+                //when
+                board.put(x, y, field[x][y]);
+
+                //then
+                final boolean expectedDraw = findPath(field, goal, false) == null;
+                assertEquals(expectedDraw, board.isDraw());
+                if (expectedDraw) {
+                    numOfDraws++;
+                    break;
+                }
+            }
+        }
+        assertTrue(numOfDraws > 500);
+    }
+
+    private static void iterateCells(int fieldSize, int x, int y, int dx, int dy, BiFunction<Integer, Integer, Boolean> coordsConsumer) {
+        if (dx == 0 && dy == 0) {
+            return;
+        } else {
+            int maxX = fieldSize-1;
+            int maxY = fieldSize-1;
+            while (0<=x && x<=maxX && 0<=y && y<=maxY && coordsConsumer.apply(x,y)) {
+                x+=dx;
+                y+=dy;
+            }
+        }
+    }
+
+    private static int countPathLength(int fieldSize, BiFunction<Integer, Integer, Boolean> cellBelongsToPath, int startX, int startY, int dx, int dy) {
+        final int[] length = {0};
+        iterateCells(fieldSize, startX, startY, dx, dy, (x,y) -> {
+            final boolean doContinue = cellBelongsToPath.apply(x,y);
+            if (doContinue) {
+                length[0]++;
+            }
+            return doContinue;
+        });
+        return length[0];
+    }
+
+    private static List<List<Integer>> createPath(int fieldSize, int goal, BiFunction<Integer, Integer, Boolean> cellBelongsToPath, int startX, int startY, int dx, int dy) {
+        if (countPathLength(fieldSize, cellBelongsToPath, startX, startY, dx, dy) < goal) {
+            return null;
+        } else {
+            final ArrayList<List<Integer>> path = new ArrayList<>();
+            iterateCells(fieldSize, startX, startY, dx, dy, (x,y) -> {
+                final boolean doContinue = cellBelongsToPath.apply(x,y);
+                if (doContinue) {
+                    path.add(listOf(x,y));
+                }
+                return doContinue;
+            });
+            return path;
+        }
+    }
+
+    private static List<List<Integer>> findPath(Character[][] field, int goal, boolean forWinner) {
+        final int fieldSize = field.length;
+        for (int x = 0; x < fieldSize; x++) {
+            for (int y = 0; y < fieldSize; y++) {
+                for (int dx = -1; dx < 2; dx++) {
+                    for (int dy = -1; dy < 2; dy++) {
+                        Character symbol = field[x][y];
+                        BiFunction<Integer, Integer, Boolean> contFunc = null;
+                        if (forWinner) {
+                            if (symbol != null) {
+                                contFunc = (xx,yy) -> symbol.equals(field[xx][yy]);
+                            }
+                        } else {
+                            if (symbol != null) {
+                                contFunc = (xx,yy) -> symbol.equals(field[xx][yy]) || null == field[xx][yy];
+                            } else {
+                                final Character[] firstFound = {null};
+                                contFunc = (xx,yy) -> {
+                                    final Character currSymb = field[xx][yy];
+                                    if (firstFound[0] == null && currSymb != null) {
+                                        firstFound[0] = currSymb;
+                                    }
+                                    return null == currSymb || Objects.equals(firstFound[0], currSymb);
+                                };
+                            }
+                        }
+                        if (contFunc != null) {
+                            List<List<Integer>> path = createPath(fieldSize, goal, contFunc, x, y, dx, dy);
+                            if (path != null) {
+                                return path;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,104 @@
+package org.igor.onlinegames.xogame.manager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.igor.onlinegames.common.GameHistoryRecord;
+import org.igor.onlinegames.xogame.dto.history.XoGameMoveDto;
+import org.igor.onlinegames.xogame.dto.history.XoGamePlayerInfoDto;
+import org.igor.onlinegames.xogame.dto.history.XoGameRecordDto;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class XoGameArchiveCodecTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper().findAndRegisterModules();
+    private static final Instant STARTED_AT = Instant.parse("2021-07-01T10:00:00.123456789Z");
+
+    @Test
+    public void game_is_restored_from_the_compact_form() throws IOException {
+        //given
+        final UUID userId = UUID.randomUUID();
+        final List<XoGameMoveDto> moves = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            moves.add(XoGameMoveDto.builder()
+                    .moveNumber(i + 1)
+                    .playerId(i % 2)
+                    .time(STARTED_AT.plusMillis(1500L * (i + 1)).plusNanos(i * 7))
+                    .x(i % 3)
+                    .y(i / 3)
+                    .build());
+        }
+        final XoGameRecordDto game = XoGameRecordDto.builder()
+                .gameId(UUID.randomUUID())
+                .startedAt(STARTED_AT)
+                .finishedAt(STARTED_AT.plusSeconds(20))
+                .fieldSize(3)
+                .goal(3)
+                .players(Arrays.asList(
+                        XoGamePlayerInfoDto.builder().userId(userId).playerId(0).playerName("Ann").build(),
+                        XoGamePlayerInfoDto.builder().playerId(1).build()
+                ))
+                .moves(moves)
+                .winnerPath(Arrays.asList(Arrays.asList(0, 0), Arrays.asList(1, 1), Arrays.asList(2, 2)))
+                .winnerId(0)
+                .build();
+        final byte[] json = MAPPER.writeValueAsBytes(game);
+        final GameHistoryRecord record = createRecord(game, json);
+
+        //when
+        final byte[] encoded = encode(record);
+        final byte[] decoded = decode(record, encoded);
+
+        //then
+        assertTrue(encoded.length * 3 < json.length, encoded.length + " bytes of " + json.length);
+        assertEquals(game, MAPPER.readValue(decoded, XoGameRecordDto.class));
+    }
+
+    @Test
+    public void data_which_is_not_a_game_is_kept_as_is() throws IOException {
+        //given
+        final byte[] data = "{\"unexpected\":true}".getBytes(StandardCharsets.UTF_8);
+        final GameHistoryRecord record = new GameHistoryRecord(
+                STARTED_AT.truncatedTo(ChronoUnit.MILLIS), UUID.randomUUID(), new ArrayList<>(), data
+        );
+
+        //when
+        final byte[] decoded = decode(record, encode(record));
+
+        //then
+        assertArrayEquals(data, decoded);
+    }
+
+    private GameHistoryRecord createRecord(XoGameRecordDto game, byte[] json) {
+        final GameHistoryRecord record = XoGameHistoryStore.createHistoryRecord(game, json);
+        // the log keeps startedAt in millis
+        record.setStartedAt(record.getStartedAt().truncatedTo(ChronoUnit.MILLIS));
+        return record;
+    }
+
+    private byte[] encode(GameHistoryRecord record) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new XoGameArchiveCodec(MAPPER).writeData(record, new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private byte[] decode(GameHistoryRecord record, byte[] encoded) throws IOException {
+        return new XoGameArchiveCodec(MAPPER).readData(
+                record, new DataInputStream(new ByteArrayInputStream(encoded))
+        );
+    }
+}
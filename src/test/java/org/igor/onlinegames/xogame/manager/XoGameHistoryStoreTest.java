@@ -0,0 +1,161 @@
+package org.igor.onlinegames.xogame.manager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.igor.onlinegames.common.GameHistoryRepository;
+import org.igor.onlinegames.common.GameHistoryWriter;
+import org.igor.onlinegames.common.SegmentedGameHistoryLog;
+import org.igor.onlinegames.xogame.dto.history.XoGamePlayerInfoDto;
+import org.igor.onlinegames.xogame.dto.history.XoGameRecordDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class XoGameHistoryStoreTest {
+    private static final UUID USER_1 = new UUID(0, 1);
+    private static final UUID USER_2 = new UUID(0, 2);
+    private static final UUID USER_3 = new UUID(0, 3);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void games_of_a_user_are_returned_from_the_index_and_from_the_rebuilt_index() throws Exception {
+        //given
+        final Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        final SegmentedGameHistoryLog historyLog = openHistoryLog();
+        final GameHistoryWriter historyWriter = new GameHistoryWriter("xo_game", historyLog, 100, 10);
+        final XoGameHistoryStore store = createStore(historyLog, historyWriter);
+        historyWriter.start();
+        final XoGameRecordDto game1 = createGame(now.minusSeconds(30), USER_1, USER_2);
+        final XoGameRecordDto game2 = createGame(now.minusSeconds(20), USER_2, USER_3);
+        final XoGameRecordDto game3 = createGame(now.minusSeconds(10), USER_1, USER_3);
+        final XoGameRecordDto oldGame = createGame(now.minus(Duration.ofDays(3)), USER_1, USER_2);
+        for (XoGameRecordDto game : Arrays.asList(game1, game2, game3, oldGame)) {
+            store.save(game);
+        }
+        historyWriter.close();
+        historyLog.close();
+
+        //when
+        final SegmentedGameHistoryLog restartedHistoryLog = openHistoryLog();
+        final XoGameHistoryStore restartedStore = createStore(
+                restartedHistoryLog, new GameHistoryWriter("xo_game", restartedHistoryLog, 100, 10)
+        );
+
+        //then
+        for (XoGameHistoryStore s : Arrays.asList(store, restartedStore)) {
+            assertEquals(Arrays.asList(game3.getGameId(), game1.getGameId()), getGameIds(s, USER_1));
+            assertEquals(Arrays.asList(game2.getGameId(), game1.getGameId()), getGameIds(s, USER_2));
+            assertEquals(Arrays.asList(game3.getGameId(), game2.getGameId()), getGameIds(s, USER_3));
+            assertEquals(Arrays.asList(), getGameIds(s, new UUID(0, 4)));
+        }
+    }
+
+    @Test
+    public void games_saved_one_file_per_game_are_imported_once() throws Exception {
+        //given
+        final Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        final XoGameRecordDto game1 = createGame(now.minusSeconds(30), USER_1, USER_2);
+        final XoGameRecordDto game2 = createGame(now.minusSeconds(20), USER_1, USER_3);
+        for (XoGameRecordDto game : Arrays.asList(game1, game2)) {
+            final Path file = XoGameHistoryFilesImporter.getGameFile(
+                    dir.resolve("xo_game"), game.getStartedAt(), game.getGameId()
+            );
+            Files.createDirectories(file.getParent());
+            Files.write(file, MAPPER.writeValueAsBytes(game));
+        }
+        final SegmentedGameHistoryLog historyLog = openHistoryLog();
+        final GameHistoryWriter historyWriter = new GameHistoryWriter("xo_game", historyLog, 100, 10);
+        final XoGameHistoryStore store = createStore(historyLog, historyWriter);
+        final XoGameRecordDto game3 = createGame(now.minusSeconds(10), USER_1, USER_2);
+        store.save(game3);
+        historyWriter.close();
+        historyLog.close();
+
+        //when
+        final SegmentedGameHistoryLog restartedHistoryLog = openHistoryLog();
+        final XoGameHistoryStore restartedStore = createStore(
+                restartedHistoryLog, new GameHistoryWriter("xo_game", restartedHistoryLog, 100, 10)
+        );
+
+        //then
+        assertEquals(
+                Arrays.asList(game3.getGameId(), game2.getGameId(), game1.getGameId()),
+                getGameIds(restartedStore, USER_1)
+        );
+        assertEquals(game2, restartedStore.getGamesOfUser(USER_3).get(0));
+        final List<UUID> allGameIds = new ArrayList<>();
+        restartedHistoryLog.readRange(
+                Instant.EPOCH, Instant.MAX, (position, record) -> allGameIds.add(record.getGameId())
+        );
+        assertEquals(3, allGameIds.size());
+    }
+
+    @Test
+    public void legacy_game_file_path_is_correct() {
+        //given
+        final Instant startedAt = Instant.from(ZonedDateTime.of(
+                2020, 8, 30, 15, 45, 23, 0, ZoneOffset.UTC
+        ));
+        final UUID gameId = UUID.fromString("4d5c9617-cb79-4a4e-8d9c-8e3518de49b2");
+
+        //when
+        final Path file = XoGameHistoryFilesImporter.getGameFile(
+                Paths.get("app_dir/games_history/xo_game"), startedAt, gameId
+        );
+
+        //then
+        assertEquals(
+                Paths.get("app_dir/games_history/xo_game/2020_08_30/"
+                        + "xogame-2020_08_30__15_45_23-4d5c9617-cb79-4a4e-8d9c-8e3518de49b2.json"),
+                file
+        );
+    }
+
+    private SegmentedGameHistoryLog openHistoryLog() throws IOException {
+        final SegmentedGameHistoryLog historyLog = new SegmentedGameHistoryLog(dir.resolve("log"), "xo_game", 1024);
+        historyLog.open();
+        return historyLog;
+    }
+
+    private XoGameHistoryStore createStore(GameHistoryRepository repository, GameHistoryWriter historyWriter)
+            throws IOException {
+        final XoGameHistoryStore store = new XoGameHistoryStore(
+                dir.resolve("xo_game").toString(), 2, MAPPER, repository, historyWriter
+        );
+        store.init();
+        return store;
+    }
+
+    private XoGameRecordDto createGame(Instant startedAt, UUID... userIds) {
+        final XoGameRecordDto game = new XoGameRecordDto();
+        game.setGameId(UUID.randomUUID());
+        game.setStartedAt(startedAt);
+        game.setPlayers(Arrays.stream(userIds)
+                .map(userId -> XoGamePlayerInfoDto.builder().userId(userId).playerName(userId.toString()).build())
+                .collect(Collectors.toList()));
+        return game;
+    }
+
+    private List<UUID> getGameIds(XoGameHistoryStore store, UUID userId) {
+        return store.getGamesOfUser(userId).stream().map(XoGameRecordDto::getGameId).collect(Collectors.toList());
+    }
+}